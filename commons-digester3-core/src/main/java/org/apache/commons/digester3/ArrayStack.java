@@ -0,0 +1,156 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
+
+import java.util.EmptyStackException;
+import java.util.Stack;
+
+/**
+ * An array backed, unsynchronized stack, used for the parse time stacks of the {@link Digester} and of its rules.
+ * <p>
+ * Unlike {@link Stack}, that extends the synchronized {@link java.util.Vector}, no monitor is taken by the operations
+ * of this stack: instances must be confined to the thread that parses the document, as the Digester itself is.
+ * </p>
+ *
+ * @param <E> the type of the stacked elements
+ * @since 3.3
+ */
+final class ArrayStack<E>
+{
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] elements = new Object[INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * Removes all the elements of the stack.
+     */
+    void clear()
+    {
+        fill( elements, 0, size, null );
+        size = 0;
+    }
+
+    /**
+     * Returns the element at the given index, where 0 is the bottom of the stack and {@code size() - 1} its top.
+     *
+     * @param index the index of the element
+     * @return the element at the given index
+     * @throws ArrayIndexOutOfBoundsException if the index is out of range
+     */
+    @SuppressWarnings( "unchecked" )
+    E get( final int index )
+    {
+        if ( index < 0 || index >= size )
+        {
+            throw new ArrayIndexOutOfBoundsException( index );
+        }
+        return (E) elements[index];
+    }
+
+    /**
+     * Tests if the stack is empty.
+     *
+     * @return true if the stack is empty
+     */
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Returns the element at the top of the stack, without removing it.
+     *
+     * @return the element at the top of the stack
+     * @throws EmptyStackException if the stack is empty
+     */
+    @SuppressWarnings( "unchecked" )
+    E peek()
+    {
+        if ( size == 0 )
+        {
+            throw new EmptyStackException();
+        }
+        return (E) elements[size - 1];
+    }
+
+    /**
+     * Removes the element at the top of the stack.
+     *
+     * @return the removed element
+     * @throws EmptyStackException if the stack is empty
+     */
+    @SuppressWarnings( "unchecked" )
+    E pop()
+    {
+        if ( size == 0 )
+        {
+            throw new EmptyStackException();
+        }
+        final E element = (E) elements[--size];
+        elements[size] = null;
+        return element;
+    }
+
+    /**
+     * Pushes an element at the top of the stack.
+     *
+     * @param element the element to push, may be null
+     * @return the pushed element
+     */
+    E push( final E element )
+    {
+        if ( size == elements.length )
+        {
+            elements = copyOf( elements, size * 2 );
+        }
+        elements[size++] = element;
+        return element;
+    }
+
+    /**
+     * Pushes the elements of the given stack at the top of this stack, from its bottom to its top.
+     *
+     * @param other the stack whose elements are pushed
+     */
+    void pushAll( final ArrayStack<? extends E> other )
+    {
+        for ( int i = 0; i < other.size; i++ )
+        {
+            push( other.get( i ) );
+        }
+    }
+
+    /**
+     * Returns the number of elements in the stack.
+     *
+     * @return the number of elements in the stack
+     */
+    int size()
+    {
+        return size;
+    }
+
+}
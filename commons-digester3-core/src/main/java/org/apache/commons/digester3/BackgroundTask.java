@@ -0,0 +1,213 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A task run in the background of a parse, by the {@code ExecutorService} of the {@link Digester} if it has one, or
+ * on a daemon thread of its own otherwise.
+ * <p>
+ * The parse waits for the task, so a task still queued by a busy executor after {@link #START_NANOS} is run on its
+ * own thread by {@link #startIfStalled()}, which the waiting side invokes; the executor then skips it. The task is
+ * stopped by interrupting it, and the owner waits for it at most {@link #STOP_MILLIS}, so that a task stalled in a
+ * read which ignores the interruption cannot hang the parse: the owner is expected to close that input first.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class BackgroundTask
+    implements Runnable
+{
+
+    /** How long the task may wait for a thread of the executor before it is run on its own thread. */
+    static final long START_NANOS = TimeUnit.MILLISECONDS.toNanos( 10L );
+
+    /** How long the owner waits for the task to finish. */
+    static final long STOP_MILLIS = 5000L;
+
+    private final String name;
+
+    private final Runnable task;
+
+    /** Set by the first thread running the task, or when the task is stopped before any thread runs it. */
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final CountDownLatch finished = new CountDownLatch( 1 );
+
+    private long submitted;
+
+    /** The thread running the task, guarded by this task. */
+    private Thread runner;
+
+    /** Whether the task has been stopped, guarded by this task. */
+    private boolean stopped;
+
+    /**
+     * Creates a new background task.
+     *
+     * @param name the name of the thread running the task when it runs on its own thread
+     * @param task the task to run
+     */
+    BackgroundTask( final String name, final Runnable task )
+    {
+        this.name = name;
+        this.task = task;
+    }
+
+    /**
+     * Waits for the task to finish, at most {@link #STOP_MILLIS}. The interrupt status of the current thread is kept,
+     * without cutting the wait short.
+     *
+     * @return true if the task is finished, or has never run
+     */
+    boolean join()
+    {
+        boolean interrupted = false;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( STOP_MILLIS );
+        try
+        {
+            while ( true )
+            {
+                try
+                {
+                    return finished.await( deadline - System.nanoTime(), TimeUnit.NANOSECONDS );
+                }
+                catch ( final InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        finally
+        {
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run()
+    {
+        if ( !started.compareAndSet( false, true ) )
+        {
+            // run by another thread, or stopped
+            return;
+        }
+        synchronized ( this )
+        {
+            if ( stopped )
+            {
+                finished.countDown();
+                return;
+            }
+            runner = Thread.currentThread();
+        }
+        try
+        {
+            task.run();
+        }
+        finally
+        {
+            synchronized ( this )
+            {
+                runner = null;
+                if ( stopped )
+                {
+                    // the interruption was meant for the task, not for the thread of the executor
+                    Thread.interrupted();
+                }
+            }
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Starts the task.
+     *
+     * @param executor the executor running the task, or null to run it on its own thread
+     */
+    void start( final ExecutorService executor )
+    {
+        submitted = System.nanoTime();
+        if ( executor != null )
+        {
+            try
+            {
+                executor.execute( this );
+                return;
+            }
+            catch ( final RejectedExecutionException e )
+            {
+                // run on its own thread
+            }
+        }
+        startThread();
+    }
+
+    /**
+     * Runs the task on its own thread if no thread of the executor has picked it up for {@link #START_NANOS}, the
+     * executor being busy, or possibly running the thread waiting for the task.
+     */
+    void startIfStalled()
+    {
+        if ( !started.get() && System.nanoTime() - submitted > START_NANOS )
+        {
+            startThread();
+        }
+    }
+
+    private void startThread()
+    {
+        final Thread thread = new Thread( this, name );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /**
+     * Stops the task, interrupting it if it is running, and waits for it to finish, at most {@link #STOP_MILLIS}.
+     *
+     * @return true if the task is finished, or will never run
+     */
+    boolean stop()
+    {
+        synchronized ( this )
+        {
+            stopped = true;
+            if ( runner != null )
+            {
+                runner.interrupt();
+            }
+        }
+        if ( started.compareAndSet( false, true ) )
+        {
+            finished.countDown();
+            return true;
+        }
+        return join();
+    }
+
+}
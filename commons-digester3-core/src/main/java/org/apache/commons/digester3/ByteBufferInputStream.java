@@ -0,0 +1,109 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@code InputStream} reading the remaining bytes of a {@link ByteBuffer}, without changing the position of the
+ * buffer. The buffers backed by an accessible array are better read by a {@code ByteArrayInputStream} over that array.
+ *
+ * @since 3.3
+ */
+final class ByteBufferInputStream
+    extends InputStream
+{
+
+    /** A view of the buffer, sharing its content but not its position. */
+    private final ByteBuffer buffer;
+
+    private int mark;
+
+    /**
+     * Creates a new stream reading the remaining bytes of the given buffer.
+     *
+     * @param buffer the buffer to read
+     */
+    ByteBufferInputStream( final ByteBuffer buffer )
+    {
+        this.buffer = buffer.duplicate();
+        this.mark = this.buffer.position();
+    }
+
+    @Override
+    public int available()
+    {
+        return buffer.remaining();
+    }
+
+    @Override
+    public synchronized void mark( final int readLimit )
+    {
+        mark = buffer.position();
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public int read()
+    {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read( final byte[] bytes, final int offset, final int length )
+    {
+        if ( offset < 0 || length < 0 || length > bytes.length - offset )
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if ( length == 0 )
+        {
+            return 0;
+        }
+        if ( !buffer.hasRemaining() )
+        {
+            return -1;
+        }
+        final int count = Math.min( length, buffer.remaining() );
+        buffer.get( bytes, offset, count );
+        return count;
+    }
+
+    @Override
+    public synchronized void reset()
+    {
+        buffer.position( mark );
+    }
+
+    @Override
+    public long skip( final long count )
+    {
+        final int skipped = (int) Math.max( 0, Math.min( count, buffer.remaining() ) );
+        buffer.position( buffer.position() + skipped );
+        return skipped;
+    }
+
+}
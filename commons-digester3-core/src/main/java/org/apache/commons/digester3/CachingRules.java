@@ -0,0 +1,274 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Collections.synchronizedMap;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.xml.sax.Attributes;
+
+/**
+ * <p>
+ * {@code Rules} <em>Decorator</em> that caches the rules matched by the wrapped implementation, keyed by namespace
+ * URI and pattern.
+ * </p>
+ * <p>
+ * The matching cost is then paid once per distinct pattern for the whole lifetime of the rules, no matter how many
+ * elements or documents are parsed. This is suitable only for wrapped implementations whose matches depend on the
+ * namespace URI and on the pattern alone, and not on the element name, on its attributes or on the parsing state;
+ * that is the case of {@link RulesBase}, {@link RegexRules} (as long as its {@link RegexMatcher} is deterministic)
+ * and {@link ExtendedBaseRules}.
+ * </p>
+ * <p>
+ * The cached lists of rules are not modifiable. The cache is discarded whenever a rule is added through this
+ * decorator or the rules are cleared; {@link #clearCache()} must be invoked if the wrapped implementation is modified
+ * directly.
+ * </p>
+ * <p>
+ * The cache can be safely accessed by concurrent threads. By default it is unbounded; a maximum number of cached
+ * matches can be set, shared by all the namespace URIs, in which case the least recently matched ones are discarded
+ * first.
+ * </p>
+ *
+ * <pre>
+ *   digester.setRules( new CachingRules( new ExtendedBaseRules(), 10000 ) );
+ * </pre>
+ *
+ * @since 3.3
+ */
+public class CachingRules
+    implements Rules
+{
+
+    /**
+     * The key of a cached match, a namespace URI and a pattern.
+     */
+    private static final class MatchKey
+    {
+
+        private final String namespaceURI;
+
+        private final String pattern;
+
+        MatchKey( final String namespaceURI, final String pattern )
+        {
+            this.namespaceURI = namespaceURI;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean equals( final Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof MatchKey ) )
+            {
+                return false;
+            }
+            final MatchKey other = (MatchKey) obj;
+            return pattern.equals( other.pattern )
+                && ( namespaceURI == null ? other.namespaceURI == null : namespaceURI.equals( other.namespaceURI ) );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * pattern.hashCode() + ( namespaceURI == null ? 0 : namespaceURI.hashCode() );
+        }
+
+    }
+
+    /** The Rules implementation that this class wraps. */
+    private final Rules wrappedRules;
+
+    /** The maximum number of cached matches, 0 if unbounded. */
+    private final int maxCachedPatterns;
+
+    /**
+     * The cached matches, replaced as a whole when discarded so that a match computed concurrently cannot be cached
+     * once the cache has been discarded.
+     */
+    private volatile Map<MatchKey, List<Rule>> matchCache;
+
+    /**
+     * Creates a new decorator with an unbounded cache.
+     *
+     * @param wrappedRules the wrapped {@code Rules} implementation, not null
+     */
+    public CachingRules( final Rules wrappedRules )
+    {
+        this( wrappedRules, 0 );
+    }
+
+    /**
+     * Creates a new decorator that caches at most {@code maxCachedPatterns} matches, all namespace URIs included.
+     *
+     * @param wrappedRules the wrapped {@code Rules} implementation, not null
+     * @param maxCachedPatterns the maximum number of cached matches, 0 if unbounded
+     */
+    public CachingRules( final Rules wrappedRules, final int maxCachedPatterns )
+    {
+        if ( wrappedRules == null )
+        {
+            throw new IllegalArgumentException( "Wrapped rules must not be null" );
+        }
+        if ( maxCachedPatterns < 0 )
+        {
+            throw new IllegalArgumentException( "Maximum number of cached patterns must not be negative" );
+        }
+        this.wrappedRules = wrappedRules;
+        this.maxCachedPatterns = maxCachedPatterns;
+        this.matchCache = newMatchCache();
+    }
+
+    @Override
+    public void add( final String pattern, final Rule rule )
+    {
+        wrappedRules.add( pattern, rule );
+        clearCache();
+    }
+
+    @Override
+    public void clear()
+    {
+        wrappedRules.clear();
+        clearCache();
+    }
+
+    /**
+     * Discards all the cached matches.
+     */
+    public void clearCache()
+    {
+        matchCache = newMatchCache();
+    }
+
+    @Override
+    public Digester getDigester()
+    {
+        return wrappedRules.getDigester();
+    }
+
+    /**
+     * Gets the maximum number of cached matches, all namespace URIs included.
+     *
+     * @return the maximum number of cached matches, 0 if unbounded
+     */
+    public int getMaxCachedPatterns()
+    {
+        return maxCachedPatterns;
+    }
+
+    @Override
+    public String getNamespaceURI()
+    {
+        return wrappedRules.getNamespaceURI();
+    }
+
+    /**
+     * Gets the wrapped {@code Rules} implementation.
+     *
+     * @return the wrapped {@code Rules} implementation
+     */
+    public Rules getWrappedRules()
+    {
+        return wrappedRules;
+    }
+
+    @Override
+    public List<Rule> match( final String namespaceURI, final String pattern, final String name, final Attributes attributes )
+    {
+        final Map<MatchKey, List<Rule>> cache = matchCache;
+        final MatchKey key = new MatchKey( namespaceURI, pattern );
+        List<Rule> matches = cache.get( key );
+        if ( matches == null )
+        {
+            final List<Rule> wrappedMatches = wrappedRules.match( namespaceURI, pattern, name, attributes );
+            if ( wrappedMatches == null || wrappedMatches.isEmpty() )
+            {
+                matches = unmodifiableList( new ArrayList<Rule>( 0 ) );
+            }
+            else
+            {
+                matches = unmodifiableList( new ArrayList<>( wrappedMatches ) );
+            }
+            cache.put( key, matches );
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean mayMatchDescendants( final ElementPath path )
+    {
+        return wrappedRules.mayMatchDescendants( path );
+    }
+
+    /**
+     * Creates the cache of the matches, keyed by namespace URI and pattern.
+     *
+     * @return the cache of the matches
+     */
+    private Map<MatchKey, List<Rule>> newMatchCache()
+    {
+        if ( maxCachedPatterns == 0 )
+        {
+            return new ConcurrentHashMap<>();
+        }
+        return synchronizedMap( new LinkedHashMap<MatchKey, List<Rule>>( 16, 0.75f, true )
+        {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<MatchKey, List<Rule>> eldest )
+            {
+                return size() > maxCachedPatterns;
+            }
+
+        } );
+    }
+
+    @Override
+    public List<Rule> rules()
+    {
+        return wrappedRules.rules();
+    }
+
+    @Override
+    public void setDigester( final Digester digester )
+    {
+        wrappedRules.setDigester( digester );
+    }
+
+    @Override
+    public void setNamespaceURI( final String namespaceURI )
+    {
+        wrappedRules.setNamespaceURI( namespaceURI );
+    }
+
+}
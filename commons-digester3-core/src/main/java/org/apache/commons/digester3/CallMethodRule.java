@@ -451,6 +451,19 @@ public class CallMethodRule
         return useExactMatch;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The body text is only needed when it is the single argument of the method; it is always needed by the
+     * subclasses, which may override {@link #body(String, String, String)} to read it.
+     * </p>
+     */
+    @Override
+    public boolean isBodyRequired()
+    {
+        return getClass() != CallMethodRule.class || paramCount == 0;
+    }
+
     /**
      * Subclasses may override this method to perform additional processing of the invoked method's result.
      *
@@ -187,6 +187,29 @@ public class CallParamRule
         }
     }
 
+    @Override
+    public void finish()
+    {
+        if ( bodyTextStack != null )
+        {
+            // left by an interrupted parse
+            bodyTextStack.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The body text is only needed when the parameter is taken neither from an attribute nor from the stack; it is
+     * always needed by the subclasses, which may override {@link #body(String, String, String)} to read it.
+     * </p>
+     */
+    @Override
+    public boolean isBodyRequired()
+    {
+        return getClass() != CallParamRule.class || attributeName == null && !fromStack;
+    }
+
     /**
      * Sets the attribute from which to save the parameter value.
      *
@@ -0,0 +1,209 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * An {@code InputStream} reading a file through its {@link FileChannel}, from the position of the channel to the end
+ * of the file, without changing the position of the channel.
+ * <p>
+ * The large files are read through memory mapped regions, mapped one after the other as the stream is read, so that
+ * their content is copied once, from the page cache to the buffer of the parser, and that reading them takes no system
+ * call apart from the mappings; the read-ahead of the sequentially read pages is left to the operating system. The
+ * small files, and the channels which cannot be mapped, are read through a direct buffer, which the channel fills
+ * without the intermediate buffer of the {@code FileInputStream} reads.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class ChannelInputStream
+    extends InputStream
+{
+
+    /** The size, in bytes, of the regions of the file mapped at once. */
+    static final int REGION_SIZE = 64 * 1024 * 1024;
+
+    /** The size, in bytes, from which the file is mapped rather than read. */
+    static final long MAPPING_THRESHOLD = 1024 * 1024;
+
+    /** The size, in bytes, of the direct buffer the small files are read through. */
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate( 0 );
+
+    private final FileChannel channel;
+
+    private final boolean closeChannel;
+
+    /** The end of the content read, the size of the file when the stream was created. */
+    private final long end;
+
+    /** The position in the file of the content following the current buffer. */
+    private long position;
+
+    private boolean mapped;
+
+    /** The current mapped region or the direct buffer, holding the content to read next. */
+    private ByteBuffer buffer = EMPTY;
+
+    private ByteBuffer directBuffer;
+
+    /**
+     * Creates a new stream reading the given channel.
+     *
+     * @param channel the channel to read, from its current position
+     * @param closeChannel true if the channel is closed with the stream
+     * @throws IOException if the position or the size of the channel cannot be read
+     */
+    ChannelInputStream( final FileChannel channel, final boolean closeChannel )
+        throws IOException
+    {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+        position = channel.position();
+        end = channel.size();
+        mapped = end - position >= MAPPING_THRESHOLD;
+    }
+
+    @Override
+    public int available()
+    {
+        return (int) Math.min( Integer.MAX_VALUE, buffer.remaining() + Math.max( 0, end - position ) );
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        // the mapped region is unmapped once it is no longer referenced
+        buffer = EMPTY;
+        directBuffer = null;
+        position = end;
+        if ( closeChannel )
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     * Makes the content to read next available in the buffer.
+     *
+     * @return false at the end of the content
+     */
+    private boolean fill()
+        throws IOException
+    {
+        while ( !buffer.hasRemaining() )
+        {
+            if ( position >= end )
+            {
+                return false;
+            }
+
+            final long length = end - position;
+            if ( mapped )
+            {
+                try
+                {
+                    buffer = channel.map( MapMode.READ_ONLY, position, Math.min( REGION_SIZE, length ) );
+                    position += buffer.remaining();
+                    continue;
+                }
+                catch ( final UnsupportedOperationException e )
+                {
+                    // a channel of a file system which cannot map its files
+                    mapped = false;
+                }
+            }
+
+            if ( directBuffer == null )
+            {
+                directBuffer = ByteBuffer.allocateDirect( BUFFER_SIZE );
+            }
+            directBuffer.clear();
+            if ( length < BUFFER_SIZE )
+            {
+                directBuffer.limit( (int) length );
+            }
+            final int read = channel.read( directBuffer, position );
+            if ( read < 0 )
+            {
+                // the file has been truncated
+                return false;
+            }
+            position += read;
+            directBuffer.flip();
+            buffer = directBuffer;
+        }
+        return true;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        return fill() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read( final byte[] bytes, final int offset, final int length )
+        throws IOException
+    {
+        if ( offset < 0 || length < 0 || length > bytes.length - offset )
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if ( length == 0 )
+        {
+            return 0;
+        }
+        if ( !fill() )
+        {
+            return -1;
+        }
+        final int count = Math.min( length, buffer.remaining() );
+        buffer.get( bytes, offset, count );
+        return count;
+    }
+
+    @Override
+    public long skip( final long count )
+    {
+        if ( count <= 0 )
+        {
+            return 0;
+        }
+        if ( count <= buffer.remaining() )
+        {
+            buffer.position( buffer.position() + (int) count );
+            return count;
+        }
+        final long skipped = buffer.remaining() + Math.min( count - buffer.remaining(), Math.max( 0, end - position ) );
+        position += skipped - buffer.remaining();
+        buffer = EMPTY;
+        return skipped;
+    }
+
+}
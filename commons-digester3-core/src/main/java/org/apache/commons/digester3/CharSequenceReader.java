@@ -0,0 +1,169 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * A {@code Reader} reading the characters of a {@link CharSequence}, copied in bulk from the {@code String},
+ * {@code StringBuilder}, {@code StringBuffer} and {@code CharBuffer} sequences rather than one by one. The sequence is
+ * expected not to change while it is read.
+ *
+ * @since 3.3
+ */
+final class CharSequenceReader
+    extends Reader
+{
+
+    private CharSequence sequence;
+
+    private final int length;
+
+    private int position;
+
+    private int mark;
+
+    /**
+     * Creates a new reader of the given sequence.
+     *
+     * @param sequence the sequence to read
+     */
+    CharSequenceReader( final CharSequence sequence )
+    {
+        this.sequence = sequence;
+        this.length = sequence.length();
+    }
+
+    @Override
+    public void close()
+    {
+        sequence = null;
+    }
+
+    private void ensureOpen()
+        throws IOException
+    {
+        if ( sequence == null )
+        {
+            throw new IOException( "Stream closed" );
+        }
+    }
+
+    @Override
+    public void mark( final int readAheadLimit )
+        throws IOException
+    {
+        ensureOpen();
+        mark = position;
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+        return true;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        ensureOpen();
+        return position < length ? sequence.charAt( position++ ) : -1;
+    }
+
+    @Override
+    public int read( final char[] chars, final int offset, final int count )
+        throws IOException
+    {
+        ensureOpen();
+        if ( offset < 0 || count < 0 || count > chars.length - offset )
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if ( count == 0 )
+        {
+            return 0;
+        }
+        if ( position >= length )
+        {
+            return -1;
+        }
+
+        final int read = Math.min( count, length - position );
+        final int end = position + read;
+        if ( sequence instanceof String )
+        {
+            ( (String) sequence ).getChars( position, end, chars, offset );
+        }
+        else if ( sequence instanceof StringBuilder )
+        {
+            ( (StringBuilder) sequence ).getChars( position, end, chars, offset );
+        }
+        else if ( sequence instanceof StringBuffer )
+        {
+            ( (StringBuffer) sequence ).getChars( position, end, chars, offset );
+        }
+        else if ( sequence instanceof CharBuffer )
+        {
+            // relative to the position of the buffer, which is left unchanged
+            final CharBuffer buffer = ( (CharBuffer) sequence ).duplicate();
+            buffer.position( buffer.position() + position );
+            buffer.get( chars, offset, read );
+        }
+        else
+        {
+            for ( int i = 0; i < read; i++ )
+            {
+                chars[offset + i] = sequence.charAt( position + i );
+            }
+        }
+        position = end;
+        return read;
+    }
+
+    @Override
+    public boolean ready()
+        throws IOException
+    {
+        ensureOpen();
+        return true;
+    }
+
+    @Override
+    public void reset()
+        throws IOException
+    {
+        ensureOpen();
+        position = mark;
+    }
+
+    @Override
+    public long skip( final long count )
+        throws IOException
+    {
+        ensureOpen();
+        final int skipped = (int) Math.max( 0, Math.min( count, length - position ) );
+        position += skipped;
+        return skipped;
+    }
+
+}
@@ -0,0 +1,346 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An {@code InputStream} decompressing a gzip or zlib compressed stream on a decompressor thread, so that the
+ * decompression overlaps with the parse of the decompressed content.
+ * <p>
+ * The decompressor thread fills large chunks with the decompressed bytes and hands them over through a bounded queue,
+ * the consumed chunks being handed back to it for reuse, and waits when the queue is full. The failure of the
+ * decompression is rethrown by the reads once the chunks preceding it have been read. The decompressor is a
+ * {@link BackgroundTask}, run by the executor of the Digester if it has one. Closing the stream closes the compressed
+ * stream, so that the decompressor is not blocked in a read, then interrupts the decompressor and waits for it for a
+ * bounded time only.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class DecompressingInputStream
+    extends InputStream
+{
+
+    /** The size, in bytes, of the chunks of decompressed content. */
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    /** The number of chunks handed over at once, bounding the decompressed content kept ahead of the parse. */
+    static final int CHUNK_COUNT = 4;
+
+    private static final int GZIP_MAGIC = 0x1F8B;
+
+    private static final long OFFER_MILLIS = 10L;
+
+    /** A chunk of decompressed content. */
+    private static final class Chunk
+    {
+
+        final byte[] bytes;
+
+        int length;
+
+        Chunk( final byte[] bytes )
+        {
+            this.bytes = bytes;
+        }
+
+    }
+
+    /** The chunk following the last one. */
+    private static final Chunk END = new Chunk( new byte[0] );
+
+    private final InputStream decompressed;
+
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>( CHUNK_COUNT + 1 );
+
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>( CHUNK_COUNT );
+
+    private final BackgroundTask decompressor;
+
+    private volatile boolean closed;
+
+    private volatile Throwable failure;
+
+    /** The chunk being read. */
+    private Chunk chunk;
+
+    private int position;
+
+    private DecompressingInputStream( final InputStream decompressed, final ExecutorService executor )
+    {
+        this.decompressed = decompressed;
+        for ( int i = 0; i < CHUNK_COUNT; i++ )
+        {
+            free.add( new Chunk( new byte[CHUNK_SIZE] ) );
+        }
+        decompressor = new BackgroundTask( "Digester decompressor", this::decompress );
+        decompressor.start( executor );
+    }
+
+    /**
+     * Opens the given stream, decompressing it on a decompressor thread if it starts with the magic bytes of the gzip
+     * or of the zlib format.
+     *
+     * @param input the stream to read, compressed or not
+     * @param executor the executor running the decompressor, or null to run it on its own thread
+     * @return the stream of the decompressed content, or a stream of the given one if it is not compressed
+     * @throws IOException if the stream cannot be read
+     */
+    static InputStream open( final InputStream input, final ExecutorService executor )
+        throws IOException
+    {
+        final PushbackInputStream pushback = new PushbackInputStream( input, 2 );
+        final int first = pushback.read();
+        final int second = first < 0 ? -1 : pushback.read();
+        if ( second >= 0 )
+        {
+            pushback.unread( second );
+        }
+        if ( first >= 0 )
+        {
+            pushback.unread( first );
+        }
+        if ( second < 0 )
+        {
+            return pushback;
+        }
+
+        final int header = first << 8 | second;
+        if ( header == GZIP_MAGIC )
+        {
+            return new DecompressingInputStream( new GZIPInputStream( pushback, CHUNK_SIZE ), executor );
+        }
+        // a zlib header declares the deflate method, and is a multiple of 31
+        if ( ( first & 0x0F ) == 8 && ( first >> 4 ) <= 7 && header % 31 == 0 )
+        {
+            return new DecompressingInputStream( new InflaterInputStream( pushback, new Inflater(), CHUNK_SIZE )
+            {
+
+                @Override
+                public void close()
+                    throws IOException
+                {
+                    try
+                    {
+                        super.close();
+                    }
+                    finally
+                    {
+                        // the inflater given to the constructor is not ended by the stream
+                        inf.end();
+                    }
+                }
+
+            }, executor );
+        }
+        return pushback;
+    }
+
+    @Override
+    public int available()
+    {
+        return chunk != null && chunk != END ? chunk.length - position : 0;
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        chunk = END;
+
+        try
+        {
+            // a read blocked on the compressed stream fails once it is closed
+            decompressed.close();
+        }
+        finally
+        {
+            decompressor.stop();
+        }
+    }
+
+    /**
+     * Decompresses the content into the free chunks, on the decompressor thread.
+     */
+    private void decompress()
+    {
+        Chunk next = null;
+        try
+        {
+            while ( !closed )
+            {
+                next = free.poll( OFFER_MILLIS, TimeUnit.MILLISECONDS );
+                if ( next == null )
+                {
+                    continue;
+                }
+                next.length = 0;
+                int read = 0;
+                while ( next.length < CHUNK_SIZE
+                    && ( read = decompressed.read( next.bytes, next.length, CHUNK_SIZE - next.length ) ) >= 0 )
+                {
+                    next.length += read;
+                }
+                final Chunk full = next;
+                next = null;
+                if ( full.length > 0 )
+                {
+                    handOver( full );
+                }
+                if ( read < 0 )
+                {
+                    break;
+                }
+            }
+        }
+        catch ( final IOException | RuntimeException | Error e )
+        {
+            failure = e;
+        }
+        catch ( final InterruptedException e )
+        {
+            failure = new InterruptedIOException( "Decompression interrupted" );
+        }
+        finally
+        {
+            try
+            {
+                // the content decompressed before a failure is read before it is rethrown
+                if ( next != null && next.length > 0 )
+                {
+                    handOver( next );
+                }
+                handOver( END );
+            }
+            catch ( final InterruptedException e )
+            {
+                // the reader is closing the stream
+            }
+        }
+    }
+
+    /**
+     * Hands the given chunk over to the reading thread, unless the stream is closed meanwhile.
+     */
+    private void handOver( final Chunk next )
+        throws InterruptedException
+    {
+        while ( !closed && !filled.offer( next, OFFER_MILLIS, TimeUnit.MILLISECONDS ) )
+        {
+            // the parse is late, wait for it
+        }
+    }
+
+    /**
+     * Makes the next chunk available, once the current one has been read.
+     *
+     * @return false at the end of the content
+     */
+    private boolean next()
+        throws IOException
+    {
+        if ( chunk != null && position < chunk.length )
+        {
+            return true;
+        }
+        if ( chunk == END )
+        {
+            return false;
+        }
+        if ( chunk != null )
+        {
+            free.add( chunk );
+        }
+
+        try
+        {
+            while ( ( chunk = filled.poll( OFFER_MILLIS, TimeUnit.MILLISECONDS ) ) == null )
+            {
+                decompressor.startIfStalled();
+            }
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for the decompressed content" );
+        }
+        position = 0;
+        if ( chunk == END )
+        {
+            final Throwable cause = failure;
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            if ( cause != null )
+            {
+                throw new IOException( "Decompression failed", cause );
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        return next() ? chunk.bytes[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read( final byte[] bytes, final int offset, final int length )
+        throws IOException
+    {
+        if ( offset < 0 || length < 0 || length > bytes.length - offset )
+        {
+            throw new IndexOutOfBoundsException();
+        }
+        if ( length == 0 )
+        {
+            return 0;
+        }
+        if ( !next() )
+        {
+            return -1;
+        }
+        final int count = Math.min( length, chunk.length - position );
+        System.arraycopy( chunk.bytes, position, bytes, offset, count );
+        position += count;
+        return count;
+    }
+
+}
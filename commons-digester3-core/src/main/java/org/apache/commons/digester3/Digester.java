@@ -20,7 +20,11 @@ package org.apache.commons.digester3;
  */
 
 import static java.lang.String.format;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
+import static java.util.Spliterators.spliteratorUnknownSize;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -30,20 +34,32 @@ import java.lang.reflect.InvocationTargetException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EmptyStackException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
 import java.util.Stack;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.validation.Schema;
 
 import org.apache.commons.logging.Log;
@@ -101,6 +117,11 @@ public class Digester
      */
     protected static final String W3C_XML_SCHEMA = "http://www.w3.org/2001/XMLSchema";
 
+    /**
+     * The default maximum capacity of the body text buffers kept for reuse.
+     */
+    private static final int DEFAULT_MAX_RETAINED_BODY_TEXT_CAPACITY = 8 * 1024;
+
     /**
      * The body text of the current element.
      */
@@ -109,7 +130,24 @@ public class Digester
     /**
      * The stack of body text string buffers for surrounding elements.
      */
-    private final Stack<StringBuilder> bodyTexts = new Stack<>();
+    private final ArrayStack<StringBuilder> bodyTexts = new ArrayStack<>();
+
+    /**
+     * The body text buffers reused across the elements, indexed by nesting level: the buffer of a level is only used by
+     * one element at a time.
+     */
+    private StringBuilder[] bodyTextPool = new StringBuilder[16];
+
+    /**
+     * The maximum capacity of the body text buffers kept for reuse, larger buffers are released.
+     */
+    private int maxRetainedBodyTextCapacity = DEFAULT_MAX_RETAINED_BODY_TEXT_CAPACITY;
+
+    /**
+     * The capacity, in events, of the ring buffer between the tokenizer and the rules of a pipelined parse, 0 when
+     * the parse is not pipelined.
+     */
+    private int pipelineCapacity;
 
     /**
      * Stack whose elements are List objects, each containing a list of Rule objects as returned from Rules.getMatch().
@@ -143,16 +181,31 @@ public class Digester
      */
     private final HashMap<String, URL> entityValidator = new HashMap<>();
 
+    /**
+     * The cache of the content of the registered entities, if any.
+     */
+    private EntityCache entityCache;
+
+    /**
+     * The cache of the grammars validating the parsed documents, if any.
+     */
+    private GrammarCache grammarCache;
+
     /**
      * The application-supplied error handler that is notified when parsing warnings, errors, or fatal errors occur.
      */
     private ErrorHandler errorHandler;
 
     /**
-     * The SAXParserFactory that is created the first time we need it.
+     * The SAXParserFactory that is created the first time we need it, unless one has been set.
      */
     private SAXParserFactory factory;
 
+    /**
+     * The XMLInputFactory that is created the first time we need it.
+     */
+    private XMLInputFactory xmlInputFactory;
+
     /**
      * The Locator associated with our parser.
      */
@@ -161,7 +214,17 @@ public class Digester
     /**
      * The current match pattern for nested element processing.
      */
-    private String match = "";
+    private final ElementPath match = new ElementPath();
+
+    /**
+     * Whether no rule can match the elements nested inside the current element, so that they are skipped.
+     */
+    private boolean skipNestedElements;
+
+    /**
+     * The nesting level inside the elements being skipped, 0 if no element is being skipped.
+     */
+    private int skippedDepth;
 
     /**
      * Do we want a "namespace aware" parser.
@@ -180,7 +243,7 @@ public class Digester
      * the most current one. (This architecture is required because documents can declare nested uses of the same prefix
      * for different Namespace URIs).
      */
-    private final HashMap<String, Stack<String>> namespaces = new HashMap<>();
+    private final HashMap<String, ArrayStack<String>> namespaces = new HashMap<>();
 
     /**
      * Do we want a "XInclude aware" parser.
@@ -192,13 +255,24 @@ public class Digester
      *
      * @since 2.0
      */
-    private final Stack<Object[]> params = new Stack<>();
+    private final ArrayStack<Object[]> params = new ArrayStack<>();
 
     /**
      * The SAXParser we will use to parse the input stream.
      */
     private SAXParser parser;
 
+    /**
+     * Whether the parser of this Digester has been given to it, or configured through it, so that the forks of this
+     * Digester could not create a parser configured the same way.
+     */
+    private boolean parserProvided;
+
+    /**
+     * The pool lending the parser of each parse, when this Digester has no parser of its own.
+     */
+    private SAXParserPool parserPool;
+
     /**
      * The public identifier of the DTD we are currently parsing under (if any).
      */
@@ -230,7 +304,7 @@ public class Digester
     /**
      * The object stack being constructed.
      */
-    private final Stack<Object> stack = new Stack<>();
+    private final ArrayStack<Object> stack = new ArrayStack<>();
 
     /**
      * Do we want to use the Context ClassLoader when loading classes for instantiating new objects. Default is
@@ -260,7 +334,27 @@ public class Digester
     private Substitutor substitutor;
 
     /** Stacks used for interrule communication, indexed by name String */
-    private final HashMap<String, Stack<Object>> stacksByName = new HashMap<>();
+    private final HashMap<String, ArrayStack<Object>> stacksByName = new HashMap<>();
+
+    /**
+     * The lock serializing the async parses of this Digester, when it cannot be forked.
+     */
+    private final Object asyncParseLock = new Object();
+
+    /**
+     * The rule sets added to this Digester, replayed by its forks.
+     */
+    private final List<RuleSet> ruleSets = new ArrayList<>();
+
+    /**
+     * The number of rules added by the rule sets, which tells whether all the rules can be replayed.
+     */
+    private int ruleSetRuleCount;
+
+    /**
+     * The nesting level of the rule sets being added.
+     */
+    private int ruleSetDepth;
 
     /**
      * If not null, then calls by the parser to this object's characters, startElement, endElement and
@@ -302,6 +396,7 @@ public class Digester
     public Digester( final SAXParser parser )
     {
         this.parser = parser;
+        this.parserProvided = true;
     }
 
     /**
@@ -314,6 +409,33 @@ public class Digester
     public Digester( final XMLReader reader )
     {
         this.reader = reader;
+        this.parserProvided = true;
+    }
+
+    /**
+     * Returns the empty body text buffer of the given nesting level, reusing the one of the previous element at the
+     * same level if any.
+     *
+     * @param level the nesting level, 0 for the root element
+     * @return the empty body text buffer of the given nesting level
+     */
+    private StringBuilder acquireBodyText( final int level )
+    {
+        if ( level >= bodyTextPool.length )
+        {
+            bodyTextPool = copyOf( bodyTextPool, Math.max( level + 1, bodyTextPool.length * 2 ) );
+        }
+        StringBuilder buffer = bodyTextPool[level];
+        if ( buffer == null )
+        {
+            buffer = new StringBuilder();
+            bodyTextPool[level] = buffer;
+        }
+        else
+        {
+            buffer.setLength( 0 );
+        }
+        return buffer;
     }
 
     /**
@@ -695,6 +817,10 @@ public class Digester
     {
         rule.setDigester( this );
         getRules().add( pattern, rule );
+        if ( ruleSetDepth > 0 )
+        {
+            ruleSetRuleCount++;
+        }
     }
 
     /**
@@ -718,7 +844,18 @@ public class Digester
             }
         }
         setRuleNamespaceURI( newNamespaceURI );
-        ruleSet.addRuleInstances( this );
+        if ( ruleSetDepth++ == 0 )
+        {
+            ruleSets.add( ruleSet );
+        }
+        try
+        {
+            ruleSet.addRuleInstances( this );
+        }
+        finally
+        {
+            ruleSetDepth--;
+        }
         setRuleNamespaceURI( oldNamespaceURI );
     }
 
@@ -891,25 +1028,52 @@ public class Digester
     }
 
     /**
-     * Execute the parse in async mode.
+     * Execute the parse in async mode, on a {@link #fork() fork} of this Digester when it can be forked, so that
+     * concurrent async parses do not share the parse state. Otherwise the parse is executed by this Digester itself,
+     * one async parse at a time, and must not be concurrent with the other parses of this Digester.
      *
      * @param <T> The type used to auto-cast the returned object to the assigned variable type
-     * @param callable
+     * @param parse creates the parse to execute with the given Digester
      * @return a Future that can be used to track when the parse has been fully processed.
      * @since 3.1
      */
-    private <T> Future<T> asyncParse( final Callable<T> callable )
+    private <T> Future<T> asyncParse( final Function<Digester, Callable<T>> parse )
     {
         if ( executorService == null )
         {
             throw new IllegalStateException( "ExecutorService not set" );
         }
 
-        return executorService.submit( callable );
+        final Digester fork;
+        try
+        {
+            fork = fork();
+        }
+        catch ( final IllegalStateException e )
+        {
+            if ( log.isDebugEnabled() )
+            {
+                log.debug( "asyncParse() serialized on this Digester, which cannot be forked: " + e.getMessage() );
+            }
+            final Callable<T> ownParse = parse.apply( this );
+            return executorService.submit( () -> {
+                // the async parses of this Digester share its stacks
+                synchronized ( asyncParseLock )
+                {
+                    return ownParse.call();
+                }
+            } );
+        }
+        return executorService.submit( parse.apply( fork ) );
     }
 
     /**
      * Creates a Callable instance that parse the content of the specified reader using this Digester.
+     * <p>
+     * The parse is executed by a {@link #fork() fork} of this Digester, so the root of this Digester is not changed by
+     * the parse, whose root is the result of the returned Future. A Digester which cannot be forked executes its async
+     * parses itself, one at a time, which then must not be concurrent with its other parses.
+     * </p>
      *
      * @param <T> The result type returned by the returned Future's {@code get} method
      * @param file File containing the XML data to be parsed
@@ -919,11 +1083,16 @@ public class Digester
      */
     public <T> Future<T> asyncParse( final File file )
     {
-        return asyncParse( () -> parse( file ) );
+        return asyncParse( digester -> () -> digester.parse( file ) );
     }
 
     /**
      * Creates a Callable instance that parse the content of the specified reader using this Digester.
+     * <p>
+     * The parse is executed by a {@link #fork() fork} of this Digester, so the root of this Digester is not changed by
+     * the parse, whose root is the result of the returned Future. A Digester which cannot be forked executes its async
+     * parses itself, one at a time, which then must not be concurrent with its other parses.
+     * </p>
      *
      * @param <T> The result type returned by the returned Future's {@code get} method
      * @param input Input source containing the XML data to be parsed
@@ -933,11 +1102,16 @@ public class Digester
      */
     public <T> Future<T> asyncParse( final InputSource input )
     {
-        return asyncParse( () -> parse( input ) );
+        return asyncParse( digester -> () -> digester.parse( input ) );
     }
 
     /**
      * Creates a Callable instance that parse the content of the specified reader using this Digester.
+     * <p>
+     * The parse is executed by a {@link #fork() fork} of this Digester, so the root of this Digester is not changed by
+     * the parse, whose root is the result of the returned Future. A Digester which cannot be forked executes its async
+     * parses itself, one at a time, which then must not be concurrent with its other parses.
+     * </p>
      *
      * @param <T> The result type returned by the returned Future's {@code get} method
      * @param input Input stream containing the XML data to be parsed
@@ -947,11 +1121,35 @@ public class Digester
      */
     public <T> Future<T> asyncParse( final InputStream input )
     {
-        return asyncParse( () -> parse( input ) );
+        return asyncParse( digester -> () -> digester.parse( input ) );
+    }
+
+    /**
+     * Creates a Callable instance that parse the content of the specified file using this Digester.
+     * <p>
+     * The parse is executed by a {@link #fork() fork} of this Digester, so the root of this Digester is not changed by
+     * the parse, whose root is the result of the returned Future. A Digester which cannot be forked executes its async
+     * parses itself, one at a time, which then must not be concurrent with its other parses.
+     * </p>
+     *
+     * @param <T> The result type returned by the returned Future's {@code get} method
+     * @param path Path of the file containing the XML data to be parsed
+     * @return a Future that can be used to track when the parse has been fully processed.
+     * @see Digester#parse(Path)
+     * @since 3.3
+     */
+    public <T> Future<T> asyncParse( final Path path )
+    {
+        return asyncParse( digester -> () -> digester.parse( path ) );
     }
 
     /**
      * Creates a Callable instance that parse the content of the specified reader using this Digester.
+     * <p>
+     * The parse is executed by a {@link #fork() fork} of this Digester, so the root of this Digester is not changed by
+     * the parse, whose root is the result of the returned Future. A Digester which cannot be forked executes its async
+     * parses itself, one at a time, which then must not be concurrent with its other parses.
+     * </p>
      *
      * @param <T> The result type returned by the returned Future's {@code get} method
      * @param reader Reader containing the XML data to be parsed
@@ -961,11 +1159,16 @@ public class Digester
      */
     public <T> Future<T> asyncParse( final Reader reader )
     {
-        return asyncParse( () -> parse( reader ) );
+        return asyncParse( digester -> () -> digester.parse( reader ) );
     }
 
     /**
      * Creates a Callable instance that parse the content of the specified reader using this Digester.
+     * <p>
+     * The parse is executed by a {@link #fork() fork} of this Digester, so the root of this Digester is not changed by
+     * the parse, whose root is the result of the returned Future. A Digester which cannot be forked executes its async
+     * parses itself, one at a time, which then must not be concurrent with its other parses.
+     * </p>
      *
      * @param <T> The result type returned by the returned Future's {@code get} method
      * @param uri URI containing the XML data to be parsed
@@ -975,11 +1178,16 @@ public class Digester
      */
     public <T> Future<T> asyncParse( final String uri )
     {
-        return asyncParse( () -> parse( uri ) );
+        return asyncParse( digester -> () -> digester.parse( uri ) );
     }
 
     /**
      * Creates a Callable instance that parse the content of the specified reader using this Digester.
+     * <p>
+     * The parse is executed by a {@link #fork() fork} of this Digester, so the root of this Digester is not changed by
+     * the parse, whose root is the result of the returned Future. A Digester which cannot be forked executes its async
+     * parses itself, one at a time, which then must not be concurrent with its other parses.
+     * </p>
      *
      * @param <T> The result type returned by the returned Future's {@code get} method
      * @param url URL containing the XML data to be parsed
@@ -989,7 +1197,7 @@ public class Digester
      */
     public <T> Future<T> asyncParse( final URL url )
     {
-        return asyncParse( () -> parse( url ) );
+        return asyncParse( digester -> () -> digester.parse( url ) );
     }
 
     @Override
@@ -1008,7 +1216,10 @@ public class Digester
             saxLog.debug( "characters(" + new String( buffer, start, length ) + ")" );
         }
 
-        bodyText.append( buffer, start, length );
+        if ( bodyText != null && skippedDepth == 0 )
+        {
+            bodyText.append( buffer, start, length );
+        }
     }
 
     /**
@@ -1055,11 +1266,16 @@ public class Digester
      * Note that this method is called automatically after a document has been successfully parsed by a Digester
      * instance. However it is not invoked automatically when a parse fails, so when reusing a Digester instance (which
      * is not recommended) this method <em>must</em> be called manually after a parse failure.
+     *
+     * @see #reset()
      */
     public void clear()
     {
-        match = "";
+        match.clear();
+        skipNestedElements = false;
+        skippedDepth = 0;
         bodyTexts.clear();
+        fill( bodyTextPool, null );
         params.clear();
         publicId = null;
         stack.clear();
@@ -1219,6 +1435,45 @@ public class Digester
         return new SAXException( message );
     }
 
+    /**
+     * Creates a StAX stream reader over the content of the given input source.
+     */
+    private XMLStreamReader createXMLStreamReader( final InputSource input )
+        throws IOException, SAXException
+    {
+        final XMLInputFactory inputFactory = getXMLInputFactory();
+        final String systemId = input.getSystemId();
+        // the factory is shared with the forks of this Digester
+        synchronized ( inputFactory )
+        {
+            try
+            {
+                if ( input.getCharacterStream() != null )
+                {
+                    return inputFactory.createXMLStreamReader( systemId, input.getCharacterStream() );
+                }
+                if ( input.getByteStream() != null )
+                {
+                    if ( input.getEncoding() != null )
+                    {
+                        return inputFactory.createXMLStreamReader( input.getByteStream(), input.getEncoding() );
+                    }
+                    return inputFactory.createXMLStreamReader( systemId, input.getByteStream() );
+                }
+                if ( systemId != null )
+                {
+                    return inputFactory.createXMLStreamReader( systemId,
+                                                               createInputSourceFromURL( systemId ).getByteStream() );
+                }
+            }
+            catch ( final XMLStreamException e )
+            {
+                throw createSAXException( e );
+            }
+        }
+        throw new IllegalArgumentException( "InputSource to stream has no content" );
+    }
+
     @Override
     public void endDocument()
         throws SAXException
@@ -1236,7 +1491,7 @@ public class Digester
         }
 
         // Fire "finish" events for all defined rules
-        for ( final Rule rule : getRules().rules() )
+        for ( final Rule rule : getCreatedRules() )
         {
             try
             {
@@ -1269,6 +1524,12 @@ public class Digester
             return;
         }
 
+        if ( skippedDepth > 0 )
+        {
+            skippedDepth--;
+            return;
+        }
+
         final boolean debug = log.isDebugEnabled();
 
         if ( debug )
@@ -1289,9 +1550,9 @@ public class Digester
             name = qName;
         }
 
-        // Fire "body" events for all relevant rules
+        // Fire "body" events for all relevant rules, if any of them needs the body text
         final List<Rule> rules = matches.pop();
-        if ( rules != null && !rules.isEmpty() )
+        if ( this.bodyText != null && rules != null && !rules.isEmpty() )
         {
             String bodyText = this.bodyText.toString();
             final Substitutor substitutor = getSubstitutor();
@@ -1321,16 +1582,22 @@ public class Digester
                 }
             }
         }
-        else if ( debug )
+        else if ( debug && ( rules == null || rules.isEmpty() ) )
         {
             log.debug( "  No rules found matching '" + match + "'." );
         }
 
+        // Keep the body text buffer for the next element at the same level, unless it grew too much
+        if ( this.bodyText != null && this.bodyText.capacity() > maxRetainedBodyTextCapacity )
+        {
+            bodyTextPool[match.getDepth() - 1] = null;
+        }
+
         // Recover the body text from the surrounding element
         bodyText = bodyTexts.pop();
         if ( debug )
         {
-            log.debug( "  Popping body text '" + bodyText.toString() + "'" );
+            log.debug( "  Popping body text '" + bodyText + "'" );
         }
 
         // Fire "end" events for all relevant rules in reverse order
@@ -1362,15 +1629,8 @@ public class Digester
         }
 
         // Recover the previous match expression
-        final int slash = match.lastIndexOf( '/' );
-        if ( slash >= 0 )
-        {
-            match = match.substring( 0, slash );
-        }
-        else
-        {
-            match = "";
-        }
+        match.pop();
+        skipNestedElements = false;
     }
 
     @Override
@@ -1383,7 +1643,7 @@ public class Digester
         }
 
         // Deregister this prefix mapping
-        final Stack<String> stack = namespaces.get( prefix );
+        final ArrayStack<String> stack = namespaces.get( prefix );
         if ( stack == null )
         {
             return;
@@ -1391,7 +1651,7 @@ public class Digester
         try
         {
             stack.pop();
-            if ( stack.empty() )
+            if ( stack.isEmpty() )
             {
                 namespaces.remove( prefix );
             }
@@ -1427,7 +1687,7 @@ public class Digester
      */
     public String findNamespaceURI( final String prefix )
     {
-        final Stack<String> nsStack = namespaces.get( prefix );
+        final ArrayStack<String> nsStack = namespaces.get( prefix );
         if ( nsStack == null )
         {
             return null;
@@ -1442,6 +1702,125 @@ public class Digester
         }
     }
 
+    /**
+     * Creates a new Digester configured as this one, to parse documents independently of it and of its other forks,
+     * possibly at the same time.
+     * <p>
+     * The fork shares the configuration of this Digester: its parser factories and pool, class loader, entity
+     * resolver, registrations and cache, grammar cache, error handler, executor service, substitutor and stack action;
+     * its rules are new instances, added by replaying the {@link RuleSet}s added to this Digester, or created by the
+     * same {@link RulesTemplate}, the rule instances holding parse state. The stacks of the fork hold the objects
+     * pushed on the stacks of this Digester, and its root is the root of this Digester: those objects are shared by
+     * the concurrent parses of the forks.
+     * </p>
+     * <p>
+     * Only the rule sets which are {@link RuleSet#isReplayable() replayable} can be replayed, the other ones may add
+     * the same rule instances to each Digester, which then would be bound to the fork.
+     * </p>
+     * <p>
+     * The fork creates its parser with the factory, or borrows it from the pool, of this Digester, so a Digester given
+     * its {@code SAXParser} or {@code XMLReader} at construction, or whose parser {@link #setProperty(String, Object)
+     * properties} have been set, cannot be forked. Neither can a subclass of Digester, which may hold state of its own,
+     * nor a Digester sending the parse events to a {@link #setCustomContentHandler(ContentHandler) custom handler}.
+     * </p>
+     *
+     * @return a new Digester configured as this one
+     * @throws IllegalStateException if this Digester cannot be forked, if some rules of this Digester have not been
+     *             added by a replayable {@link RuleSet}, or if its {@link Rules} implementation has no public default
+     *             constructor
+     * @since 3.3
+     */
+    public Digester fork()
+    {
+        if ( getClass() != Digester.class )
+        {
+            throw new IllegalStateException( format( "Digesters of type %s cannot be forked", getClass().getName() ) );
+        }
+        if ( parserProvided )
+        {
+            throw new IllegalStateException( "A Digester with a parser of its own cannot be forked" );
+        }
+        if ( customContentHandler != null )
+        {
+            throw new IllegalStateException( "A Digester with a custom content handler cannot be forked" );
+        }
+        for ( final RuleSet ruleSet : ruleSets )
+        {
+            if ( !ruleSet.isReplayable() )
+            {
+                throw new IllegalStateException( format( "RuleSets of type %s cannot be replayed",
+                                                         ruleSet.getClass().getName() ) );
+            }
+        }
+
+        final Digester fork = new Digester();
+        if ( rules instanceof TemplateRules && ( (TemplateRules) rules ).isTemplate() )
+        {
+            fork.setRules( ( (TemplateRules) rules ).getTemplate().newRules() );
+        }
+        else if ( rules != null )
+        {
+            if ( rules.rules().size() != ruleSetRuleCount )
+            {
+                throw new IllegalStateException( "The rules not added by a RuleSet cannot be forked" );
+            }
+            try
+            {
+                fork.setRules( rules.getClass().getConstructor().newInstance() );
+            }
+            catch ( final ReflectiveOperationException e )
+            {
+                throw new IllegalStateException( format( "Rules of type %s cannot be forked",
+                                                         rules.getClass().getName() ), e );
+            }
+        }
+
+        fork.classLoader = classLoader;
+        fork.useContextClassLoader = useContextClassLoader;
+        fork.entityResolver = entityResolver;
+        fork.entityValidator.putAll( entityValidator );
+        fork.entityCache = entityCache;
+        fork.grammarCache = grammarCache;
+        fork.errorHandler = errorHandler;
+        fork.executorService = executorService;
+        fork.factory = factory;
+        fork.parserPool = parserPool;
+        if ( xmlInputFactory != null && !( xmlInputFactory.getXMLResolver() instanceof StaxEntityResolver ) )
+        {
+            // the default factory resolves the entities through this Digester
+            fork.xmlInputFactory = xmlInputFactory;
+        }
+        fork.namespaceAware = namespaceAware;
+        fork.xincludeAware = xincludeAware;
+        fork.validating = validating;
+        fork.schema = schema;
+        fork.substitutor = substitutor;
+        fork.stackAction = stackAction;
+        fork.log = log;
+        fork.saxLog = saxLog;
+        fork.maxRetainedBodyTextCapacity = maxRetainedBodyTextCapacity;
+        fork.pipelineCapacity = pipelineCapacity;
+
+        for ( final RuleSet ruleSet : ruleSets )
+        {
+            fork.addRuleSet( ruleSet );
+        }
+        if ( rules != null )
+        {
+            fork.setRuleNamespaceURI( rules.getNamespaceURI() );
+        }
+
+        fork.stack.pushAll( stack );
+        for ( final Map.Entry<String, ArrayStack<Object>> namedStack : stacksByName.entrySet() )
+        {
+            final ArrayStack<Object> copy = new ArrayStack<>();
+            copy.pushAll( namedStack.getValue() );
+            fork.stacksByName.put( namedStack.getKey(), copy );
+        }
+        fork.root = root;
+        return fork;
+    }
+
     /**
      * Gets the class loader to be used for instantiating application objects when required. This is determined based
      * upon the following rules:
@@ -1481,6 +1860,22 @@ public class Digester
         return stack.size();
     }
 
+    /**
+     * Gets the rules that have been created, the rules created by a {@link RulesTemplate} being created when first
+     * matched.
+     *
+     * @return the rules that have been created, in registration order
+     */
+    private List<Rule> getCreatedRules()
+    {
+        final Rules currentRules = getRules();
+        if ( currentRules instanceof TemplateRules )
+        {
+            return ( (TemplateRules) currentRules ).getCreatedRules();
+        }
+        return currentRules.rules();
+    }
+
     /**
      * Gets the name of the XML element that is currently being processed.
      *
@@ -1488,13 +1883,7 @@ public class Digester
      */
     public String getCurrentElementName()
     {
-        String elementName = match;
-        final int lastSlash = elementName.lastIndexOf( '/' );
-        if ( lastSlash >= 0 )
-        {
-            elementName = elementName.substring( lastSlash + 1 );
-        }
-        return elementName;
+        return match.getLastName();
     }
 
     /**
@@ -1511,7 +1900,7 @@ public class Digester
             log.warn( "Digester is not namespace aware" );
         }
         final Map<String, String> currentNamespaces = new HashMap<>();
-        for ( final Map.Entry<String, Stack<String>> nsEntry : namespaces.entrySet() )
+        for ( final Map.Entry<String, ArrayStack<String>> nsEntry : namespaces.entrySet() )
         {
             try
             {
@@ -1549,6 +1938,29 @@ public class Digester
         return locator;
     }
 
+    /**
+     * Gets the path of the element currently processed, which is updated in place as the parse progresses: it must
+     * not be retained, {@link #getMatch()} should be used instead to keep it.
+     *
+     * @return the path of the element currently processed
+     * @since 3.3
+     */
+    public ElementPath getElementPath()
+    {
+        return match;
+    }
+
+    /**
+     * Gets the cache of the content of the registered entities, if any.
+     *
+     * @return the cache of the content of the registered entities, {@code null} if they are read at each resolution
+     * @since 3.3
+     */
+    public EntityCache getEntityCache()
+    {
+        return entityCache;
+    }
+
     /**
      * Gets the Entity Resolver used by the SAX parser.
      *
@@ -1613,7 +2025,24 @@ public class Digester
     public boolean getFeature( final String feature )
         throws ParserConfigurationException, SAXNotRecognizedException, SAXNotSupportedException
     {
-        return getFactory().getFeature( feature );
+        final SAXParserFactory parserFactory = getFactory();
+        // the factory may be shared with other Digesters
+        synchronized ( parserFactory )
+        {
+            return parserFactory.getFeature( feature );
+        }
+    }
+
+    /**
+     * Gets the cache of the grammars validating the parsed documents, if any.
+     *
+     * @return the cache of the grammars validating the parsed documents, {@code null} if they are compiled at each
+     *         parse
+     * @since 3.3
+     */
+    public GrammarCache getGrammarCache()
+    {
+        return grammarCache;
     }
 
     /**
@@ -1633,7 +2062,7 @@ public class Digester
      */
     public String getMatch()
     {
-        return match;
+        return match.toString();
     }
 
     /**
@@ -1649,6 +2078,17 @@ public class Digester
         return matches;
     }
 
+    /**
+     * Gets the maximum capacity, in characters, of the body text buffers kept for reuse across elements.
+     *
+     * @return the maximum capacity of the body text buffers kept for reuse
+     * @since 3.3
+     */
+    public int getMaxRetainedBodyTextCapacity()
+    {
+        return maxRetainedBodyTextCapacity;
+    }
+
     /**
      * Gets the "namespace aware" flag for parsers we create.
      *
@@ -1662,7 +2102,9 @@ public class Digester
     /**
      * Gets the SAXParser we will use to parse the input stream.
      *
-     * If there is a problem creating the parser, return {@code null}.
+     * If there is a problem creating the parser, return {@code null}. When this Digester has a
+     * {@link #setParserPool(SAXParserPool) parser pool}, the parser is borrowed from the pool and kept by this
+     * Digester.
      *
      * @return the SAXParser we will use to parse the input stream
      */
@@ -1677,7 +2119,17 @@ public class Digester
         // Create a new parser
         try
         {
-            parser = getFactory().newSAXParser();
+            if ( parserPool != null )
+            {
+                parser = parserPool.borrowParser();
+                return parser;
+            }
+            final SAXParserFactory parserFactory = getFactory();
+            // the factory is shared with the forks of this Digester
+            synchronized ( parserFactory )
+            {
+                parser = parserFactory.newSAXParser();
+            }
         }
         catch ( final Exception e )
         {
@@ -1688,6 +2140,29 @@ public class Digester
         return parser;
     }
 
+    /**
+     * Gets the pool lending the parser of each parse, if any.
+     *
+     * @return the pool lending the parser of each parse, {@code null} if this Digester creates its parser
+     * @since 3.3
+     */
+    public SAXParserPool getParserPool()
+    {
+        return parserPool;
+    }
+
+    /**
+     * Gets the capacity, in events, of the ring buffer between the tokenizer thread and the rule execution of a
+     * pipelined parse.
+     *
+     * @return the capacity of the ring buffer of a pipelined parse, 0 if the parse is not pipelined
+     * @since 3.3
+     */
+    public int getPipelineCapacity()
+    {
+        return pipelineCapacity;
+    }
+
     /**
      * Gets the current value of the specified property for the underlying {@code XMLReader} implementation.
      *
@@ -1846,6 +2321,25 @@ public class Digester
         return this.xincludeAware;
     }
 
+    /**
+     * Gets the StAX input factory used to create the readers of the documents streamed by
+     * {@link #stream(InputSource, String, Class)}. Unless another one has been set, the factory resolves the external
+     * entities as the SAX parse does, through the {@link #setEntityResolver(EntityResolver) entity resolver} of this
+     * Digester if any, or through the {@link #register(String, URL) registered} entities otherwise.
+     *
+     * @return the StAX input factory
+     * @since 3.3
+     */
+    public XMLInputFactory getXMLInputFactory()
+    {
+        if ( xmlInputFactory == null )
+        {
+            xmlInputFactory = XMLInputFactory.newInstance();
+            xmlInputFactory.setXMLResolver( new StaxEntityResolver( this ) );
+        }
+        return xmlInputFactory;
+    }
+
     /**
      * Gets the XMLReader to be used for parsing the input document.
      *
@@ -1883,6 +2377,11 @@ public class Digester
             reader.setErrorHandler( this );
         }
 
+        if ( grammarCache != null )
+        {
+            grammarCache.configure( reader );
+        }
+
         return reader;
     }
 
@@ -1929,16 +2428,37 @@ public class Digester
     }
 
     /**
-     * Checks the Digester instance has been configured.
+     * Tells whether any of the given rules needs the body text of the element they match.
      *
-     * @return true, if the Digester instance has been configured, false otherwise
-     * @since 3.0
+     * @param rules the rules matching an element, may be null
+     * @return true if any of the given rules needs the body text
      */
-    public boolean isConfigured()
+    private static boolean isBodyRequired( final List<Rule> rules )
     {
-        return configured;
-    }
-
+        if ( rules != null )
+        {
+            for ( final Rule rule : rules )
+            {
+                if ( rule.isBodyRequired() )
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks the Digester instance has been configured.
+     *
+     * @return true, if the Digester instance has been configured, false otherwise
+     * @since 3.0
+     */
+    public boolean isConfigured()
+    {
+        return configured;
+    }
+
     /**
      * <p>
      * Is the stack with the given name empty?
@@ -1954,7 +2474,7 @@ public class Digester
     public boolean isEmpty( final String stackName )
     {
         boolean result = true;
-        final Stack<Object> namedStack = stacksByName.get( stackName );
+        final ArrayStack<Object> namedStack = stacksByName.get( stackName );
         if ( namedStack != null )
         {
             result = namedStack.isEmpty();
@@ -1992,6 +2512,96 @@ public class Digester
         return result;
     }
 
+    /**
+     * Parse the content of the specified range of a byte array using this Digester. Returns the root element from the
+     * object stack (if any).
+     * <p>
+     * The bytes are read in place, and their encoding is detected by the parser as for any other stream. The array
+     * must not be modified during the parse.
+     * </p>
+     *
+     * @param <T> The type used to auto-cast the returned object to the assigned variable type
+     * @param bytes Byte array containing the XML data to be parsed
+     * @param offset Index of the first byte of the XML data in the array
+     * @param length Number of bytes of the XML data
+     * @return the root element from the object stack (if any)
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     * @since 3.3
+     */
+    public <T> T parse( final byte[] bytes, final int offset, final int length )
+        throws IOException, SAXException
+    {
+        if ( bytes == null )
+        {
+            throw new IllegalArgumentException( "Byte array to parse is null" );
+        }
+        if ( offset < 0 || length < 0 || length > bytes.length - offset )
+        {
+            throw new IllegalArgumentException( format( "Range [%s, %s + %s) out of the %s bytes to parse", offset,
+                                                        offset, length, bytes.length ) );
+        }
+
+        return this.parse( new InputSource( new ByteArrayInputStream( bytes, offset, length ) ) );
+    }
+
+    /**
+     * Parse the remaining content of the specified byte buffer using this Digester. Returns the root element from the
+     * object stack (if any).
+     * <p>
+     * The bytes are read in place, from the backing array of the heap buffers or through a view of the other ones, and
+     * the position of the buffer is left unchanged. The content of the buffer must not be modified during the parse.
+     * </p>
+     *
+     * @param <T> The type used to auto-cast the returned object to the assigned variable type
+     * @param buffer Byte buffer containing the XML data to be parsed, between its position and its limit
+     * @return the root element from the object stack (if any)
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     * @since 3.3
+     */
+    public <T> T parse( final ByteBuffer buffer )
+        throws IOException, SAXException
+    {
+        if ( buffer == null )
+        {
+            throw new IllegalArgumentException( "ByteBuffer to parse is null" );
+        }
+
+        if ( buffer.hasArray() )
+        {
+            return this.parse( buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining() );
+        }
+        return this.parse( new InputSource( new ByteBufferInputStream( buffer ) ) );
+    }
+
+    /**
+     * Parse the content of the specified character sequence using this Digester. Returns the root element from the
+     * object stack (if any).
+     * <p>
+     * The characters are read in place, without the copy of {@code toString()}, so the sequence must not be modified
+     * during the parse. An encoding declared by the document is ignored. Unlike {@link #parse(String)}, that takes the
+     * URI of the document, this method takes a {@code String} holding the document itself.
+     * </p>
+     *
+     * @param <T> The type used to auto-cast the returned object to the assigned variable type
+     * @param content Character sequence containing the XML data to be parsed
+     * @return the root element from the object stack (if any)
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     * @since 3.3
+     */
+    public <T> T parseContent( final CharSequence content )
+        throws IOException, SAXException
+    {
+        if ( content == null )
+        {
+            throw new IllegalArgumentException( "CharSequence to parse is null" );
+        }
+
+        return this.parse( new InputSource( new CharSequenceReader( content ) ) );
+    }
+
     /**
      * Parse the content of the specified file using this Digester. Returns the root element from the object stack (if
      * any).
@@ -2016,6 +2626,33 @@ public class Digester
         return this.parse( input );
     }
 
+    /**
+     * Parse the content of the specified file channel, from its current position, using this Digester. Returns the root
+     * element from the object stack (if any).
+     * <p>
+     * The large files are read through memory mapped regions, and the small ones through a direct buffer, without
+     * changing the position of the channel, which is left open. The document has no system identifier, so its relative
+     * references cannot be resolved; {@link #parse(Path)} sets it.
+     * </p>
+     *
+     * @param <T> The type used to auto-cast the returned object to the assigned variable type
+     * @param channel File channel containing the XML data to be parsed
+     * @return the root element from the object stack (if any)
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     * @since 3.3
+     */
+    public <T> T parse( final FileChannel channel )
+        throws IOException, SAXException
+    {
+        if ( channel == null )
+        {
+            throw new IllegalArgumentException( "FileChannel to parse is null" );
+        }
+
+        return this.parse( new InputSource( new ChannelInputStream( channel, false ) ) );
+    }
+
     /**
      * Parse the content of the specified input source using this Digester. Returns the root element from the object
      * stack (if any).
@@ -2042,9 +2679,30 @@ public class Digester
             systemId = "(already loaded from stream)";
         }
 
+        final boolean pooledParser = parser == null && reader == null && parserPool != null;
+        if ( pooledParser )
+        {
+            try
+            {
+                parser = parserPool.borrowParser();
+            }
+            catch ( final ParserConfigurationException e )
+            {
+                throw new SAXException( e );
+            }
+        }
+        PipelinedParser pipeline = null;
         try
         {
-            getXMLReader().parse( input );
+            if ( pipelineCapacity > 0 )
+            {
+                pipeline = new PipelinedParser( pipelineCapacity, executorService );
+                pipeline.parse( getXMLReader(), input );
+            }
+            else
+            {
+                getXMLReader().parse( input );
+            }
         }
         catch ( final IOException e )
         {
@@ -2052,6 +2710,24 @@ public class Digester
                        e );
             throw e;
         }
+        finally
+        {
+            final boolean readerInUse = pipeline != null && pipeline.isTokenizing();
+            if ( readerInUse )
+            {
+                log.warn( "The tokenizer thread of the aborted parse did not stop, its parser is discarded" );
+            }
+            if ( pooledParser || readerInUse )
+            {
+                final SAXParser borrowedParser = parser;
+                parser = null;
+                reader = null;
+                if ( pooledParser && !readerInUse )
+                {
+                    parserPool.returnParser( borrowedParser );
+                }
+            }
+        }
         cleanup();
         return this.getRoot();
     }
@@ -2077,6 +2753,38 @@ public class Digester
         return this.parse( new InputSource( input ) );
     }
 
+    /**
+     * Parse the content of the specified file using this Digester. Returns the root element from the object stack (if
+     * any).
+     * <p>
+     * Unlike {@link #parse(File)}, the file is read through its {@link FileChannel}: the large files are read through
+     * memory mapped regions, and the small ones through a direct buffer.
+     * </p>
+     *
+     * @param <T> The type used to auto-cast the returned object to the assigned variable type
+     * @param path Path of the file containing the XML data to be parsed
+     * @return the root element from the object stack (if any)
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     * @since 3.3
+     */
+    public <T> T parse( final Path path )
+        throws IOException, SAXException
+    {
+        if ( path == null )
+        {
+            throw new IllegalArgumentException( "Path to parse is null" );
+        }
+
+        try ( InputStream stream = new ChannelInputStream( FileChannel.open( path, StandardOpenOption.READ ), true ) )
+        {
+            final InputSource input = new InputSource( stream );
+            input.setSystemId( path.toUri().toString() );
+
+            return this.parse( input );
+        }
+    }
+
     /**
      * Parse the content of the specified reader using this Digester. Returns the root element from the object stack (if
      * any).
@@ -2141,6 +2849,118 @@ public class Digester
         return this.parse( createInputSourceFromURL( url ) );
     }
 
+    /**
+     * Parse the content of the specified StAX event reader using this Digester, from its current position to the end
+     * of the document, or to the end of the element it is positioned on. Returns the root element from the object
+     * stack (if any).
+     * <p>
+     * The events are dispatched to the rules as the ones of a SAX parser would be, honoring the
+     * {@link #getNamespaceAware() namespace awareness} of this Digester; the validation, entity resolution and
+     * XInclude settings of this Digester do not apply, as they are the ones of the reader. The reader is not closed.
+     * </p>
+     *
+     * @param <T> The type used to auto-cast the returned object to the assigned variable type
+     * @param reader StAX event reader delivering the XML data to be parsed
+     * @return the root element from the object stack (if any)
+     * @throws SAXException if a parsing exception occurs
+     * @since 3.3
+     */
+    public <T> T parse( final XMLEventReader reader )
+        throws SAXException
+    {
+        if ( reader == null )
+        {
+            throw new IllegalArgumentException( "XMLEventReader to parse is null" );
+        }
+
+        configure();
+
+        try
+        {
+            new StaxDispatcher( this, namespaceAware ).dispatch( reader );
+        }
+        catch ( final XMLStreamException e )
+        {
+            log.error( "An error occurred while reading events, see nested exceptions", e );
+            throw createSAXException( e );
+        }
+        cleanup();
+        return this.getRoot();
+    }
+
+    /**
+     * Parse the content of the specified StAX stream reader using this Digester, from its current position to the end
+     * of the document, or to the end of the element it is positioned on. Returns the root element from the object
+     * stack (if any).
+     * <p>
+     * The events are dispatched to the rules as the ones of a SAX parser would be, honoring the
+     * {@link #getNamespaceAware() namespace awareness} of this Digester; the validation, entity resolution and
+     * XInclude settings of this Digester do not apply, as they are the ones of the reader. The character data is
+     * handed to the rules straight from the buffer of the reader, without copies. The reader is not closed.
+     * </p>
+     *
+     * @param <T> The type used to auto-cast the returned object to the assigned variable type
+     * @param reader StAX stream reader delivering the XML data to be parsed
+     * @return the root element from the object stack (if any)
+     * @throws SAXException if a parsing exception occurs
+     * @since 3.3
+     */
+    public <T> T parse( final XMLStreamReader reader )
+        throws SAXException
+    {
+        if ( reader == null )
+        {
+            throw new IllegalArgumentException( "XMLStreamReader to parse is null" );
+        }
+
+        configure();
+
+        try
+        {
+            new StaxDispatcher( this, namespaceAware ).dispatch( reader );
+        }
+        catch ( final XMLStreamException e )
+        {
+            log.error( "An error occurred while reading stream, see nested exceptions", e );
+            throw createSAXException( e );
+        }
+        cleanup();
+        return this.getRoot();
+    }
+
+    /**
+     * Parse the content of the specified input stream, compressed or not, using this Digester. Returns the root element
+     * from the object stack (if any).
+     * <p>
+     * A stream starting with the magic bytes of the gzip format, or with a zlib header, is decompressed on a
+     * decompressor thread, which hands the decompressed content over in large chunks through a bounded queue, so that
+     * the decompression and the parse run at the same time on two cores. The decompressor is run by the
+     * {@link #setExecutorService(ExecutorService) executor service} if any, or on a thread of its own otherwise, or if
+     * the executor service does not run it promptly. The other streams are parsed as they are. The stream is closed
+     * once parsed.
+     * </p>
+     *
+     * @param <T> The type used to auto-cast the returned object to the assigned variable type
+     * @param input Input stream containing the XML data to be parsed, compressed or not
+     * @return the root element from the object stack (if any)
+     * @throws IOException if an input/output error occurs, including a decompression failure
+     * @throws SAXException if a parsing exception occurs
+     * @since 3.3
+     */
+    public <T> T parseCompressed( final InputStream input )
+        throws IOException, SAXException
+    {
+        if ( input == null )
+        {
+            throw new IllegalArgumentException( "InputStream to parse is null" );
+        }
+
+        try ( InputStream stream = DecompressingInputStream.open( input, executorService ) )
+        {
+            return this.parse( new InputSource( stream ) );
+        }
+    }
+
     /**
      * Return the top object on the stack without removing it.
      *
@@ -2224,7 +3044,7 @@ public class Digester
     public <T> T peek( final String stackName, final int n )
     {
         T result;
-        final Stack<Object> namedStack = stacksByName.get( stackName );
+        final ArrayStack<Object> namedStack = stacksByName.get( stackName );
         if ( namedStack == null )
         {
             if ( log.isDebugEnabled() )
@@ -2244,6 +3064,26 @@ public class Digester
         return result;
     }
 
+    /**
+     * Return the list of rules matched by the current element, as returned from Rules.getMatch(), without removing it.
+     * If no element is currently processed, return {@code null}.
+     *
+     * @return the list of rules matched by the current element
+     * @since 3.3
+     */
+    public List<Rule> peekMatches()
+    {
+        try
+        {
+            return matches.peek();
+        }
+        catch ( final EmptyStackException e )
+        {
+            log.warn( "Empty stack (returning null)" );
+            return null;
+        }
+    }
+
     /**
      * <p>
      * Return the top object on the parameters stack without removing it. If there are no objects on the stack, return
@@ -2340,7 +3180,7 @@ public class Digester
      */
     public <T> T pop( final String stackName )
     {
-        final Stack<Object> namedStack = stacksByName.get( stackName );
+        final ArrayStack<Object> namedStack = stacksByName.get( stackName );
         if ( namedStack == null )
         {
             if ( log.isDebugEnabled() )
@@ -2407,6 +3247,45 @@ public class Digester
         // No processing is required
     }
 
+    /**
+     * Creates a publisher of the objects that the rules push for the elements matching the given pattern, as
+     * {@link #stream(InputSource, String, Class)} streams them; the document is parsed on the
+     * {@link #setExecutorService(ExecutorService) executor service} of this Digester as the subscriber requests the
+     * objects.
+     * <p>
+     * This Digester must not be used otherwise until the subscriber has been completed or its subscription
+     * cancelled.
+     * </p>
+     *
+     * @param <T> the type of the published objects
+     * @param input Input source containing the XML data to be parsed
+     * @param pattern the pattern of the elements whose objects are published
+     * @param type the type of the published objects
+     * @return the publisher of the objects pushed for the elements matching the pattern
+     * @since 3.3
+     */
+    public <T> ObjectPublisher<T> publish( final InputSource input, final String pattern, final Class<T> type )
+    {
+        if ( input == null )
+        {
+            throw new IllegalArgumentException( "InputSource to publish is null" );
+        }
+        if ( pattern == null )
+        {
+            throw new IllegalArgumentException( "Pattern to publish is null" );
+        }
+        if ( type == null )
+        {
+            throw new IllegalArgumentException( "Type to publish is null" );
+        }
+        if ( executorService == null )
+        {
+            throw new IllegalStateException( "ExecutorService not set" );
+        }
+
+        return new ObjectPublisher<>( this, input, pattern, type, executorService );
+    }
+
     /**
      * Pushes the given object onto the stack with the given name. If no stack already exists with the given name then
      * one will be created.
@@ -2423,7 +3302,7 @@ public class Digester
             value = stackAction.onPush( this, stackName, value );
         }
 
-        Stack<Object> namedStack = stacksByName.computeIfAbsent( stackName, k -> new Stack<>() );
+        final ArrayStack<Object> namedStack = stacksByName.computeIfAbsent( stackName, k -> new ArrayStack<>() );
         namedStack.push( value );
     }
 
@@ -2533,6 +3412,37 @@ public class Digester
         this.entityValidator.putAll( entityValidator );
     }
 
+    /**
+     * Resets this Digester after a parse, successful or not, so that it can parse another document as a new Digester
+     * would.
+     * <p>
+     * Besides what {@link #clear()} and {@link #resetRoot()} do, the input sources created by this Digester are closed,
+     * the namespace mappings and the rules being applied are forgotten, and the {@link Rule#finish() finish} event is
+     * fired for the rules, so that they drop the state of the interrupted parse, if any.
+     * </p>
+     *
+     * @since 3.3
+     */
+    public void reset()
+    {
+        cleanup();
+        for ( final Rule rule : getCreatedRules() )
+        {
+            try
+            {
+                rule.finish();
+            }
+            catch ( final Exception e )
+            {
+                log.warn( "Finish event threw exception while resetting", e );
+            }
+        }
+        clear();
+        matches.clear();
+        namespaces.clear();
+        root = null;
+    }
+
     /**
      * This method allows the "root" variable to be reset to null.
      * <p>
@@ -2572,6 +3482,7 @@ public class Digester
         {
             entityURL = entityValidator.get( systemId );
         }
+        final boolean registered = entityURL != null;
 
         if ( entityURL == null )
         {
@@ -2608,6 +3519,10 @@ public class Digester
 
         try
         {
+            if ( registered && entityCache != null )
+            {
+                return entityCache.getInputSource( entityURL );
+            }
             return createInputSourceFromURL( entityURL );
         }
         catch ( final Exception e )
@@ -2673,6 +3588,20 @@ public class Digester
         this.locator = locator;
     }
 
+    /**
+     * Sets the cache of the content of the entities {@link #register(String, URL) registered} in this Digester, so that
+     * the DTDs and external entities resolved to their registered URL are read once rather than at each parse. The
+     * entities resolved through their system identifier only are not cached.
+     *
+     * @param entityCache the cache of the content of the registered entities, {@code null} to read them at each
+     *            resolution
+     * @since 3.3
+     */
+    public void setEntityCache( final EntityCache entityCache )
+    {
+        this.entityCache = entityCache;
+    }
+
     /**
      * Sets the {@code EntityResolver} used by SAX when resolving public id and system id. This must be called
      * before the first call to {@code parse()}.
@@ -2721,7 +3650,46 @@ public class Digester
     public void setFeature( final String feature, final boolean value )
         throws ParserConfigurationException, SAXNotRecognizedException, SAXNotSupportedException
     {
-        getFactory().setFeature( feature, value );
+        final SAXParserFactory parserFactory = getFactory();
+        // the factory may be shared with other Digesters
+        synchronized ( parserFactory )
+        {
+            parserFactory.setFeature( feature, value );
+        }
+    }
+
+    /**
+     * Sets the SAXParserFactory creating the parser of this Digester, so that the Digesters created with the same
+     * configuration share a factory rather than each looking up and configuring its own.
+     * <p>
+     * The factory is used as is, under its lock: the namespace aware, validating, XInclude aware and XML Schema settings
+     * of this Digester are not applied to it, and {@link #setFeature(String, boolean)} configures it for all the
+     * Digesters sharing it.
+     * </p>
+     *
+     * @param factory the factory creating the parser of this Digester, {@code null} to create one configured as this
+     *            Digester
+     * @since 3.3
+     */
+    public void setFactory( final SAXParserFactory factory )
+    {
+        this.factory = factory;
+    }
+
+    /**
+     * Sets the cache of the grammars, DTDs and XML Schemas, validating the parsed documents, so that they are compiled
+     * once and reused across the parses, by this Digester and by the other ones sharing the cache, rather than
+     * compiled at each parse. The XML reader of this Digester is given the grammar pool of the cache, if it supports
+     * it, before each parse.
+     *
+     * @param grammarCache the cache of the grammars validating the parsed documents, {@code null} to compile them at
+     *            each parse
+     * @see GrammarCache#getSchema(java.net.URL)
+     * @since 3.3
+     */
+    public void setGrammarCache( final GrammarCache grammarCache )
+    {
+        this.grammarCache = grammarCache;
     }
 
     /**
@@ -2734,6 +3702,24 @@ public class Digester
         this.log = log;
     }
 
+    /**
+     * Sets the maximum capacity, in characters, of the body text buffers kept for reuse across elements. The body text
+     * of each element is accumulated in a buffer reused by the following elements at the same nesting level; buffers
+     * grown beyond this capacity by a large body text are released once their element ends, so that they do not pin
+     * memory for the rest of the parse. The default is 8192 characters, 0 disables the reuse of the buffers.
+     *
+     * @param maxRetainedBodyTextCapacity the maximum capacity of the body text buffers kept for reuse
+     * @since 3.3
+     */
+    public void setMaxRetainedBodyTextCapacity( final int maxRetainedBodyTextCapacity )
+    {
+        if ( maxRetainedBodyTextCapacity < 0 )
+        {
+            throw new IllegalArgumentException( "The maximum retained body text capacity must not be negative" );
+        }
+        this.maxRetainedBodyTextCapacity = maxRetainedBodyTextCapacity;
+    }
+
     /**
      * Sets the "namespace aware" flag for parsers we create.
      *
@@ -2744,9 +3730,60 @@ public class Digester
         this.namespaceAware = namespaceAware;
     }
 
+    /**
+     * Sets the pool lending the parser of each parse, so that the parser of a Digester used for a few documents is
+     * reused by the next Digesters.
+     * <p>
+     * When this Digester has no parser of its own, the parser of each {@code SAXParser} based parse is borrowed from
+     * the pool, and returned to it once the parse is done; a parser obtained through {@link #getParser()} or
+     * {@link #getXMLReader()} outside of a parse is kept by this Digester. The pool replaces the
+     * {@link #getFactory() factory} of this Digester, the parsers having the configuration of the factory of the
+     * pool.
+     * </p>
+     *
+     * @param parserPool the pool lending the parser of each parse, {@code null} to create the parser
+     * @since 3.3
+     */
+    public void setParserPool( final SAXParserPool parserPool )
+    {
+        this.parserPool = parserPool;
+    }
+
+    /**
+     * Sets whether the parse of an {@code InputSource}, and of the inputs converted to one, is pipelined. A pipelined
+     * parse runs the SAX parser on a tokenizer thread, that records the parse events into a ring buffer of the given
+     * capacity, while the rules are executed on the thread invoking {@code parse()}, as the events are replayed to this
+     * Digester; a large document is then parsed with two cores rather than one. The tokenizer is run by the
+     * {@link #setExecutorService(ExecutorService) executor service} if any, or on a thread of its own otherwise, or if
+     * the executor service does not run it promptly.
+     * <p>
+     * The events are replayed in order, with the locations recorded by the parser, so that the results and the
+     * exceptions, with their locations, are the ones of the parse that is not pipelined. The
+     * {@link #setErrorHandler(ErrorHandler) error handler} and the {@link #setEntityResolver(EntityResolver) entity
+     * resolver} are invoked on the thread executing the rules too, the tokenizer waiting for their outcome. When the
+     * rules fail, the streams of the input source are closed and the tokenizer is interrupted, so that it does not
+     * stay blocked in a read. The default is 0, the parse not being pipelined.
+     * </p>
+     *
+     * @param pipelineCapacity the capacity, in events, of the ring buffer, rounded up to a power of two; 0 for a
+     *            parse that is not pipelined
+     * @since 3.3
+     */
+    public void setPipelineCapacity( final int pipelineCapacity )
+    {
+        if ( pipelineCapacity < 0 )
+        {
+            throw new IllegalArgumentException( "The pipeline capacity must not be negative" );
+        }
+        this.pipelineCapacity = pipelineCapacity;
+    }
+
     /**
      * Sets the current value of the specified property for the underlying {@code XMLReader} implementation. See <a
      * href="https://www.saxproject.org">the saxproject website</a> for information about the standard SAX2 properties.
+     * <p>
+     * The property is set on the parser of this Digester, which then can no longer be {@link #fork() forked}.
+     * </p>
      *
      * @param property Property name to be set
      * @param value Property value to be set
@@ -2757,6 +3794,7 @@ public class Digester
         throws SAXNotRecognizedException, SAXNotSupportedException
     {
         getParser().setProperty( property, value );
+        parserProvided = true;
     }
 
     /**
@@ -2789,6 +3827,8 @@ public class Digester
     {
         this.rules = rules;
         this.rules.setDigester( this );
+        ruleSets.clear();
+        ruleSetRuleCount = 0;
     }
 
     /**
@@ -2865,6 +3905,20 @@ public class Digester
         this.xincludeAware = xincludeAware;
     }
 
+    /**
+     * Sets the StAX input factory used to create the readers of the documents streamed by
+     * {@link #stream(InputSource, String, Class)}, for instance to configure the handling of DTDs and external
+     * entities. The given factory is used as is: the external entities are resolved by its own {@code XMLResolver},
+     * and not by the {@link #setEntityResolver(EntityResolver) entity resolver} of this Digester.
+     *
+     * @param xmlInputFactory the StAX input factory
+     * @since 3.3
+     */
+    public void setXMLInputFactory( final XMLInputFactory xmlInputFactory )
+    {
+        this.xmlInputFactory = xmlInputFactory;
+    }
+
     /**
      * Sets the XML Schema to be used when parsing.
      *
@@ -2916,18 +3970,17 @@ public class Digester
             return;
         }
 
-        if ( saxLog.isDebugEnabled() )
+        // Skip the elements that no rule can match, only tracking their nesting level
+        if ( skipNestedElements || skippedDepth > 0 )
         {
-            saxLog.debug( "startElement(" + namespaceURI + "," + localName + "," + qName + ")" );
+            skippedDepth++;
+            return;
         }
 
-        // Save the body text accumulated for our surrounding element
-        bodyTexts.push( bodyText );
-        if ( debug )
+        if ( saxLog.isDebugEnabled() )
         {
-            log.debug( "  Pushing body text '" + bodyText.toString() + "'" );
+            saxLog.debug( "startElement(" + namespaceURI + "," + localName + "," + qName + ")" );
         }
-        bodyText = new StringBuilder();
 
         // the actual element name is either in localName or qName, depending
         // on whether the parser is namespace aware
@@ -2938,21 +3991,24 @@ public class Digester
         }
 
         // Compute the current matching rule
-        final StringBuilder sb = new StringBuilder( match );
-        if ( !match.isEmpty() )
-        {
-            sb.append( '/' );
-        }
-        sb.append( name );
-        match = sb.toString();
+        match.push( name );
         if ( debug )
         {
             log.debug( "  New match='" + match + "'" );
         }
 
         // Fire "begin" events for all relevant rules
-        final List<Rule> rules = getRules().match( namespaceURI, match, localName, list );
+        final List<Rule> rules = getRules().matchPath( namespaceURI, match, localName, list );
         matches.push( rules );
+
+        // Save the body text accumulated for our surrounding element, and buffer ours only if a rule needs it
+        bodyTexts.push( bodyText );
+        if ( debug )
+        {
+            log.debug( "  Pushing body text '" + bodyText + "'" );
+        }
+        bodyText = isBodyRequired( rules ) ? acquireBodyText( match.getDepth() - 1 ) : null;
+
         if ( rules != null && !rules.isEmpty() )
         {
             final Substitutor substitutor = getSubstitutor();
@@ -2986,6 +4042,13 @@ public class Digester
         {
             log.debug( "  No rules found matching '" + match + "'." );
         }
+
+        // Find out whether the nested elements may be matched at all
+        skipNestedElements = !getRules().mayMatchDescendants( match );
+        if ( skipNestedElements && debug )
+        {
+            log.debug( "  No rules can match the elements nested in '" + match + "', skipping them." );
+        }
     }
 
     @Override
@@ -2998,10 +4061,102 @@ public class Digester
         }
 
         // Register this prefix mapping
-        Stack<String> stack = namespaces.computeIfAbsent( prefix, k -> new Stack<>() );
+        final ArrayStack<String> stack = namespaces.computeIfAbsent( prefix, k -> new ArrayStack<>() );
         stack.push( namespaceURI );
     }
 
+    /**
+     * Streams the objects that the rules push for the elements matching the given pattern, each object being returned
+     * as soon as the end of its element has been processed, and after it has been popped from the object stack by
+     * the rules that pushed it. For instance, with an {@link ObjectCreateRule} registered for {@code feed/entry},
+     * {@code stream( input, "feed/entry", Entry.class )} returns the {@code Entry} instances one at a time.
+     * <p>
+     * The document is parsed lazily, as the returned stream is consumed, with a StAX reader created by the
+     * {@link #getXMLInputFactory() XMLInputFactory} of this Digester; the memory used does not depend on the size of
+     * the document as long as the rules do not retain the objects, for instance by adding them to a parent object with
+     * a {@link SetNextRule}. The elements matching the pattern are selected with the {@link RulesBase} matching policy;
+     * an element for which the rules push no object does not yield any.
+     * </p>
+     * <p>
+     * The external entities are resolved as they are by the SAX parse, as long as the default
+     * {@link #getXMLInputFactory() XMLInputFactory} is used. StAX readers neither validate the documents nor process
+     * XInclude, so this method cannot be used if this Digester is {@link #setValidating(boolean) validating}, has an
+     * {@link #setXMLSchema(Schema) XML Schema} or is {@link #setXIncludeAware(boolean) XInclude aware}.
+     * </p>
+     * <p>
+     * This Digester must not be used otherwise until the stream has been consumed or closed; closing the stream before
+     * its end stops the parse. Parse errors are thrown by the stream operations as {@link UncheckedSAXException}s.
+     * </p>
+     *
+     * @param <T> the type of the streamed objects
+     * @param input Input source containing the XML data to be parsed
+     * @param pattern the pattern of the elements whose objects are streamed
+     * @param type the type of the streamed objects
+     * @return the stream of the objects pushed for the elements matching the pattern
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if the parse cannot be started
+     * @throws IllegalStateException if this Digester validates the documents or processes XInclude
+     * @since 3.3
+     */
+    public <T> Stream<T> stream( final InputSource input, final String pattern, final Class<T> type )
+        throws IOException, SAXException
+    {
+        if ( input == null )
+        {
+            throw new IllegalArgumentException( "InputSource to stream is null" );
+        }
+        if ( pattern == null )
+        {
+            throw new IllegalArgumentException( "Pattern to stream is null" );
+        }
+        if ( type == null )
+        {
+            throw new IllegalArgumentException( "Type to stream is null" );
+        }
+        if ( validating || schema != null || xincludeAware )
+        {
+            throw new IllegalStateException( "Documents cannot be validated nor XInclude processed by a StAX reader" );
+        }
+
+        return stream( createXMLStreamReader( input ), pattern, type );
+    }
+
+    /**
+     * Streams the objects that the rules push for the elements matching the given pattern, reading the document from
+     * the given StAX reader, as {@link #stream(InputSource, String, Class)} does. The reader is closed once the stream
+     * has been consumed or closed.
+     *
+     * @param <T> the type of the streamed objects
+     * @param reader StAX stream reader delivering the XML data to be parsed
+     * @param pattern the pattern of the elements whose objects are streamed
+     * @param type the type of the streamed objects
+     * @return the stream of the objects pushed for the elements matching the pattern
+     * @throws SAXException if the parse cannot be started
+     * @since 3.3
+     */
+    public <T> Stream<T> stream( final XMLStreamReader reader, final String pattern, final Class<T> type )
+        throws SAXException
+    {
+        if ( reader == null )
+        {
+            throw new IllegalArgumentException( "XMLStreamReader to stream is null" );
+        }
+        if ( pattern == null )
+        {
+            throw new IllegalArgumentException( "Pattern to stream is null" );
+        }
+        if ( type == null )
+        {
+            throw new IllegalArgumentException( "Type to stream is null" );
+        }
+
+        configure();
+
+        final ObjectStreamIterator<T> iterator = new ObjectStreamIterator<>( this, reader, pattern, type );
+        return StreamSupport.stream( spliteratorUnknownSize( iterator, Spliterator.ORDERED | Spliterator.NONNULL ),
+                                     false ).onClose( iterator::close );
+    }
+
     @Override
     public void unparsedEntityDecl( final String name, final String publicId, final String systemId, final String notation )
     {
@@ -0,0 +1,243 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
+
+/**
+ * The '/' separated path of the element currently processed by a {@link Digester}, such as {@code a/b/c}.
+ * <p>
+ * The path is kept as a stack of element names over a reusable character buffer, so that entering and leaving an
+ * element does not allocate; the path is materialized as a {@code String} only when {@link #toString()} is invoked,
+ * and that string is reused until the element is left. {@link Rules} implementations can match this
+ * {@code CharSequence} directly, or walk its elements via {@link #getDepth()} and {@link #getName(int)}.
+ * </p>
+ * <p>
+ * Instances are owned and updated by the {@code Digester} while parsing: they must not be retained by the
+ * {@code Rules} implementations, nor accessed by other threads.
+ * </p>
+ *
+ * @since 3.3
+ */
+public final class ElementPath
+    implements CharSequence
+{
+
+    private static final int INITIAL_DEPTH = 16;
+
+    private static final int INITIAL_LENGTH = 128;
+
+    /** The characters of the path. */
+    private char[] chars = new char[INITIAL_LENGTH];
+
+    /** The length of the path. */
+    private int length;
+
+    /** The names of the elements in the path. */
+    private String[] names = new String[INITIAL_DEPTH];
+
+    /** The index of the first character of each element name in the path. */
+    private int[] starts = new int[INITIAL_DEPTH];
+
+    /** The already materialized paths up to each element, if any. */
+    private String[] paths = new String[INITIAL_DEPTH];
+
+    /** The number of elements in the path. */
+    private int depth;
+
+    /**
+     * Creates an empty path.
+     */
+    ElementPath()
+    {
+        // only the Digester creates and updates paths
+    }
+
+    @Override
+    public char charAt( final int index )
+    {
+        if ( index < 0 || index >= length )
+        {
+            throw new StringIndexOutOfBoundsException( index );
+        }
+        return chars[index];
+    }
+
+    /**
+     * Removes all the elements from the path.
+     */
+    void clear()
+    {
+        fill( names, 0, depth, null );
+        fill( paths, 0, depth, null );
+        depth = 0;
+        length = 0;
+    }
+
+    /**
+     * Returns the number of elements in the path.
+     *
+     * @return the number of elements in the path
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Returns the name of the innermost element of the path.
+     *
+     * @return the name of the innermost element of the path, the empty string if the path is empty
+     */
+    public String getLastName()
+    {
+        return depth == 0 ? "" : names[depth - 1];
+    }
+
+    /**
+     * Returns the name of the element at the given depth, the root element being at depth 0.
+     *
+     * @param index the depth of the element, from 0 to {@link #getDepth()} - 1
+     * @return the name of the element at the given depth
+     */
+    public String getName( final int index )
+    {
+        checkIndex( index );
+        return names[index];
+    }
+
+    /**
+     * Returns the index, in this {@code CharSequence}, of the first character of the name of the element at the given
+     * depth.
+     *
+     * @param index the depth of the element, from 0 to {@link #getDepth()} - 1
+     * @return the index of the first character of the name of the element at the given depth
+     */
+    public int getNameStart( final int index )
+    {
+        checkIndex( index );
+        return starts[index];
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * Removes the innermost element from the path.
+     */
+    void pop()
+    {
+        if ( depth == 0 )
+        {
+            return;
+        }
+        depth--;
+        names[depth] = null;
+        paths[depth] = null;
+        length = depth == 0 ? 0 : starts[depth] - 1;
+    }
+
+    /**
+     * Appends a nested element to the path.
+     *
+     * @param name the name of the nested element
+     */
+    void push( final String name )
+    {
+        if ( depth == names.length )
+        {
+            names = copyOf( names, depth * 2 );
+            starts = copyOf( starts, depth * 2 );
+            paths = copyOf( paths, depth * 2 );
+        }
+
+        int start = length;
+        if ( depth > 0 )
+        {
+            start++;
+        }
+        final int newLength = start + name.length();
+        if ( newLength > chars.length )
+        {
+            chars = copyOf( chars, Math.max( newLength, chars.length * 2 ) );
+        }
+        if ( depth > 0 )
+        {
+            chars[length] = '/';
+        }
+        name.getChars( 0, name.length(), chars, start );
+
+        names[depth] = name;
+        starts[depth] = start;
+        depth++;
+        length = newLength;
+    }
+
+    @Override
+    public CharSequence subSequence( final int start, final int end )
+    {
+        if ( start < 0 || end > length || start > end )
+        {
+            throw new StringIndexOutOfBoundsException( "start " + start + ", end " + end + ", length " + length );
+        }
+        return new String( chars, start, end - start );
+    }
+
+    /**
+     * Materializes the path, for instance {@code a/b/c}; the empty string is returned if the path is empty.
+     *
+     * @return the path as a {@code String}
+     */
+    @Override
+    public String toString()
+    {
+        if ( depth == 0 )
+        {
+            return "";
+        }
+        String path = paths[depth - 1];
+        if ( path == null )
+        {
+            if ( depth == 1 )
+            {
+                path = names[0];
+            }
+            else
+            {
+                path = new String( chars, 0, length );
+            }
+            paths[depth - 1] = path;
+        }
+        return path;
+    }
+
+    private void checkIndex( final int index )
+    {
+        if ( index < 0 || index >= depth )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", Depth: " + depth );
+        }
+    }
+
+}
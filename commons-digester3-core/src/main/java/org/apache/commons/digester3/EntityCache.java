@@ -0,0 +1,268 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xml.sax.InputSource;
+
+/**
+ * An in-memory cache of the content of the DTDs and external entities registered in the Digesters, so that their URLs,
+ * often jar resources, are read once rather than at each parse.
+ * <p>
+ * Each entity is read the first time it is resolved, and each resolution then gets a new {@code InputSource} reading
+ * the cached bytes. The entities are cached as long as their total size does not exceed the size limit of the cache,
+ * the other ones being read at each resolution. The entities read from files, directly or from a jar file, can be
+ * reloaded when their file is modified. The cache is thread safe, and can be shared by many Digesters.
+ * </p>
+ *
+ * @see Digester#setEntityCache(EntityCache)
+ * @since 3.3
+ */
+public final class EntityCache
+{
+
+    /**
+     * The cached content of an entity.
+     */
+    private static final class Entity
+    {
+
+        private final byte[] content;
+
+        private final long lastModified;
+
+        Entity( final byte[] content, final long lastModified )
+        {
+            this.content = content;
+            this.lastModified = lastModified;
+        }
+
+    }
+
+    private final ConcurrentMap<String, Entity> entities = new ConcurrentHashMap<>();
+
+    private final long maxSize;
+
+    private final boolean reloadModified;
+
+    private final AtomicLong size = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * Creates a new cache of entities.
+     *
+     * @param maxSize the maximum total size, in bytes, of the cached entities
+     * @param reloadModified whether the entities read from files are reloaded when their file is modified
+     */
+    public EntityCache( final long maxSize, final boolean reloadModified )
+    {
+        if ( maxSize < 0 )
+        {
+            throw new IllegalArgumentException( "Maximum size must not be negative" );
+        }
+        this.maxSize = maxSize;
+        this.reloadModified = reloadModified;
+    }
+
+    /**
+     * Discards the cached entities.
+     */
+    public void clear()
+    {
+        for ( final String url : entities.keySet() )
+        {
+            final Entity entity = entities.remove( url );
+            if ( entity != null )
+            {
+                size.addAndGet( -entity.content.length );
+            }
+        }
+    }
+
+    /**
+     * Gets the number of resolutions served from the cached content of an entity.
+     *
+     * @return the number of resolutions served from the cached content of an entity
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets an {@code InputSource} reading the content of the given entity, reading the entity if it is not cached.
+     *
+     * @param url the URL of the entity
+     * @return a new {@code InputSource} reading the content of the entity, with the URL as system identifier
+     * @throws IOException if the entity cannot be read
+     */
+    public InputSource getInputSource( final URL url )
+        throws IOException
+    {
+        final String key = url.toExternalForm();
+        Entity entity = entities.get( key );
+        if ( entity != null && reloadModified && entity.lastModified != lastModified( url ) )
+        {
+            // the file has been modified since the entity was loaded
+            if ( entities.remove( key, entity ) )
+            {
+                size.addAndGet( -entity.content.length );
+            }
+            entity = null;
+        }
+
+        if ( entity != null )
+        {
+            hitCount.incrementAndGet();
+        }
+        else
+        {
+            entity = load( url );
+            if ( size.addAndGet( entity.content.length ) <= maxSize && entities.putIfAbsent( key, entity ) == null )
+            {
+                loadCount.incrementAndGet();
+            }
+            else
+            {
+                // too large, or cached meanwhile by another resolution
+                size.addAndGet( -entity.content.length );
+            }
+        }
+
+        final InputSource source = new InputSource( new ByteArrayInputStream( entity.content ) );
+        source.setSystemId( key );
+        return source;
+    }
+
+    /**
+     * Gets the number of entities loaded into the cache, including the reloaded ones.
+     *
+     * @return the number of entities loaded into the cache
+     */
+    public long getLoadCount()
+    {
+        return loadCount.get();
+    }
+
+    /**
+     * Gets the maximum total size, in bytes, of the cached entities.
+     *
+     * @return the maximum total size of the cached entities
+     */
+    public long getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * Gets the total size, in bytes, of the cached entities.
+     *
+     * @return the total size of the cached entities
+     */
+    public long getSize()
+    {
+        return size.get();
+    }
+
+    /**
+     * Tells whether the entities read from files are reloaded when their file is modified.
+     *
+     * @return true if the entities read from files are reloaded when their file is modified
+     */
+    public boolean isReloadModified()
+    {
+        return reloadModified;
+    }
+
+    /**
+     * Gets the last modification time of the file holding the given entity, directly or as a jar entry.
+     *
+     * @return the last modification time of the file, 0 if it cannot be known
+     */
+    private static long lastModified( final URL url )
+    {
+        URL fileURL = url;
+        if ( "jar".equals( url.getProtocol() ) )
+        {
+            final String path = url.getPath();
+            final int separator = path.indexOf( "!/" );
+            if ( separator < 0 )
+            {
+                return 0;
+            }
+            try
+            {
+                fileURL = new URL( path.substring( 0, separator ) );
+            }
+            catch ( final IOException e )
+            {
+                return 0;
+            }
+        }
+        if ( !"file".equals( fileURL.getProtocol() ) )
+        {
+            return 0;
+        }
+        try
+        {
+            return new File( fileURL.toURI() ).lastModified();
+        }
+        catch ( final URISyntaxException | IllegalArgumentException e )
+        {
+            return 0;
+        }
+    }
+
+    private Entity load( final URL url )
+        throws IOException
+    {
+        final long lastModified = reloadModified ? lastModified( url ) : 0;
+        final URLConnection connection = url.openConnection();
+        // as Digester.createInputSourceFromURL, so that no handle to a jar file is kept open
+        connection.setUseCaches( false );
+        try ( InputStream stream = connection.getInputStream() )
+        {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ( ( read = stream.read( buffer ) ) != -1 )
+            {
+                content.write( buffer, 0, read );
+            }
+            return new Entity( content.toByteArray(), lastModified );
+        }
+    }
+
+}
@@ -144,6 +144,51 @@ public class ExtendedBaseRules
     extends RulesBase
 {
 
+    /**
+     * The rules registered for a wildcard pattern, both in its universal and non universal form.
+     */
+    private static final class WildcardPattern
+    {
+
+        /** The rules registered for the non universal pattern, or {@code null} if none. */
+        private List<Rule> rules;
+
+        /** The rules registered for the universal ('!' prefixed) pattern, or {@code null} if none. */
+        private List<Rule> universalRules;
+
+        /** The length used to select the longest non universal pattern. */
+        private int keyLength;
+
+        /** The entry number of the non universal pattern, used to break ties between patterns of the same length. */
+        private int entry;
+
+        /** The underlying (not '!' prefixed) "*&#47;a/b/*" pattern. */
+        private String key;
+
+        /** The body of a "*&#47;a/b/*" pattern. */
+        private String body;
+
+        /** The body of a "*&#47;a/b/*" pattern, followed by a '/'. */
+        private String bodyWithSlash;
+
+    }
+
+    /**
+     * The list of matches, built when more than one registered list of rules matches.
+     */
+    private static final class MergedList
+        extends ArrayList<Rule>
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        MergedList( final List<Rule> first )
+        {
+            super( first );
+        }
+
+    }
+
     /**
      * Counts the entry number for the rules.
      */
@@ -155,6 +200,387 @@ public class ExtendedBaseRules
      */
     private final Map<Rule, Integer> order = new HashMap<>();
 
+    /**
+     * Whether a rule has been registered more than once, in which case the lists of rules registered for a pattern
+     * may not be in entry order anymore.
+     */
+    private boolean reregisteredRules;
+
+    /**
+     * The "a/b/*&#47;c" patterns, indexed by last element then by parent pattern ("c/a/b").
+     */
+    private final PatternTrie<List<Rule>> middleWildcardPatterns = new PatternTrie<>();
+
+    /**
+     * The "!a/b/?" patterns, indexed by parent pattern.
+     */
+    private final PatternTrie<List<Rule>> universalParentPatterns = new PatternTrie<>();
+
+    /**
+     * The "a/b/?" patterns, indexed by parent pattern.
+     */
+    private final PatternTrie<List<Rule>> parentPatterns = new PatternTrie<>();
+
+    /**
+     * The "a/b/*" patterns, indexed by ancestor pattern.
+     */
+    private final PatternTrie<List<Rule>> ancestorPatterns = new PatternTrie<>();
+
+    /**
+     * The "*&#47;a/b" and "!*&#47;a/b" patterns, indexed by reversed body.
+     */
+    private final PatternTrie<WildcardPattern> tailPatterns = new PatternTrie<>();
+
+    /**
+     * The "*&#47;a/b/?" and "!*&#47;a/b/?" patterns, indexed by reversed parent body.
+     */
+    private final PatternTrie<WildcardPattern> tailParentPatterns = new PatternTrie<>();
+
+    /**
+     * The "!a/b/*" patterns, indexed by ancestor pattern.
+     */
+    private final PatternTrie<WildcardPattern> universalAncestorPatterns = new PatternTrie<>();
+
+    /**
+     * The "*&#47;a/b/*" and "!*&#47;a/b/*" patterns, which match anywhere in the pattern.
+     */
+    private final List<WildcardPattern> tailAncestorPatterns = new ArrayList<>();
+
+    /**
+     * The "*&#47;?" and "!*&#47;?" patterns.
+     */
+    private WildcardPattern anyParentPattern;
+
+    /**
+     * The registered patterns not starting with a wildcard, without their '!' prefix, used to find out whether nested
+     * elements may be matched.
+     */
+    private final PatternTrie<Boolean> anchoredPatterns = new PatternTrie<>();
+
+    /**
+     * Whether a registered pattern starts with a wildcard, so that it may match elements nested anywhere.
+     */
+    private boolean unanchoredPatterns;
+
+    /**
+     * Adds the given rules to the current matches.
+     *
+     * @param matches The current matches, may be null
+     * @param rules The rules to be added, may be null
+     * @return the new matches
+     */
+    private static List<Rule> addMatches( final List<Rule> matches, final List<Rule> rules )
+    {
+        if ( rules == null || rules.isEmpty() )
+        {
+            return matches;
+        }
+        if ( matches == null )
+        {
+            // no need to copy as long as there is just one list
+            return rules;
+        }
+        if ( matches instanceof MergedList )
+        {
+            matches.addAll( rules );
+            return matches;
+        }
+        final List<Rule> merged = new MergedList( matches );
+        merged.addAll( rules );
+        return merged;
+    }
+
+    /**
+     * Finds the value indexed by the given trie for the given path.
+     *
+     * @param trie The trie where looking for the path
+     * @param path The path to be found
+     * @param end The end of the path inside {@code path}
+     * @return the value indexed for the given path, null if none
+     */
+    private static <V> V get( final PatternTrie<V> trie, final String path, final int end )
+    {
+        PatternTrie.Node<V> node = trie.getRoot();
+        int start = 0;
+        while ( node != null )
+        {
+            final int slash = path.indexOf( '/', start );
+            final int segmentEnd = slash == -1 || slash > end ? end : slash;
+            node = node.getChild( path, start, segmentEnd );
+            if ( segmentEnd == end )
+            {
+                return node != null ? node.getValue() : null;
+            }
+            start = segmentEnd + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Finds an exact ancestor match for given pattern
+     *
+     * @param pattern The input pattern
+     * @return A list of {@code Rule} related to the input pattern
+     */
+    private List<Rule> findExactAncesterMatch( final String pattern )
+    {
+        // the longest ancestor "a/b/*" wins, where "a/b" is a non empty prefix of the pattern
+        List<Rule> matchingRules = null;
+        PatternTrie.Node<List<Rule>> node = ancestorPatterns.getRoot();
+        int start = 0;
+        int slash;
+        while ( ( slash = pattern.indexOf( '/', start ) ) != -1 )
+        {
+            node = node.getChild( pattern, start, slash );
+            if ( node == null )
+            {
+                break;
+            }
+            if ( slash > 0 && node.getValue() != null )
+            {
+                matchingRules = node.getValue();
+            }
+            start = slash + 1;
+        }
+        return matchingRules;
+    }
+
+    /**
+     * Finds the rules of the longest "a/b/*&#47;c" pattern matching the given pattern, where "a/b" is a parent
+     * pattern of at least two elements.
+     *
+     * @param pattern The input pattern
+     * @param lastIndex The index of the last '/' in the pattern
+     * @return A list of {@code Rule} related to the input pattern
+     */
+    private List<Rule> findMiddleWildcardMatch( final String pattern, final int lastIndex )
+    {
+        PatternTrie.Node<List<Rule>> node =
+            middleWildcardPatterns.getRoot().getChild( pattern, lastIndex + 1, pattern.length() );
+        List<Rule> matchingRules = null;
+        int start = 0;
+        int depth = 0;
+        while ( node != null && start <= lastIndex )
+        {
+            int end = pattern.indexOf( '/', start );
+            if ( end > lastIndex )
+            {
+                end = lastIndex;
+            }
+            node = node.getChild( pattern, start, end );
+            if ( node != null && ++depth > 1 && node.getValue() != null )
+            {
+                matchingRules = node.getValue();
+            }
+            start = end + 1;
+        }
+        return matchingRules;
+    }
+
+    @Override
+    public void clear()
+    {
+        super.clear();
+        middleWildcardPatterns.clear();
+        universalParentPatterns.clear();
+        parentPatterns.clear();
+        ancestorPatterns.clear();
+        tailPatterns.clear();
+        tailParentPatterns.clear();
+        universalAncestorPatterns.clear();
+        tailAncestorPatterns.clear();
+        anyParentPattern = null;
+        anchoredPatterns.clear();
+        unanchoredPatterns = false;
+    }
+
+    @Override
+    public List<Rule> match( final String namespaceURI, final String pattern, final String name, final Attributes attributes )
+    {
+        if ( !isPatternIndexed() )
+        {
+            return scanMatches( namespaceURI, pattern );
+        }
+
+        // calculate the pattern of the parent (if the element has one)
+        final int lastIndex = pattern.lastIndexOf( '/' );
+        final boolean hasParent = lastIndex != -1;
+        // the parent pattern is the substring [0, parentEnd) of the pattern
+        final int parentEnd = hasParent ? lastIndex : 0;
+
+        // we keep the list of universal matches separate
+        List<Rule> universalList = null;
+
+        // Universal wildcards ('*') in the middle of the pattern-string
+        if ( hasParent && pattern.lastIndexOf( '/', lastIndex - 1 ) != -1 )
+        {
+            // when /*/-pattern-string is found, add method list to universalList.
+            // Digester will do the rest
+            universalList = addMatches( universalList, findMiddleWildcardMatch( pattern, lastIndex ) );
+        }
+
+        // Universal all wildcards ('!*')
+        // These are always matched so always add them
+        universalList = addMatches( universalList, this.cache.get( "!*" ) );
+
+        // Universal exact parent match
+        // need to get this now since only wildcards are considered later
+        universalList = addMatches( universalList, get( universalParentPatterns, pattern, parentEnd ) );
+
+        // base behavior means that if we certain matches, we don't continue but we just have
+        // a single combined loop and so we have to set a variable
+        boolean ignoreBasicMatches = false;
+
+        // see if we have an exact basic pattern match
+        List<Rule> rulesList = this.cache.get( pattern );
+        if ( rulesList != null )
+        {
+            // we have a match! so ignore all basic matches from now on
+            ignoreBasicMatches = true;
+        }
+        else if ( hasParent ) // see if we have an exact child match
+        {
+            // matching children takes preference
+            rulesList = get( parentPatterns, pattern, parentEnd );
+            if ( rulesList != null )
+            {
+                // we have a match! so ignore all basic matches from now on
+                ignoreBasicMatches = true;
+            }
+            else
+            {
+                // we don't have a match yet - so try exact ancestor
+                rulesList = findExactAncesterMatch( pattern );
+                if ( rulesList != null )
+                {
+                    // we have a match! so ignore all basic matches from now on
+                    ignoreBasicMatches = true;
+                }
+            }
+        }
+
+        // Unlike the basic rules case, we have to go through for all those universal rules in all cases.
+        // Universal rules go straight in (no longest matching rule), while the longest, ie more discriminant,
+        // basic pattern is kept
+        WildcardPattern longest = null;
+
+        // tail matches: "*/a/b" matches when the pattern ends with "a/b"
+        PatternTrie.Node<WildcardPattern> node = tailPatterns.getRoot();
+        int end = pattern.length();
+        while ( node != null )
+        {
+            final int start = pattern.lastIndexOf( '/', end - 1 ) + 1;
+            node = node.getChild( pattern, start, end );
+            if ( node != null && node.getValue() != null )
+            {
+                universalList = addMatches( universalList, node.getValue().universalRules );
+                longest = longest( longest, node.getValue(), ignoreBasicMatches );
+            }
+            if ( start == 0 )
+            {
+                break;
+            }
+            end = start - 1;
+        }
+
+        // parent tail matches: "*/a/b/?" matches when the parent pattern ends with "/a/b"
+        node = tailParentPatterns.getRoot();
+        end = parentEnd;
+        while ( node != null )
+        {
+            final int start = pattern.lastIndexOf( '/', end - 1 ) + 1;
+            if ( start == 0 )
+            {
+                break;
+            }
+            node = node.getChild( pattern, start, end );
+            if ( node != null && node.getValue() != null )
+            {
+                universalList = addMatches( universalList, node.getValue().universalRules );
+                longest = longest( longest, node.getValue(), ignoreBasicMatches );
+            }
+            end = start - 1;
+        }
+        if ( anyParentPattern != null )
+        {
+            universalList = addMatches( universalList, anyParentPattern.universalRules );
+            longest = longest( longest, anyParentPattern, ignoreBasicMatches );
+        }
+
+        // ancestor matches: "*/a/b/*" matches when the pattern contains "a/b"
+        for ( final WildcardPattern tailAncestorPattern : tailAncestorPatterns )
+        {
+            if ( pattern.endsWith( tailAncestorPattern.body ) || pattern.contains( tailAncestorPattern.bodyWithSlash ) )
+            {
+                universalList = addMatches( universalList, tailAncestorPattern.universalRules );
+                longest = longest( longest, tailAncestorPattern, ignoreBasicMatches );
+            }
+        }
+
+        // universal ancestor matches: "!a/b/*" matches when the pattern starts with "a/b"
+        node = universalAncestorPatterns.getRoot();
+        int start = 0;
+        while ( node != null )
+        {
+            int slash = pattern.indexOf( '/', start );
+            if ( slash == -1 )
+            {
+                slash = pattern.length();
+            }
+            node = node.getChild( pattern, start, slash );
+            if ( node != null && node.getValue() != null )
+            {
+                universalList = addMatches( universalList, node.getValue().universalRules );
+            }
+            if ( slash == pattern.length() )
+            {
+                break;
+            }
+            start = slash + 1;
+        }
+
+        if ( longest != null )
+        {
+            rulesList = longest.rules;
+        }
+
+        // '*' works in practice as a default matching (this is because anything is a deeper match!)
+        if ( rulesList == null )
+        {
+            rulesList = this.cache.get( "*" );
+        }
+
+        // if we've matched a basic pattern, then add to the universal list
+        universalList = addMatches( universalList, rulesList );
+
+        if ( universalList == null )
+        {
+            return new ArrayList<>();
+        }
+
+        if ( !( universalList instanceof MergedList ) )
+        {
+            // a single registered list matched, it only has to be copied if nothing has to be filtered or sorted
+            if ( !reregisteredRules && matchesNamespace( universalList, namespaceURI ) )
+            {
+                return new ArrayList<>( universalList );
+            }
+            universalList = new MergedList( universalList );
+        }
+
+        // don't filter if namespace is null
+        if ( namespaceURI != null )
+        {
+            // remove invalid namespaces
+            universalList.removeIf( rule -> rule.getNamespaceURI() != null && !rule.getNamespaceURI().equals( namespaceURI ) );
+        }
+
+        // need to make sure that the collection is sorted in the order of addition. We use a custom comparator for this
+        universalList.sort( Comparator.nullsFirst( Comparator.comparing( order::get ) ) );
+
+        return universalList;
+    }
+
     /**
      * Standard match. Matches the end of the pattern to the key.
      *
@@ -162,18 +588,30 @@ public class ExtendedBaseRules
      * @param pattern The pattern where looking for the key
      * @return true, if {@code key} is found inside {@code pattern}, false otherwise
      */
-    private boolean basicMatch( final String key, final String pattern )
+    private static boolean basicMatch( final String key, final String pattern )
     {
         return pattern.equals( key.substring( 2 ) ) || pattern.endsWith( key.substring( 1 ) );
     }
 
     /**
-     * Finds an exact ancestor match for given pattern
+     * Checks the input parentPattern contains the input key at the end.
+     *
+     * @param key The key to be found
+     * @param parentPattern The pattern where looking for the key
+     * @return true, if {@code key} is found inside {@code parentPattern}, false otherwise
+     */
+    private static boolean parentMatch( final String key, final String parentPattern )
+    {
+        return parentPattern.endsWith( key.substring( 1, key.length() - 2 ) );
+    }
+
+    /**
+     * Finds an exact ancestor match for given pattern, looking up the {@link #cache} field.
      *
      * @param parentPattern The input pattern
      * @return A list of {@code Rule} related to the input pattern
      */
-    private List<Rule> findExactAncesterMatch( final String parentPattern )
+    private List<Rule> scanExactAncestorMatch( final String parentPattern )
     {
         int lastIndex = parentPattern.length();
         while ( lastIndex-- > 0 )
@@ -191,8 +629,16 @@ public class ExtendedBaseRules
         return null;
     }
 
-    @Override
-    public List<Rule> match( final String namespaceURI, final String pattern, final String name, final Attributes attributes )
+    /**
+     * Matches the given pattern testing all the patterns of the {@link #cache} field, for the subclasses whose patterns
+     * are not {@link #isPatternIndexed() indexed}.
+     *
+     * @param namespaceURI Namespace URI to match, or {@code null} to select matching rules regardless of namespace
+     *            URI
+     * @param pattern Pattern to be matched
+     * @return the rules matching the pattern, in the order of their registration
+     */
+    private List<Rule> scanMatches( final String namespaceURI, final String pattern )
     {
         // calculate the pattern of the parent (if the element has one)
         String parentPattern = "";
@@ -278,7 +724,7 @@ public class ExtendedBaseRules
             else
             {
                 // we don't have a match yet - so try exact ancestor
-                rulesList = findExactAncesterMatch( pattern );
+                rulesList = scanExactAncestorMatch( pattern );
                 if ( rulesList != null )
                 {
                     // we have a match! so ignore all basic matches from now on
@@ -420,15 +866,95 @@ public class ExtendedBaseRules
     }
 
     /**
-     * Checks the input parentPattern contains the input key at the end.
+     * {@inheritDoc}
+     * <p>
+     * The extended patterns are not held by the {@link RulesBase} path index, so the path is materialized.
+     * </p>
+     */
+    @Override
+    public List<Rule> matchPath( final String namespaceURI, final ElementPath path, final String name,
+                                 final Attributes attributes )
+    {
+        return match( namespaceURI, path.toString(), name, attributes );
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The patterns are classified by {@link #registerRule(String, Rule)} of this class, which lets them be matched,
+     * and the nested elements be ruled out, without testing all the registered patterns. So the default implementation only trusts that
+     * classification for this class itself; as in {@link RulesBase}, subclasses which register their rules through
+     * this class and keep its matching policy may override this method to return true.
+     * </p>
+     */
+    @Override
+    protected boolean isPatternIndexed()
+    {
+        return getClass() == ExtendedBaseRules.class;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Nested elements may only be matched by a pattern starting with a wildcard, or by a pattern extending the path,
+     * or by an ancestor or middle wildcard pattern whose ancestor is the path or one of its parents.
+     * </p>
+     */
+    @Override
+    public boolean mayMatchDescendants( final ElementPath path )
+    {
+        if ( !isPatternIndexed() || unanchoredPatterns )
+        {
+            return true;
+        }
+        // "a/b/c", "a/b/?", "a/b/*" and "a/b/*/c" extend "a" and "a/b", "a/b/*" and "a/b/*/c" also extend "a/b/c"
+        return anchoredPatterns.hasExtension( path, "*" );
+    }
+
+    /**
+     * Checks that none of the given rules has to be filtered out for the given namespace.
      *
-     * @param key The key to be found
-     * @param parentPattern The pattern where looking for the key
-     * @return true, if {@code key} is found inside {@code parentPattern}, false otherwise
+     * @param rules The rules to be checked
+     * @param namespaceURI The namespace URI to be matched, may be null
+     * @return true, if all the given rules match the given namespace URI, false otherwise
      */
-    private boolean parentMatch( final String key, final String parentPattern )
+    private static boolean matchesNamespace( final List<Rule> rules, final String namespaceURI )
     {
-        return parentPattern.endsWith( key.substring( 1, key.length() - 2 ) );
+        if ( namespaceURI == null )
+        {
+            return true;
+        }
+        for ( final Rule rule : rules )
+        {
+            if ( rule.getNamespaceURI() != null && !rule.getNamespaceURI().equals( namespaceURI ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Selects the longest non universal wildcard pattern.
+     *
+     * @param longest The longest pattern found so far, may be null
+     * @param candidate The matching pattern
+     * @param ignoreBasicMatches Whether the non universal wildcard patterns have to be ignored
+     * @return the longest pattern
+     */
+    private static WildcardPattern longest( final WildcardPattern longest, final WildcardPattern candidate,
+                                            final boolean ignoreBasicMatches )
+    {
+        if ( ignoreBasicMatches || candidate.rules == null )
+        {
+            return longest;
+        }
+        if ( longest == null || candidate.keyLength > longest.keyLength
+            || candidate.keyLength == longest.keyLength && candidate.entry < longest.entry )
+        {
+            return candidate;
+        }
+        return longest;
     }
 
     @Override
@@ -436,7 +962,150 @@ public class ExtendedBaseRules
     {
         super.registerRule( pattern, rule );
         counter++;
-        order.put( rule, counter );
+        if ( order.put( rule, counter ) != null )
+        {
+            reregisteredRules = true;
+        }
+
+        // classify the pattern the first time it is registered
+        final String key = normalizePattern( pattern );
+        final List<Rule> rules = this.cache.get( key );
+        if ( rules.size() == 1 )
+        {
+            indexPattern( key, rules );
+        }
+    }
+
+    /**
+     * Indexes the given pattern, so that it can be matched without testing all the registered patterns.
+     *
+     * @param key The registered pattern
+     * @param rules The list of rules registered for the pattern
+     */
+    private void indexPattern( final String key, final List<Rule> rules )
+    {
+        final int keyLength = key.length();
+
+        final String anchoredKey = key.startsWith( "!" ) ? key.substring( 1 ) : key;
+        if ( anchoredKey.startsWith( "*" ) )
+        {
+            unanchoredPatterns = true;
+        }
+        else
+        {
+            anchoredPatterns.getOrCreatePrefixNode( anchoredKey ).setValue( Boolean.TRUE );
+        }
+
+        // "a/b/*/c", where the parent pattern "a/b" has to contain a '/'
+        final int lastSlash = key.lastIndexOf( '/' );
+        if ( lastSlash > 1 && key.startsWith( "/*", lastSlash - 2 ) && key.lastIndexOf( '/', lastSlash - 3 ) != -1 )
+        {
+            final String last = key.substring( lastSlash + 1 );
+            middleWildcardPatterns.getOrCreatePrefixNode( last + "/" + key.substring( 0, lastSlash - 2 ) ).setValue( rules );
+        }
+
+        if ( key.endsWith( "/?" ) )
+        {
+            parentPatterns.getOrCreatePrefixNode( key.substring( 0, keyLength - 2 ) ).setValue( rules );
+            if ( key.startsWith( "!" ) )
+            {
+                universalParentPatterns.getOrCreatePrefixNode( key.substring( 1, keyLength - 2 ) ).setValue( rules );
+            }
+        }
+        else if ( key.endsWith( "/*" ) )
+        {
+            ancestorPatterns.getOrCreatePrefixNode( key.substring( 0, keyLength - 2 ) ).setValue( rules );
+        }
+
+        // find out if it's a universal pattern and find the underlying key
+        final boolean isUniversal = key.startsWith( "!" );
+        final String underlyingKey = isUniversal ? key.substring( 1 ) : key;
+        final int underlyingKeyLength = underlyingKey.length();
+        final boolean wildcardMatchStart = underlyingKey.startsWith( "*/" );
+        final boolean wildcardMatchEnd = underlyingKey.endsWith( "/*" );
+        final boolean parentMatchEnd = underlyingKey.endsWith( "/?" );
+
+        final WildcardPattern wildcardPattern;
+        if ( wildcardMatchStart && parentMatchEnd )
+        {
+            if ( underlyingKeyLength == 3 )
+            {
+                // "*/?" matches any parent
+                if ( anyParentPattern == null )
+                {
+                    anyParentPattern = new WildcardPattern();
+                }
+                wildcardPattern = anyParentPattern;
+            }
+            else
+            {
+                wildcardPattern =
+                    getOrCreate( tailParentPatterns.getOrCreateSuffixNode( underlyingKey.substring( 2, underlyingKeyLength - 2 ) ) );
+            }
+        }
+        else if ( wildcardMatchStart && wildcardMatchEnd )
+        {
+            WildcardPattern existing = null;
+            for ( final WildcardPattern tailAncestorPattern : tailAncestorPatterns )
+            {
+                if ( tailAncestorPattern.key.equals( underlyingKey ) )
+                {
+                    existing = tailAncestorPattern;
+                }
+            }
+            if ( existing == null )
+            {
+                // "*/*" is handled as an ancestor match with an empty body
+                final String body = underlyingKeyLength > 3 ? underlyingKey.substring( 2, underlyingKeyLength - 2 ) : "";
+                existing = new WildcardPattern();
+                existing.key = underlyingKey;
+                existing.body = body;
+                existing.bodyWithSlash = body + "/";
+                tailAncestorPatterns.add( existing );
+            }
+            wildcardPattern = existing;
+        }
+        else if ( wildcardMatchStart )
+        {
+            wildcardPattern = getOrCreate( tailPatterns.getOrCreateSuffixNode( underlyingKey.substring( 2 ) ) );
+        }
+        else if ( isUniversal && wildcardMatchEnd )
+        {
+            wildcardPattern =
+                getOrCreate( universalAncestorPatterns.getOrCreatePrefixNode( underlyingKey.substring( 0, underlyingKeyLength - 2 ) ) );
+        }
+        else
+        {
+            // exact patterns are matched through the cache
+            return;
+        }
+
+        if ( isUniversal )
+        {
+            wildcardPattern.universalRules = rules;
+        }
+        else
+        {
+            // ensure that all parent matches are SHORTER than rules with same level of matching.
+            wildcardPattern.rules = rules;
+            wildcardPattern.keyLength = underlyingKeyLength - ( wildcardMatchEnd || parentMatchEnd ? 2 : 1 );
+            wildcardPattern.entry = counter;
+        }
+    }
+
+    /**
+     * Returns the wildcard pattern of the given node, creating it if needed.
+     *
+     * @param node The node indexing the wildcard pattern
+     * @return the wildcard pattern of the given node
+     */
+    private static WildcardPattern getOrCreate( final PatternTrie.Node<WildcardPattern> node )
+    {
+        if ( node.getValue() == null )
+        {
+            node.setValue( new WildcardPattern() );
+        }
+        return node.getValue();
     }
 
 }
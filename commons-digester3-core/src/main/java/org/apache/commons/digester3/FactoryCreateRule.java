@@ -22,7 +22,6 @@ package org.apache.commons.digester3;
 import static java.lang.String.format;
 
 import java.util.Formatter;
-import java.util.Stack;
 
 import org.xml.sax.Attributes;
 
@@ -44,7 +43,7 @@ public class FactoryCreateRule
     private final boolean ignoreCreateExceptions;
 
     /** Stock to manage */
-    private Stack<Boolean> exceptionIgnoredStack;
+    private ArrayStack<Boolean> exceptionIgnoredStack;
 
     /**
      * The attribute containing an override class name if it is present.
@@ -224,7 +223,7 @@ public class FactoryCreateRule
         {
             if ( exceptionIgnoredStack == null )
             {
-                exceptionIgnoredStack = new Stack<>();
+                exceptionIgnoredStack = new ArrayStack<>();
             }
 
             try
@@ -283,7 +282,7 @@ public class FactoryCreateRule
         // this only happens if an exception was thrown and we're ignoring them
         if ( ignoreCreateExceptions
                         && exceptionIgnoredStack != null
-                        && !exceptionIgnoredStack.empty()
+                        && !exceptionIgnoredStack.isEmpty()
                         && exceptionIgnoredStack.pop().booleanValue() )
         {
             // creation exception was ignored
@@ -313,6 +312,11 @@ public class FactoryCreateRule
         {
             creationFactory = null;
         }
+        if ( exceptionIgnoredStack != null )
+        {
+            // left by an interrupted parse
+            exceptionIgnoredStack.clear();
+        }
     }
 
     /**
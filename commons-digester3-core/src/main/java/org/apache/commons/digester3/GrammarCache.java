@@ -0,0 +1,172 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.XMLReader;
+
+/**
+ * A cache of the compiled grammars, DTDs and XML Schemas, used to validate the parsed documents, so that they are
+ * compiled once and reused across the parses and the Digester instances.
+ * <p>
+ * The parsers derived from Xerces, such as the one of the JDK, are given a grammar pool, shared by all the parsers of
+ * the same implementation, which caches the DTDs and the XML Schemas referenced by the documents they validate. The
+ * grammar pool is internal to those parsers, and may not be accessible, such as with the parser of the JDK from Java
+ * 9 on, unless its package is exported to this library; the parsers which cannot be given a grammar pool compile the
+ * grammars at each parse. The XML Schemas given to the {@link javax.xml.parsers.SAXParserFactory}, which the parsers
+ * validate the documents against whatever their implementation, are cached by URL through
+ * {@link #getSchema(URL)}. The cache is thread safe.
+ * </p>
+ *
+ * @see Digester#setGrammarCache(GrammarCache)
+ * @since 3.3
+ */
+public final class GrammarCache
+{
+
+    /** The property of the Xerces parsers holding their grammar pool. */
+    private static final String GRAMMAR_POOL = "http://apache.org/xml/properties/internal/grammar-pool";
+
+    /** The grammar pool of the parser implementations which cannot be given one. */
+    private static final Object UNSUPPORTED = new Object();
+
+    /** The grammar pools, by class of the XML readers using them. */
+    private final ConcurrentMap<Class<?>, Object> grammarPools = new ConcurrentHashMap<>();
+
+    /** The compiled XML Schemas, by URL. */
+    private final ConcurrentMap<String, Schema> schemas = new ConcurrentHashMap<>();
+
+    /**
+     * Discards the cached grammars.
+     */
+    public void clear()
+    {
+        grammarPools.clear();
+        schemas.clear();
+    }
+
+    /**
+     * Gives the grammar pool of this cache to the given XML reader, if its implementation supports it.
+     *
+     * @param reader the XML reader about to parse a document
+     * @return true if the XML reader caches its grammars in this cache, false if it compiles them at each parse
+     */
+    public boolean configure( final XMLReader reader )
+    {
+        final Object grammarPool = getGrammarPool( reader );
+        if ( grammarPool == UNSUPPORTED )
+        {
+            return false;
+        }
+        try
+        {
+            reader.setProperty( GRAMMAR_POOL, grammarPool );
+            return true;
+        }
+        catch ( final SAXNotRecognizedException | SAXNotSupportedException e )
+        {
+            grammarPools.put( reader.getClass(), UNSUPPORTED );
+            return false;
+        }
+    }
+
+    /**
+     * Creates the grammar pool of the given XML reader, from the grammar pool implementation of its Xerces package.
+     *
+     * @param readerClass the class of the XML reader
+     * @return the new grammar pool, {@link #UNSUPPORTED} if the XML reader is not a Xerces one or if its grammar pool
+     *         implementation is not accessible
+     */
+    private static Object createGrammarPool( final Class<?> readerClass )
+    {
+        final String name = readerClass.getName();
+        int packageEnd = name.indexOf( ".jaxp." );
+        if ( packageEnd < 0 )
+        {
+            packageEnd = name.indexOf( ".parsers." );
+        }
+        if ( packageEnd < 0 )
+        {
+            return UNSUPPORTED;
+        }
+
+        try
+        {
+            return Class.forName( name.substring( 0, packageEnd ) + ".util.XMLGrammarPoolImpl", true,
+                                  readerClass.getClassLoader() ).getConstructor().newInstance();
+        }
+        catch ( final ReflectiveOperationException | LinkageError | SecurityException e )
+        {
+            return UNSUPPORTED;
+        }
+    }
+
+    private Object getGrammarPool( final XMLReader reader )
+    {
+        final Class<?> readerClass = reader.getClass();
+        Object grammarPool = grammarPools.get( readerClass );
+        if ( grammarPool == null )
+        {
+            grammarPool = createGrammarPool( readerClass );
+            final Object cached = grammarPools.putIfAbsent( readerClass, grammarPool );
+            if ( cached != null )
+            {
+                grammarPool = cached;
+            }
+        }
+        return grammarPool;
+    }
+
+    /**
+     * Gets the W3C XML Schema at the given URL, compiling it if it is not cached.
+     *
+     * @param url the URL of the XML Schema
+     * @return the compiled XML Schema, shared by all the callers
+     * @throws SAXException if the XML Schema cannot be read or compiled
+     */
+    public Schema getSchema( final URL url )
+        throws SAXException
+    {
+        final String key = url.toExternalForm();
+        Schema schema = schemas.get( key );
+        if ( schema == null )
+        {
+            // a schema factory is not thread safe, and it is cheap compared to the compilation of the schema
+            schema = SchemaFactory.newInstance( XMLConstants.W3C_XML_SCHEMA_NS_URI ).newSchema( url );
+            final Schema cached = schemas.putIfAbsent( key, schema );
+            if ( cached != null )
+            {
+                schema = cached;
+            }
+        }
+        return schema;
+    }
+
+}
@@ -0,0 +1,328 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.xml.sax.InputSource;
+
+/**
+ * Publishes to a subscriber, with backpressure, the objects that the rules of a {@link Digester} push for the elements
+ * matching a pattern, as {@link Digester#stream(InputSource, String, Class)} streams them.
+ * <p>
+ * The document is parsed on the executor of the Digester, only as long as the subscriber has requested objects not
+ * yet delivered: the parse pauses when that demand reaches zero and resumes on {@link Subscription#request(long)}, so
+ * that the memory used is bounded by the demand of the subscriber rather than by the size of the document.
+ * </p>
+ * <p>
+ * The {@link Subscriber} and {@link Subscription} contracts are the ones of the Reactive Streams specification, and
+ * their methods the ones of {@code java.util.concurrent.Flow}, to which they are trivially adapted on Java 9 and
+ * later. The document being parsed once, a publisher accepts a single subscriber; the next ones are notified an
+ * {@link IllegalStateException}.
+ * </p>
+ *
+ * @param <T> the type of the published objects
+ * @since 3.3
+ */
+public final class ObjectPublisher<T>
+{
+
+    /**
+     * Receives the objects of an {@link ObjectPublisher}, as the {@code java.util.concurrent.Flow.Subscriber} of the
+     * same name.
+     *
+     * @param <T> the type of the received objects
+     */
+    public interface Subscriber<T>
+    {
+
+        /**
+         * Invoked once the parse completed, after all the objects have been received.
+         */
+        void onComplete();
+
+        /**
+         * Invoked when the parse or the subscription failed; no other method is invoked then.
+         *
+         * @param throwable the failure, a {@link org.xml.sax.SAXException} when the document cannot be parsed
+         */
+        void onError( Throwable throwable );
+
+        /**
+         * Invoked with the next object, once requested.
+         *
+         * @param item the next object
+         */
+        void onNext( T item );
+
+        /**
+         * Invoked first, with the subscription through which the objects are requested.
+         *
+         * @param subscription the subscription of the subscriber
+         */
+        void onSubscribe( Subscription subscription );
+
+    }
+
+    /**
+     * Controls the delivery of the objects to a {@link Subscriber}, as the
+     * {@code java.util.concurrent.Flow.Subscription} of the same name.
+     */
+    public interface Subscription
+    {
+
+        /**
+         * Stops the parse, no more objects being delivered.
+         */
+        void cancel();
+
+        /**
+         * Requests more objects, the parse going on until they are delivered.
+         *
+         * @param n the number of additional objects requested, {@code Long.MAX_VALUE} for all; the subscriber is
+         *            notified an {@link IllegalArgumentException} if not positive
+         */
+        void request( long n );
+
+    }
+
+    private final Digester digester;
+
+    private final InputSource input;
+
+    private final String pattern;
+
+    private final Class<T> type;
+
+    private final Executor executor;
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Creates a new publisher.
+     *
+     * @param digester the Digester parsing the document
+     * @param input the document to parse
+     * @param pattern the pattern of the elements for which the pushed objects are published
+     * @param type the type of the published objects
+     * @param executor the executor parsing the document
+     */
+    ObjectPublisher( final Digester digester, final InputSource input, final String pattern, final Class<T> type,
+                     final Executor executor )
+    {
+        this.digester = digester;
+        this.input = input;
+        this.pattern = pattern;
+        this.type = type;
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes the given subscriber, the parse starting on its first request.
+     *
+     * @param subscriber the subscriber receiving the objects
+     */
+    public void subscribe( final Subscriber<? super T> subscriber )
+    {
+        if ( subscriber == null )
+        {
+            throw new NullPointerException( "Subscriber is null" );
+        }
+        if ( !subscribed.compareAndSet( false, true ) )
+        {
+            subscriber.onSubscribe( new Subscription()
+            {
+                @Override
+                public void cancel()
+                {
+                    // nothing to stop
+                }
+
+                @Override
+                public void request( final long n )
+                {
+                    // nothing to deliver
+                }
+            } );
+            subscriber.onError( new IllegalStateException( "ObjectPublisher accepts a single subscriber" ) );
+            return;
+        }
+        subscriber.onSubscribe( new ParseSubscription( subscriber ) );
+    }
+
+    /**
+     * Parses the document on behalf of a subscriber, one drain at a time on the executor.
+     */
+    private final class ParseSubscription
+        implements Subscription
+    {
+
+        private final Subscriber<? super T> subscriber;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        /** The number of drain requests not yet served, the drain running while not zero. */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private volatile boolean cancelled;
+
+        private volatile Throwable invalidRequest;
+
+        /** Only accessed by the drain. */
+        private Stream<T> stream;
+
+        /** Only accessed by the drain. */
+        private Iterator<T> iterator;
+
+        /** Only accessed by the drain. */
+        private boolean done;
+
+        ParseSubscription( final Subscriber<? super T> subscriber )
+        {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            schedule();
+        }
+
+        @Override
+        public void request( final long n )
+        {
+            if ( n <= 0 )
+            {
+                invalidRequest = new IllegalArgumentException( "Non-positive number of objects requested: " + n );
+                cancelled = true;
+            }
+            else
+            {
+                long current;
+                do
+                {
+                    current = requested.get();
+                }
+                while ( !requested.compareAndSet( current, addCap( current, n ) ) );
+            }
+            schedule();
+        }
+
+        private long addCap( final long current, final long n )
+        {
+            final long sum = current + n;
+            return sum < 0 ? Long.MAX_VALUE : sum;
+        }
+
+        private void drain()
+        {
+            int missed = 1;
+            do
+            {
+                if ( !done )
+                {
+                    emit();
+                }
+                missed = pending.addAndGet( -missed );
+            }
+            while ( missed != 0 );
+        }
+
+        private void emit()
+        {
+            try
+            {
+                if ( iterator == null && !cancelled )
+                {
+                    stream = digester.stream( input, pattern, type );
+                    iterator = stream.iterator();
+                }
+                while ( !cancelled )
+                {
+                    final long demand = requested.get();
+                    if ( demand == 0 )
+                    {
+                        return;
+                    }
+                    if ( !iterator.hasNext() )
+                    {
+                        terminate();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    subscriber.onNext( iterator.next() );
+                    if ( demand != Long.MAX_VALUE )
+                    {
+                        requested.decrementAndGet();
+                    }
+                }
+                terminate();
+                if ( invalidRequest != null )
+                {
+                    subscriber.onError( invalidRequest );
+                }
+            }
+            catch ( final UncheckedSAXException e )
+            {
+                fail( e.getCause() );
+            }
+            catch ( final Exception e )
+            {
+                fail( e );
+            }
+        }
+
+        private void fail( final Throwable throwable )
+        {
+            if ( !done )
+            {
+                terminate();
+                subscriber.onError( throwable );
+            }
+        }
+
+        private void schedule()
+        {
+            if ( pending.getAndIncrement() == 0 )
+            {
+                executor.execute( this::drain );
+            }
+        }
+
+        private void terminate()
+        {
+            done = true;
+            if ( stream != null )
+            {
+                stream.close();
+                stream = null;
+            }
+            iterator = null;
+        }
+
+    }
+
+}
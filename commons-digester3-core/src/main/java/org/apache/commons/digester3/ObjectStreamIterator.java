@@ -0,0 +1,196 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Iterates over the objects that the rules of a {@link Digester} push for the elements matching a pattern, each object
+ * being returned once the end of its element has been processed.
+ * <p>
+ * The document is pulled from a StAX cursor on demand, one object ahead at most, so that the memory used does not
+ * depend on the size of the document as long as the rules do not retain the returned objects. The elements matching
+ * the pattern are selected with the {@link RulesBase} matching policy; an element for which the rules push no object
+ * does not yield any.
+ * </p>
+ *
+ * @param <T> the type of the returned objects
+ * @since 3.3
+ */
+final class ObjectStreamIterator<T>
+    implements Iterator<T>, AutoCloseable
+{
+
+    private final Digester digester;
+
+    private final XMLStreamReader reader;
+
+    private final Class<T> type;
+
+    private final Rules patternRules = new RulesBase();
+
+    private final StaxDispatcher dispatcher;
+
+    /** The object pushed for each element being processed, null if none or if the element does not match. */
+    private final ArrayStack<Object> pushed = new ArrayStack<>();
+
+    private T next;
+
+    private boolean finished;
+
+    private boolean released;
+
+    /**
+     * Creates a new iterator and starts the parse; the Digester must not be used otherwise until the iterator is
+     * closed or exhausted.
+     *
+     * @param digester the Digester parsing the document
+     * @param reader the cursor delivering the document
+     * @param pattern the pattern of the elements for which the pushed objects are returned
+     * @param type the type of the returned objects
+     * @throws SAXException if the parse cannot be started
+     */
+    ObjectStreamIterator( final Digester digester, final XMLStreamReader reader, final String pattern,
+                          final Class<T> type )
+        throws SAXException
+    {
+        this.digester = digester;
+        this.reader = reader;
+        this.type = type;
+        patternRules.add( pattern, new Rule()
+        {
+            // only marks the pattern
+        } );
+        dispatcher = new StaxDispatcher( digester, digester.getNamespaceAware() );
+        dispatcher.start( reader );
+    }
+
+    /**
+     * Stops the parse, if not already over, and closes the cursor; the Digester can then be used again.
+     */
+    @Override
+    public void close()
+    {
+        next = null;
+        if ( !finished )
+        {
+            finished = true;
+            digester.clear();
+        }
+        release();
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        while ( next == null && !finished )
+        {
+            try
+            {
+                advance();
+            }
+            catch ( final SAXException e )
+            {
+                close();
+                throw new UncheckedSAXException( e );
+            }
+            catch ( final XMLStreamException e )
+            {
+                close();
+                throw new UncheckedSAXException( digester.createSAXException( e ) );
+            }
+            if ( finished )
+            {
+                release();
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public T next()
+    {
+        if ( !hasNext() )
+        {
+            throw new NoSuchElementException();
+        }
+        final T result = next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * Dispatches the next event of the document to the Digester.
+     */
+    private void advance()
+        throws XMLStreamException, SAXException
+    {
+        final int eventType = dispatcher.getEventType();
+        final int count = digester.getCount();
+        final int depth = pushed.size() + 1;
+        finished = !dispatcher.dispatchNext();
+
+        if ( eventType == XMLStreamConstants.START_ELEMENT )
+        {
+            final ElementPath path = digester.getElementPath();
+            final boolean matched = path.getDepth() == depth && digester.getCount() > count
+                && !patternRules.matchPath( null, path, path.getLastName(), null ).isEmpty();
+            pushed.push( matched ? digester.peek() : null );
+        }
+        else if ( eventType == XMLStreamConstants.END_ELEMENT && !pushed.isEmpty() )
+        {
+            final Object object = pushed.pop();
+            if ( object != null )
+            {
+                next = type.cast( object );
+            }
+        }
+    }
+
+    /**
+     * Releases the resources of the parse once it is over.
+     */
+    private void release()
+    {
+        if ( released )
+        {
+            return;
+        }
+        released = true;
+        pushed.clear();
+        digester.cleanup();
+        try
+        {
+            reader.close();
+        }
+        catch ( final XMLStreamException e )
+        {
+            digester.getLogger().warn( "An error occurred while closing the stream reader", e );
+        }
+    }
+
+}
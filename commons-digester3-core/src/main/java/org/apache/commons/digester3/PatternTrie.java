@@ -0,0 +1,392 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * A trie of '/' separated path segments, used by the {@code Rules} implementations to index their patterns.
+ * <p>
+ * Paths can be indexed starting either from their first or from their last segment; lookups walk the matched path
+ * segment by segment, without allocating intermediate strings, so their cost only depends on the depth of the path
+ * and not on the number of indexed entries.
+ * </p>
+ * <p>
+ * Instances are not thread safe while being populated; once populated, concurrent lookups are safe.
+ * </p>
+ *
+ * @param <V> the type of the values associated to the indexed paths
+ * @since 3.3
+ */
+final class PatternTrie<V>
+{
+
+    /**
+     * A node of the trie, its children are stored in an open addressing hash table keyed by segment.
+     *
+     * @param <V> the type of the value associated to the node
+     */
+    static final class Node<V>
+    {
+
+        private static final int INITIAL_CAPACITY = 4;
+
+        private V value;
+
+        private String[] segments;
+
+        private Node<V>[] children;
+
+        private int size;
+
+        /**
+         * Returns the child of this node for the given segment.
+         *
+         * @param path the path containing the segment
+         * @param start the index of the first character of the segment
+         * @param end the index after the last character of the segment
+         * @return the child of this node for the given segment, {@code null} if none
+         */
+        Node<V> getChild( final CharSequence path, final int start, final int end )
+        {
+            if ( segments == null )
+            {
+                return null;
+            }
+
+            final int mask = segments.length - 1;
+            for ( int i = hash( path, start, end ) & mask; segments[i] != null; i = ( i + 1 ) & mask )
+            {
+                if ( regionEquals( segments[i], path, start, end ) )
+                {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node<V> getOrCreateChild( final String path, final int start, final int end )
+        {
+            Node<V> child = getChild( path, start, end );
+            if ( child == null )
+            {
+                if ( segments == null )
+                {
+                    segments = new String[INITIAL_CAPACITY];
+                    children = newNodes( INITIAL_CAPACITY );
+                }
+                else if ( ( size + 1 ) * 2 > segments.length )
+                {
+                    resize();
+                }
+                child = new Node<>();
+                put( path.substring( start, end ), child );
+                size++;
+            }
+            return child;
+        }
+
+        /**
+         * Tells whether this node has children.
+         *
+         * @return true if this node has children
+         */
+        boolean hasChildren()
+        {
+            return size > 0;
+        }
+
+        /**
+         * Returns the value associated to this node.
+         *
+         * @return the value associated to this node, {@code null} if none
+         */
+        V getValue()
+        {
+            return value;
+        }
+
+        /**
+         * Sets the value associated to this node.
+         *
+         * @param value the value associated to this node
+         */
+        void setValue( final V value )
+        {
+            this.value = value;
+        }
+
+        private void put( final String segment, final Node<V> child )
+        {
+            final int mask = segments.length - 1;
+            int i = hash( segment, 0, segment.length() ) & mask;
+            while ( segments[i] != null )
+            {
+                i = ( i + 1 ) & mask;
+            }
+            segments[i] = segment;
+            children[i] = child;
+        }
+
+        private void resize()
+        {
+            final String[] oldSegments = segments;
+            final Node<V>[] oldChildren = children;
+            segments = new String[oldSegments.length * 2];
+            children = newNodes( oldSegments.length * 2 );
+            for ( int i = 0; i < oldSegments.length; i++ )
+            {
+                if ( oldSegments[i] != null )
+                {
+                    put( oldSegments[i], oldChildren[i] );
+                }
+            }
+        }
+
+        @SuppressWarnings( "unchecked" )
+        private static <V> Node<V>[] newNodes( final int capacity )
+        {
+            return (Node<V>[]) new Node<?>[capacity];
+        }
+
+    }
+
+    private static int hash( final CharSequence path, final int start, final int end )
+    {
+        int h = 0;
+        for ( int i = start; i < end; i++ )
+        {
+            h = 31 * h + path.charAt( i );
+        }
+        return h ^ ( h >>> 16 );
+    }
+
+    private static boolean regionEquals( final String segment, final CharSequence path, final int start, final int end )
+    {
+        final int length = segment.length();
+        if ( length != end - start )
+        {
+            return false;
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( segment.charAt( i ) != path.charAt( start + i ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Node<V> root = new Node<>();
+
+    /**
+     * Indexes the given path starting from its first segment.
+     *
+     * @param path the '/' separated path to index
+     * @param value the value associated to the path
+     */
+    void addPrefix( final String path, final V value )
+    {
+        getOrCreatePrefixNode( path ).setValue( value );
+    }
+
+    /**
+     * Indexes the given path starting from its last segment.
+     *
+     * @param path the '/' separated path to index
+     * @param value the value associated to the path
+     */
+    void addSuffix( final String path, final V value )
+    {
+        getOrCreateSuffixNode( path ).setValue( value );
+    }
+
+    /**
+     * Returns the root of the trie, to walk it segment by segment.
+     *
+     * @return the root of the trie
+     */
+    Node<V> getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Returns the node indexing the given path starting from its first segment, creating it if needed.
+     *
+     * @param path the '/' separated path to index
+     * @return the node indexing the given path
+     */
+    Node<V> getOrCreatePrefixNode( final String path )
+    {
+        Node<V> node = root;
+        int start = 0;
+        while ( true )
+        {
+            int end = path.indexOf( '/', start );
+            if ( end == -1 )
+            {
+                end = path.length();
+            }
+            node = node.getOrCreateChild( path, start, end );
+            if ( end == path.length() )
+            {
+                return node;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Returns the node indexing the given path starting from its last segment, creating it if needed.
+     *
+     * @param path the '/' separated path to index
+     * @return the node indexing the given path
+     */
+    Node<V> getOrCreateSuffixNode( final String path )
+    {
+        Node<V> node = root;
+        int end = path.length();
+        while ( true )
+        {
+            final int start = path.lastIndexOf( '/', end - 1 ) + 1;
+            node = node.getOrCreateChild( path, start, end );
+            if ( start == 0 )
+            {
+                return node;
+            }
+            end = start - 1;
+        }
+    }
+
+    /**
+     * Removes all the indexed paths.
+     */
+    void clear()
+    {
+        root = new Node<>();
+    }
+
+    /**
+     * Returns the value associated to the given path, where the paths are indexed via
+     * {@link #addPrefix(String, Object)} and are compared segment by segment.
+     *
+     * @param path the '/' separated path to look up
+     * @return the value associated to the given path, {@code null} if none
+     */
+    V get( final CharSequence path )
+    {
+        Node<V> node = root;
+        final int length = path.length();
+        int start = 0;
+        while ( true )
+        {
+            int end = start;
+            while ( end < length && path.charAt( end ) != '/' )
+            {
+                end++;
+            }
+            node = node.getChild( path, start, end );
+            if ( node == null )
+            {
+                return null;
+            }
+            if ( end == length )
+            {
+                return node.value;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Tells whether a path indexed via {@link #addPrefix(String, Object)} or {@link #getOrCreatePrefixNode(String)}
+     * strictly extends the given path, or extends the given path or one of its prefixes with the given wildcard
+     * segment.
+     *
+     * @param path the '/' separated path to look up
+     * @param wildcard the wildcard segment, {@code null} if none
+     * @return true if an indexed path extends the given path, or one of its prefixes with the wildcard segment
+     */
+    boolean hasExtension( final CharSequence path, final String wildcard )
+    {
+        Node<V> node = root;
+        final int length = path.length();
+        int start = 0;
+        while ( true )
+        {
+            int end = start;
+            while ( end < length && path.charAt( end ) != '/' )
+            {
+                end++;
+            }
+            node = node.getChild( path, start, end );
+            if ( node == null )
+            {
+                return false;
+            }
+            if ( wildcard != null && node.getChild( wildcard, 0, wildcard.length() ) != null )
+            {
+                return true;
+            }
+            if ( end == length )
+            {
+                return node.hasChildren();
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Returns the value associated to the longest indexed suffix of the given path, where the suffixes are indexed via
+     * {@link #addSuffix(String, Object)} and are compared segment by segment.
+     *
+     * @param path the '/' separated path to look up
+     * @return the value associated to the longest indexed suffix of the given path, {@code null} if none
+     */
+    V getLongestSuffix( final CharSequence path )
+    {
+        V result = null;
+        Node<V> node = root;
+        int end = path.length();
+        while ( true )
+        {
+            int start = end;
+            while ( start > 0 && path.charAt( start - 1 ) != '/' )
+            {
+                start--;
+            }
+            node = node.getChild( path, start, end );
+            if ( node == null )
+            {
+                return result;
+            }
+            if ( node.value != null )
+            {
+                result = node.value;
+            }
+            if ( start == 0 )
+            {
+                return result;
+            }
+            end = start - 1;
+        }
+    }
+
+}
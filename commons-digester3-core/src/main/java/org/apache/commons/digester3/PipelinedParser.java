@@ -0,0 +1,817 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parses a document with two threads: a tokenizer thread runs the SAX parser and records its events into a bounded
+ * ring buffer, while the thread invoking {@link #parse(XMLReader, InputSource)} replays them, in the same order, to the
+ * handlers of the {@link Digester}, where the rules are executed.
+ * <p>
+ * The ring buffer has a single producer and a single consumer, and is lock free: the slots are preallocated and reused,
+ * the characters and attributes being copied into them, and each side only waits, spinning then parking, when the
+ * buffer is full or empty. The location of each event is recorded with it and reported by the {@link Locator} given to
+ * the Digester, so that the exceptions created while replaying an event are the ones the single threaded parse
+ * creates. The {@link ErrorHandler} and the {@link EntityResolver} are invoked on the replaying thread too, the
+ * tokenizer waiting for their outcome, so that the state of the Digester is only accessed by the thread parsing the
+ * document; the failure of the parser is rethrown once the events preceding it have been replayed.
+ * </p>
+ * <p>
+ * The tokenizer is a {@link BackgroundTask}, run by the executor of the Digester if it has one. When the replay
+ * fails, the tokenizer is aborted: the streams of the input are closed and the tokenizer interrupted, so that it does
+ * not stay blocked in a read, and waited for a bounded time only.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class PipelinedParser
+{
+
+    private static final int SET_DOCUMENT_LOCATOR = 0;
+
+    private static final int START_DOCUMENT = 1;
+
+    private static final int END_DOCUMENT = 2;
+
+    private static final int START_PREFIX_MAPPING = 3;
+
+    private static final int END_PREFIX_MAPPING = 4;
+
+    private static final int START_ELEMENT = 5;
+
+    private static final int END_ELEMENT = 6;
+
+    private static final int CHARACTERS = 7;
+
+    private static final int IGNORABLE_WHITESPACE = 8;
+
+    private static final int PROCESSING_INSTRUCTION = 9;
+
+    private static final int SKIPPED_ENTITY = 10;
+
+    private static final int NOTATION_DECL = 11;
+
+    private static final int UNPARSED_ENTITY_DECL = 12;
+
+    private static final int WARNING = 13;
+
+    private static final int ERROR = 14;
+
+    private static final int FATAL_ERROR = 15;
+
+    private static final int RESOLVE_ENTITY = 16;
+
+    /** The parse is over, successfully. */
+    private static final int PARSED = 17;
+
+    /** The parse is over, the parser failed. */
+    private static final int FAILED = 18;
+
+    private static final int SPINS = 128;
+
+    private static final int YIELDS = 256;
+
+    private static final long PARK_NANOS = 50000L;
+
+    /** The outcome of an error handler or entity resolver invocation which did not throw nor return an input. */
+    private static final Object HANDLED = new Object();
+
+    /**
+     * A recorded parse event; the slots of the ring buffer are reused, only the fields used by the event type being
+     * meaningful.
+     */
+    private static final class Event
+    {
+
+        int type;
+
+        String first;
+
+        String second;
+
+        String third;
+
+        String fourth;
+
+        final AttributesImpl attributes = new AttributesImpl();
+
+        char[] chars = new char[64];
+
+        int length;
+
+        int lineNumber;
+
+        int columnNumber;
+
+        String publicId;
+
+        String systemId;
+
+        Throwable throwable;
+
+    }
+
+    /**
+     * The locator given to the Digester, reporting the location recorded with the event being replayed.
+     */
+    private static final class ReplayLocator
+        implements Locator
+    {
+
+        private int lineNumber = -1;
+
+        private int columnNumber = -1;
+
+        private String publicId;
+
+        private String systemId;
+
+        @Override
+        public int getColumnNumber()
+        {
+            return columnNumber;
+        }
+
+        @Override
+        public int getLineNumber()
+        {
+            return lineNumber;
+        }
+
+        @Override
+        public String getPublicId()
+        {
+            return publicId;
+        }
+
+        @Override
+        public String getSystemId()
+        {
+            return systemId;
+        }
+
+        void moveTo( final Event event )
+        {
+            lineNumber = event.lineNumber;
+            columnNumber = event.columnNumber;
+            publicId = event.publicId;
+            systemId = event.systemId;
+        }
+
+    }
+
+    /**
+     * The handler of the parser, on the tokenizer thread, recording the events into the ring buffer.
+     */
+    private final class Recorder
+        implements ContentHandler, DTDHandler, EntityResolver, ErrorHandler
+    {
+
+        private Locator locator;
+
+        @Override
+        public void characters( final char[] ch, final int start, final int length )
+            throws SAXException
+        {
+            final Event event = claim( CHARACTERS );
+            copyCharacters( event, ch, start, length );
+            publish();
+        }
+
+        @Override
+        public void endDocument()
+            throws SAXException
+        {
+            claim( END_DOCUMENT );
+            publish();
+        }
+
+        @Override
+        public void endElement( final String uri, final String localName, final String qName )
+            throws SAXException
+        {
+            final Event event = claim( END_ELEMENT );
+            event.first = uri;
+            event.second = localName;
+            event.third = qName;
+            publish();
+        }
+
+        @Override
+        public void endPrefixMapping( final String prefix )
+            throws SAXException
+        {
+            claim( END_PREFIX_MAPPING ).first = prefix;
+            publish();
+        }
+
+        @Override
+        public void error( final SAXParseException exception )
+            throws SAXException
+        {
+            handleError( ERROR, exception );
+        }
+
+        @Override
+        public void fatalError( final SAXParseException exception )
+            throws SAXException
+        {
+            handleError( FATAL_ERROR, exception );
+        }
+
+        @Override
+        public void ignorableWhitespace( final char[] ch, final int start, final int length )
+            throws SAXException
+        {
+            final Event event = claim( IGNORABLE_WHITESPACE );
+            copyCharacters( event, ch, start, length );
+            publish();
+        }
+
+        @Override
+        public void notationDecl( final String name, final String publicId, final String systemId )
+            throws SAXException
+        {
+            final Event event = claim( NOTATION_DECL );
+            event.first = name;
+            event.second = publicId;
+            event.third = systemId;
+            publish();
+        }
+
+        @Override
+        public void processingInstruction( final String target, final String data )
+            throws SAXException
+        {
+            final Event event = claim( PROCESSING_INSTRUCTION );
+            event.first = target;
+            event.second = data;
+            publish();
+        }
+
+        @Override
+        public InputSource resolveEntity( final String publicId, final String systemId )
+            throws IOException, SAXException
+        {
+            final Event event = claim( RESOLVE_ENTITY );
+            event.first = publicId;
+            event.second = systemId;
+            final Object outcome = handOver();
+            if ( outcome instanceof InputSource )
+            {
+                return (InputSource) outcome;
+            }
+            if ( outcome instanceof IOException )
+            {
+                throw (IOException) outcome;
+            }
+            return null;
+        }
+
+        @Override
+        public void setDocumentLocator( final Locator locator )
+        {
+            this.locator = locator;
+            try
+            {
+                claim( SET_DOCUMENT_LOCATOR );
+                publish();
+            }
+            catch ( final SAXException e )
+            {
+                // the parse has been aborted, the next event will stop it
+            }
+        }
+
+        @Override
+        public void skippedEntity( final String name )
+            throws SAXException
+        {
+            claim( SKIPPED_ENTITY ).first = name;
+            publish();
+        }
+
+        @Override
+        public void startDocument()
+            throws SAXException
+        {
+            claim( START_DOCUMENT );
+            publish();
+        }
+
+        @Override
+        public void startElement( final String uri, final String localName, final String qName,
+                                  final Attributes atts )
+            throws SAXException
+        {
+            final Event event = claim( START_ELEMENT );
+            event.first = uri;
+            event.second = localName;
+            event.third = qName;
+            final AttributesImpl attributes = event.attributes;
+            attributes.clear();
+            for ( int i = 0; i < atts.getLength(); i++ )
+            {
+                attributes.addAttribute( atts.getURI( i ), atts.getLocalName( i ), atts.getQName( i ),
+                                         atts.getType( i ), atts.getValue( i ) );
+            }
+            publish();
+        }
+
+        @Override
+        public void startPrefixMapping( final String prefix, final String uri )
+            throws SAXException
+        {
+            final Event event = claim( START_PREFIX_MAPPING );
+            event.first = prefix;
+            event.second = uri;
+            publish();
+        }
+
+        @Override
+        public void unparsedEntityDecl( final String name, final String publicId, final String systemId,
+                                        final String notationName )
+            throws SAXException
+        {
+            final Event event = claim( UNPARSED_ENTITY_DECL );
+            event.first = name;
+            event.second = publicId;
+            event.third = systemId;
+            event.fourth = notationName;
+            publish();
+        }
+
+        @Override
+        public void warning( final SAXParseException exception )
+            throws SAXException
+        {
+            handleError( WARNING, exception );
+        }
+
+        /**
+         * Waits for a free slot, and returns it with the given type and the current location.
+         */
+        private Event claim( final int type )
+            throws SAXException
+        {
+            int idle = 0;
+            while ( produced - consumed.get() == slots.length )
+            {
+                checkNotAborted();
+                idle = idle( idle );
+            }
+            checkNotAborted();
+            final Event event = slots[(int) produced & mask];
+            event.type = type;
+            if ( locator != null )
+            {
+                event.lineNumber = locator.getLineNumber();
+                event.columnNumber = locator.getColumnNumber();
+                event.publicId = locator.getPublicId();
+                event.systemId = locator.getSystemId();
+            }
+            return event;
+        }
+
+        private void checkNotAborted()
+            throws SAXException
+        {
+            if ( aborted )
+            {
+                throw new SAXException( "Pipelined parse aborted" );
+            }
+        }
+
+        private void copyCharacters( final Event event, final char[] ch, final int start, final int length )
+        {
+            if ( event.chars.length < length )
+            {
+                event.chars = new char[Math.max( length, event.chars.length * 2 )];
+            }
+            System.arraycopy( ch, start, event.chars, 0, length );
+            event.length = length;
+        }
+
+        /**
+         * Has the error replayed to the error handler, and waits for its outcome.
+         */
+        private void handleError( final int type, final SAXParseException exception )
+            throws SAXException
+        {
+            claim( type ).throwable = exception;
+            handOver();
+        }
+
+        /**
+         * Publishes the last claimed event and waits for the outcome of its replay, rethrowing the
+         * {@link SAXException} or {@link RuntimeException} it is.
+         */
+        private Object handOver()
+            throws SAXException
+        {
+            outcome = null;
+            publish();
+
+            int idle = 0;
+            Object result;
+            while ( ( result = outcome ) == null )
+            {
+                checkNotAborted();
+                idle = idle( idle );
+            }
+            outcome = null;
+            if ( result instanceof SAXException )
+            {
+                throw (SAXException) result;
+            }
+            if ( result instanceof RuntimeException )
+            {
+                throw (RuntimeException) result;
+            }
+            return result;
+        }
+
+    }
+
+    private final Event[] slots;
+
+    private final int mask;
+
+    /** The executor running the tokenizer, may be null. */
+    private final ExecutorService executor;
+
+    /** Whether the tokenizer is still using the reader, having not stopped in time once aborted. */
+    private boolean tokenizing;
+
+    /** The number of events published, only written by the tokenizer thread. */
+    private final AtomicLong published = new AtomicLong();
+
+    /** The number of events replayed and released, only written by the replaying thread. */
+    private final AtomicLong consumed = new AtomicLong();
+
+    /** The number of events claimed, only accessed by the tokenizer thread. */
+    private long produced;
+
+    /** Set by the replaying thread when it fails, the tokenizer then stopping at its next event. */
+    private volatile boolean aborted;
+
+    /** The outcome of the last error or entity resolution replayed, awaited by the tokenizer. */
+    private volatile Object outcome;
+
+    /**
+     * Creates a new pipelined parser.
+     *
+     * @param capacity the minimum number of events the ring buffer can hold
+     * @param executor the executor running the tokenizer, or null to run it on its own thread
+     */
+    PipelinedParser( final int capacity, final ExecutorService executor )
+    {
+        this.executor = executor;
+        int size = 2;
+        while ( size < capacity && size < 1 << 30 )
+        {
+            size <<= 1;
+        }
+        slots = new Event[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            slots[i] = new Event();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Parses the given input with the given reader on a tokenizer thread, and replays its events to the Digester on
+     * the current thread. The content, DTD and error handlers and the entity resolver of the reader are the ones of the
+     * Digester when this method returns.
+     *
+     * @param reader the reader, configured for the Digester
+     * @param input the input to parse
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     */
+    void parse( final XMLReader reader, final InputSource input )
+        throws IOException, SAXException
+    {
+        final ContentHandler contentHandler = reader.getContentHandler();
+        final DTDHandler dtdHandler = reader.getDTDHandler();
+        final ErrorHandler errorHandler = reader.getErrorHandler();
+        final EntityResolver entityResolver = reader.getEntityResolver();
+        final Recorder recorder = new Recorder();
+        reader.setContentHandler( recorder );
+        reader.setDTDHandler( recorder );
+        reader.setErrorHandler( recorder );
+        reader.setEntityResolver( recorder );
+
+        final BackgroundTask tokenizer =
+            new BackgroundTask( "Digester tokenizer", () -> tokenize( reader, input, recorder ) );
+        boolean replayed = false;
+        try
+        {
+            tokenizer.start( executor );
+            replay( tokenizer, contentHandler, dtdHandler, errorHandler, entityResolver );
+            replayed = true;
+        }
+        catch ( final IOException | SAXException | RuntimeException | Error e )
+        {
+            aborted = true;
+            throw e;
+        }
+        finally
+        {
+            if ( replayed ? tokenizer.join() : abort( tokenizer, input ) )
+            {
+                reader.setContentHandler( contentHandler );
+                reader.setDTDHandler( dtdHandler );
+                reader.setErrorHandler( errorHandler );
+                reader.setEntityResolver( entityResolver );
+            }
+            else
+            {
+                // the recorder, left to the reader, ignores the events of the parse still running
+                tokenizing = true;
+            }
+        }
+    }
+
+    /**
+     * Stops the tokenizer once the parse is aborted, closing the streams of the input so that it is not blocked in a
+     * read, and interrupting it.
+     *
+     * @return true if the tokenizer is stopped
+     */
+    private static boolean abort( final BackgroundTask tokenizer, final InputSource input )
+    {
+        close( input.getByteStream() );
+        close( input.getCharacterStream() );
+        return tokenizer.stop();
+    }
+
+    private static void close( final Closeable closeable )
+    {
+        if ( closeable != null )
+        {
+            try
+            {
+                closeable.close();
+            }
+            catch ( final IOException e )
+            {
+                // the parse has failed already
+            }
+        }
+    }
+
+    private static int idle( final int idle )
+    {
+        // busy spin first, the other side being expected to catch up shortly
+        if ( idle >= YIELDS )
+        {
+            LockSupport.parkNanos( PARK_NANOS );
+        }
+        else if ( idle >= SPINS )
+        {
+            Thread.yield();
+        }
+        return idle + 1;
+    }
+
+    /**
+     * Tells whether the tokenizer of the last parse is still using the reader, having not stopped in time once the
+     * parse was aborted; the reader must not be used anymore in that case.
+     *
+     * @return true if the reader is still used by the tokenizer
+     */
+    boolean isTokenizing()
+    {
+        return tokenizing;
+    }
+
+    /**
+     * Makes the last claimed event visible to the replaying thread.
+     */
+    private void publish()
+    {
+        published.lazySet( ++produced );
+    }
+
+    private void replay( final BackgroundTask tokenizer, final ContentHandler contentHandler,
+                         final DTDHandler dtdHandler, final ErrorHandler errorHandler,
+                         final EntityResolver entityResolver )
+        throws IOException, SAXException
+    {
+        final ReplayLocator locator = new ReplayLocator();
+        long next = 0;
+        while ( true )
+        {
+            int idle = 0;
+            while ( published.get() == next )
+            {
+                if ( Thread.interrupted() )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException( "Pipelined parse interrupted" );
+                }
+                if ( idle >= YIELDS )
+                {
+                    tokenizer.startIfStalled();
+                }
+                idle = idle( idle );
+            }
+
+            final Event event = slots[(int) next & mask];
+            locator.moveTo( event );
+            switch ( event.type )
+            {
+                case SET_DOCUMENT_LOCATOR:
+                    contentHandler.setDocumentLocator( locator );
+                    break;
+                case START_DOCUMENT:
+                    contentHandler.startDocument();
+                    break;
+                case END_DOCUMENT:
+                    contentHandler.endDocument();
+                    break;
+                case START_PREFIX_MAPPING:
+                    contentHandler.startPrefixMapping( event.first, event.second );
+                    break;
+                case END_PREFIX_MAPPING:
+                    contentHandler.endPrefixMapping( event.first );
+                    break;
+                case START_ELEMENT:
+                    contentHandler.startElement( event.first, event.second, event.third, event.attributes );
+                    break;
+                case END_ELEMENT:
+                    contentHandler.endElement( event.first, event.second, event.third );
+                    break;
+                case CHARACTERS:
+                    contentHandler.characters( event.chars, 0, event.length );
+                    break;
+                case IGNORABLE_WHITESPACE:
+                    contentHandler.ignorableWhitespace( event.chars, 0, event.length );
+                    break;
+                case PROCESSING_INSTRUCTION:
+                    contentHandler.processingInstruction( event.first, event.second );
+                    break;
+                case SKIPPED_ENTITY:
+                    contentHandler.skippedEntity( event.first );
+                    break;
+                case NOTATION_DECL:
+                    dtdHandler.notationDecl( event.first, event.second, event.third );
+                    break;
+                case UNPARSED_ENTITY_DECL:
+                    dtdHandler.unparsedEntityDecl( event.first, event.second, event.third, event.fourth );
+                    break;
+                case WARNING:
+                case ERROR:
+                case FATAL_ERROR:
+                    replayError( errorHandler, event );
+                    break;
+                case RESOLVE_ENTITY:
+                    replayEntityResolution( entityResolver, event );
+                    break;
+                case PARSED:
+                    return;
+                default:
+                    rethrow( event.throwable );
+            }
+            event.first = null;
+            event.second = null;
+            event.third = null;
+            event.fourth = null;
+            event.throwable = null;
+            consumed.lazySet( ++next );
+        }
+    }
+
+    private void replayError( final ErrorHandler errorHandler, final Event event )
+    {
+        final SAXParseException exception = (SAXParseException) event.throwable;
+        Object outcome = HANDLED;
+        try
+        {
+            if ( errorHandler != null )
+            {
+                switch ( event.type )
+                {
+                    case WARNING:
+                        errorHandler.warning( exception );
+                        break;
+                    case ERROR:
+                        errorHandler.error( exception );
+                        break;
+                    default:
+                        errorHandler.fatalError( exception );
+                        break;
+                }
+            }
+        }
+        catch ( final SAXException | RuntimeException e )
+        {
+            // handed back to the parser, which fails as it would have when invoking the handler
+            outcome = e;
+        }
+        this.outcome = outcome;
+    }
+
+    private void replayEntityResolution( final EntityResolver entityResolver, final Event event )
+    {
+        Object outcome = HANDLED;
+        try
+        {
+            final InputSource source =
+                entityResolver != null ? entityResolver.resolveEntity( event.first, event.second ) : null;
+            if ( source != null )
+            {
+                outcome = source;
+            }
+        }
+        catch ( final IOException | SAXException | RuntimeException e )
+        {
+            // handed back to the parser, which fails as it would have when invoking the resolver
+            outcome = e;
+        }
+        this.outcome = outcome;
+    }
+
+    private static void rethrow( final Throwable throwable )
+        throws IOException, SAXException
+    {
+        if ( throwable instanceof IOException )
+        {
+            throw (IOException) throwable;
+        }
+        if ( throwable instanceof SAXException )
+        {
+            throw (SAXException) throwable;
+        }
+        if ( throwable instanceof RuntimeException )
+        {
+            throw (RuntimeException) throwable;
+        }
+        throw (Error) throwable;
+    }
+
+    private void tokenize( final XMLReader reader, final InputSource input, final Recorder recorder )
+    {
+        Throwable failure = null;
+        try
+        {
+            reader.parse( input );
+        }
+        catch ( final Throwable t )
+        {
+            failure = t;
+        }
+        if ( aborted )
+        {
+            return;
+        }
+        try
+        {
+            final Event event = recorder.claim( failure == null ? PARSED : FAILED );
+            event.throwable = failure;
+            publish();
+        }
+        catch ( final SAXException e )
+        {
+            // aborted meanwhile, nobody is waiting for the outcome
+        }
+    }
+
+}
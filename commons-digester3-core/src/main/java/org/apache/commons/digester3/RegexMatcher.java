@@ -19,6 +19,8 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import java.util.function.Predicate;
+
 /**
  * Regular expression matching strategy for RegexRules.
  *
@@ -37,4 +39,21 @@ public abstract class RegexMatcher
      */
     public abstract boolean match( String pathPattern, String rulePattern );
 
+    /**
+     * Prepares the given regex pattern to be tested against many paths. The returned predicate must return the same
+     * result as {@link #match(String, String)} for the given pattern.
+     * <p>
+     * The default implementation just delegates to {@link #match(String, String)}; strategies that can translate a
+     * pattern into a more efficient form once and for all should override it.
+     * </p>
+     *
+     * @param rulePattern the regex pattern the paths will be tested against
+     * @return the predicate testing whether a path matches the given regex pattern
+     * @since 3.3
+     */
+    public Predicate<String> compile( final String rulePattern )
+    {
+        return pathPattern -> match( pathPattern, rulePattern );
+    }
+
 }
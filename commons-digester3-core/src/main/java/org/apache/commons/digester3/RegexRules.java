@@ -20,7 +20,12 @@ package org.apache.commons.digester3;
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 import org.xml.sax.Attributes;
 
@@ -33,6 +38,11 @@ import org.xml.sax.Attributes;
  * does not vary. All patterns are tested to see if they match the path using the regex matcher. All those that do are
  * returned in the order in which the rules were added.
  * </p>
+ * <p>
+ * Each distinct pattern is tested only once per matched path, regardless the number of rules registered for it. When
+ * the same paths are matched over and over, the resolved list of rules can also be memoized per path, see
+ * {@link #setMatchCacheSize(int)}.
+ * </p>
  *
  * @since 1.5
  */
@@ -47,16 +57,35 @@ public class RegexRules
 
         Rule rule;
 
-        RegisteredRule( final String pattern, final Rule rule )
+        /** The index of the pattern in the distinct patterns list */
+        int patternIndex;
+
+        RegisteredRule( final String pattern, final Rule rule, final int patternIndex )
         {
             this.pattern = pattern;
             this.rule = rule;
+            this.patternIndex = patternIndex;
         }
     }
 
     /** All registered {@code Rule}'s */
     private final List<RegisteredRule> registeredRules = new ArrayList<>();
 
+    /** The distinct registered patterns, in order of first registration */
+    private final List<String> patterns = new ArrayList<>();
+
+    /** The distinct registered patterns, as compiled by the regex strategy */
+    private final List<Predicate<String>> compiledPatterns = new ArrayList<>();
+
+    /** The index of each distinct registered pattern in {@link #patterns} */
+    private final Map<String, Integer> patternIndexes = new HashMap<>();
+
+    /** The maximum number of paths whose matching rules are memoized, 0 means no memoization */
+    private int matchCacheSize;
+
+    /** The memoized matching rules, keyed by path, null if memoization is disabled */
+    private Map<String, List<Rule>> matchCache;
+
     /** The regex strategy used by this RegexRules */
     private RegexMatcher matcher;
 
@@ -74,6 +103,32 @@ public class RegexRules
     public void clear()
     {
         registeredRules.clear();
+        patterns.clear();
+        compiledPatterns.clear();
+        patternIndexes.clear();
+        clearMatchCache();
+    }
+
+    /**
+     * Discards the memoized matching rules, if any.
+     */
+    private void clearMatchCache()
+    {
+        if ( matchCache != null )
+        {
+            matchCache.clear();
+        }
+    }
+
+    /**
+     * Gets the maximum number of paths whose matching rules are memoized.
+     *
+     * @return the maximum number of paths whose matching rules are memoized, 0 if memoization is disabled
+     * @since 3.3
+     */
+    public int getMatchCacheSize()
+    {
+        return matchCacheSize;
     }
 
     /**
@@ -89,18 +144,50 @@ public class RegexRules
     @Override
     public List<Rule> match( final String namespaceURI, final String pattern, final String name, final Attributes attributes )
     {
-        //
-        // not a particularly quick implementation
+        if ( matchCache != null )
+        {
+            List<Rule> rules = matchCache.get( pattern );
+            if ( rules == null )
+            {
+                rules = Collections.unmodifiableList( doMatch( pattern ) );
+                matchCache.put( pattern, rules );
+            }
+            return rules;
+        }
+        return doMatch( pattern );
+    }
+
+    /**
+     * Tests each distinct registered pattern against the given path, then collects the matching rules in the order in
+     * which they were added.
+     *
+     * @param pattern the path to be matched
+     * @return the list of rules matching the given path
+     */
+    private List<Rule> doMatch( final String pattern )
+    {
         // regex is probably going to be slower than string equality
-        // so probably should have a set of strings
-        // and test each only once
-        //
-        // XXX FIX ME - Time And Optimize
-        //
+        // so each distinct pattern is compiled once and tested only once
+        final boolean[] matchingPatterns = new boolean[patterns.size()];
+        int matchingRulesCount = 0;
+        for ( int i = 0; i < matchingPatterns.length; i++ )
+        {
+            if ( compiledPatterns.get( i ).test( pattern ) )
+            {
+                matchingPatterns[i] = true;
+                matchingRulesCount++;
+            }
+        }
+
+        if ( matchingRulesCount == 0 )
+        {
+            return new ArrayList<>();
+        }
+
         final List<Rule> rules = new ArrayList<>( registeredRules.size() );
         for ( final RegisteredRule rr : registeredRules )
         {
-            if ( matcher.match( pattern, rr.pattern ) )
+            if ( matchingPatterns[rr.patternIndex] )
             {
                 rules.add( rr.rule );
             }
@@ -111,7 +198,16 @@ public class RegexRules
     @Override
     protected void registerRule( final String pattern, final Rule rule )
     {
-        registeredRules.add( new RegisteredRule( pattern, rule ) );
+        Integer patternIndex = patternIndexes.get( pattern );
+        if ( patternIndex == null )
+        {
+            patternIndex = patterns.size();
+            patterns.add( pattern );
+            compiledPatterns.add( matcher.compile( pattern ) );
+            patternIndexes.put( pattern, patternIndex );
+        }
+        registeredRules.add( new RegisteredRule( pattern, rule, patternIndex ) );
+        clearMatchCache();
     }
 
     @Override
@@ -125,6 +221,46 @@ public class RegexRules
         return rules;
     }
 
+    /**
+     * Sets the maximum number of paths whose matching rules are memoized. When the limit is reached, the least
+     * recently matched path is discarded, so that documents with many distinct paths cannot make the memoized rules
+     * grow without bounds.
+     * <p>
+     * Memoization is disabled by default; it must be enabled only if the regex matching strategy results depend only
+     * on the path and the pattern. Memoized lists of rules are not modifiable.
+     * </p>
+     *
+     * @param matchCacheSize the maximum number of memoized paths, 0 to disable memoization
+     * @since 3.3
+     */
+    public void setMatchCacheSize( final int matchCacheSize )
+    {
+        if ( matchCacheSize < 0 )
+        {
+            throw new IllegalArgumentException( "Match cache size must not be negative." );
+        }
+        this.matchCacheSize = matchCacheSize;
+        if ( matchCacheSize == 0 )
+        {
+            matchCache = null;
+        }
+        else
+        {
+            matchCache = new LinkedHashMap<String, List<Rule>>( 16, 0.75f, true )
+            {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry( final Map.Entry<String, List<Rule>> eldest )
+                {
+                    return size() > RegexRules.this.matchCacheSize;
+                }
+
+            };
+        }
+    }
+
     /**
      * Sets the current regex matching strategy.
      *
@@ -137,6 +273,12 @@ public class RegexRules
             throw new IllegalArgumentException( "RegexMatcher must not be null." );
         }
         this.matcher = matcher;
+        compiledPatterns.clear();
+        for ( final String pattern : patterns )
+        {
+            compiledPatterns.add( matcher.compile( pattern ) );
+        }
+        clearMatchCache();
     }
 
 }
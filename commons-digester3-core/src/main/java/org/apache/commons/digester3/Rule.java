@@ -52,6 +52,36 @@ import org.xml.sax.Attributes;
  */public abstract class Rule
 {
 
+    /**
+     * Whether the {@link #body(String, String, String)} method is overridden, per Rule class.
+     */
+    private static final ClassValue<Boolean> BODY_OVERRIDDEN = new ClassValue<Boolean>()
+    {
+
+        @Override
+        protected Boolean computeValue( final Class<?> type )
+        {
+            for ( Class<?> current = type; current != Rule.class; current = current.getSuperclass() )
+            {
+                try
+                {
+                    current.getDeclaredMethod( "body", String.class, String.class, String.class );
+                    return Boolean.TRUE;
+                }
+                catch ( final NoSuchMethodException e )
+                {
+                    // not overridden at this level, check the superclass
+                }
+                catch ( final SecurityException e )
+                {
+                    return Boolean.TRUE;
+                }
+            }
+            return Boolean.FALSE;
+        }
+
+    };
+
     /**
      * The Digester with which this Rule is associated.
      */
@@ -141,6 +171,23 @@ import org.xml.sax.Attributes;
         return this.namespaceURI;
     }
 
+    /**
+     * Tells whether this rule needs the body text of the matching XML elements. The Digester does not buffer the body
+     * text of the elements for which none of the matching rules needs it, and does not call their
+     * {@link #body(String, String, String)} method at all.
+     * <p>
+     * The default implementation returns true if the {@code body} method is overridden; subclasses that override it
+     * but do not always need the body text can override this method as well.
+     * </p>
+     *
+     * @return true if this rule needs the body text of the matching XML elements
+     * @since 3.3
+     */
+    public boolean isBodyRequired()
+    {
+        return BODY_OVERRIDDEN.get( getClass() ).booleanValue();
+    }
+
     /**
      * Sets the {@code Digester} with which this {@code Rule} is associated.
      *
@@ -53,4 +53,17 @@ public interface RuleSet
      */
     String getNamespaceURI();
 
+    /**
+     * Tells whether each call of {@link #addRuleInstances(Digester)} adds new Rule instances, sharing no state with the
+     * ones added by the previous calls, so that this RuleSet can be replayed to add the rules of the
+     * {@link Digester#fork() forks} of a Digester. The RuleSets holding their Rule instances are not replayable.
+     *
+     * @return true if each call of {@code addRuleInstances} adds new Rule instances, false by default
+     * @since 3.3
+     */
+    default boolean isReplayable()
+    {
+        return false;
+    }
+
 }
@@ -72,6 +72,46 @@ public interface Rules
      */
     List<Rule> match( String namespaceURI, String pattern, String name, Attributes attributes );
 
+    /**
+     * Gets a List of all registered Rule instances that match the path of the element currently processed by the
+     * {@code Digester}, with the same contract as {@link #match(String, String, String, Attributes)}.
+     * <p>
+     * The default implementation materializes the path and delegates to
+     * {@link #match(String, String, String, Attributes)}; implementations able to match the path elements directly
+     * should override it to avoid that.
+     * </p>
+     *
+     * @param namespaceURI Namespace URI for which to select matching rules, or {@code null} to match regardless of
+     *            namespace URI
+     * @param path The path of the current element, only valid during this invocation
+     * @param name the local name if the parser is namespace aware, or just the element name otherwise
+     * @param attributes The attribute list of the current matching element
+     * @return a List of all registered Rule instances that match the specified path
+     * @since 3.3
+     */
+    default List<Rule> matchPath( final String namespaceURI, final ElementPath path, final String name,
+                                  final Attributes attributes )
+    {
+        return match( namespaceURI, path.toString(), name, attributes );
+    }
+
+    /**
+     * Tells whether a registered Rule instance may match an element nested, at any depth, inside the element with the
+     * given path. When this is not the case, the {@code Digester} skips the nested elements without matching them.
+     * <p>
+     * Answering {@code true} is always correct, and is what the default implementation does; implementations able to
+     * rule out the nested elements, whatever their names and namespaces, should override it.
+     * </p>
+     *
+     * @param path The path of the current element, only valid during this invocation
+     * @return false if no registered Rule instance can match an element nested inside the current one
+     * @since 3.3
+     */
+    default boolean mayMatchDescendants( final ElementPath path )
+    {
+        return true;
+    }
+
     /**
      * Gets a List of all registered Rule instances, or a zero-length List if there are no registered Rule instances.
      * If more than one Rule instance has been registered, they <strong>must</strong> be returned in the order
@@ -64,6 +64,18 @@ public class RulesBase
      */
     protected List<String> wildcardCache = new LinkedList<>();
 
+    /**
+     * The wildcard patterns, indexed by their reversed path segments, so that the longest tail match can be found
+     * walking the matched pattern only once.
+     */
+    private final PatternTrie<String> wildcardIndex = new PatternTrie<>();
+
+    /**
+     * The registered patterns, indexed by their path segments, so that the exact match of an {@link ElementPath} can be
+     * found without materializing it.
+     */
+    private final PatternTrie<String> patternIndex = new PatternTrie<>();
+
     /**
      * The set of registered Rule instances, in the order that they were originally registered.
      */
@@ -73,6 +85,8 @@ public class RulesBase
     public void clear()
     {
         wildcardCache.clear();
+        wildcardIndex.clear();
+        patternIndex.clear();
         cache.clear();
         rules.clear();
     }
@@ -111,10 +125,34 @@ public class RulesBase
         return results;
     }
 
+    /**
+     * Tells whether the rules are matched through the pattern indexes of this class, which are only filled by
+     * {@link #registerRule(String, Rule)}, rather than by scanning the {@link #cache} and {@link #wildcardCache}
+     * fields.
+     * <p>
+     * The indexes are out of sync with those fields when a subclass fills them itself, or overrides
+     * {@code registerRule} without calling this implementation, and do not account for the overridden matching
+     * methods. So the default implementation only trusts them for this class itself; the subclasses which register
+     * their rules through this class and keep its matching policy may override this method to return true.
+     * </p>
+     *
+     * @return true if the rules are matched through the pattern indexes
+     * @since 3.3
+     */
+    protected boolean isPatternIndexed()
+    {
+        return getClass() == RulesBase.class;
+    }
+
     @Override
     public List<Rule> match( final String namespaceURI, final String pattern, final String name, final Attributes attributes )
     {
         // List rulesList = (List) this.cache.get(pattern);
+        if ( isPatternIndexed() )
+        {
+            return matchWildcard( namespaceURI, pattern, lookup( namespaceURI, pattern ) );
+        }
+
         List<Rule> rulesList = lookup( namespaceURI, pattern );
         if ( rulesList == null || rulesList.isEmpty() )
         {
@@ -140,15 +178,92 @@ public class RulesBase
         return rulesList;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The path is matched segment by segment against the registered patterns, as long as they are
+     * {@link #isPatternIndexed() indexed}.
+     * </p>
+     */
     @Override
-    protected void registerRule( String pattern, final Rule rule )
+    public List<Rule> matchPath( final String namespaceURI, final ElementPath path, final String name,
+                                 final Attributes attributes )
+    {
+        if ( !isPatternIndexed() )
+        {
+            return match( namespaceURI, path.toString(), name, attributes );
+        }
+
+        final String key = patternIndex.get( path );
+        return matchWildcard( namespaceURI, path, key != null ? lookup( namespaceURI, key ) : null );
+    }
+
+    /**
+     * Completes the exact match of a pattern with its longest tail match, if needed.
+     *
+     * @param namespaceURI Namespace URI to match, or {@code null} to select matching rules regardless of namespace
+     *            URI
+     * @param pattern Pattern to be matched
+     * @param exactMatch the rules that exactly match the pattern, if any
+     * @return the rules that match the pattern
+     */
+    private List<Rule> matchWildcard( final String namespaceURI, final CharSequence pattern,
+                                      final List<Rule> exactMatch )
+    {
+        List<Rule> rulesList = exactMatch;
+        if ( rulesList == null || rulesList.isEmpty() )
+        {
+            // Find the longest key, ie more discriminant
+            final String longKey = wildcardIndex.getLongestSuffix( pattern );
+            if ( longKey != null )
+            {
+                rulesList = lookup( namespaceURI, longKey );
+            }
+        }
+        if ( rulesList == null )
+        {
+            rulesList = new ArrayList<>();
+        }
+        return rulesList;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Nested elements may only be matched by a tail match pattern, or by an exact match pattern extending the path.
+     * </p>
+     */
+    @Override
+    public boolean mayMatchDescendants( final ElementPath path )
+    {
+        if ( !isPatternIndexed() || !wildcardCache.isEmpty() )
+        {
+            return true;
+        }
+        return patternIndex.hasExtension( path, null );
+    }
+
+    /**
+     * Removes the trailing '/' of the given pattern, if any, to help users who accidentally add it.
+     *
+     * @param pattern the pattern to normalize
+     * @return the pattern used to register the rules
+     */
+    static String normalizePattern( final String pattern )
     {
-        // to help users who accidentally add '/' to the end of their patterns
         final int patternLength = pattern.length();
         if ( patternLength > 1 && pattern.endsWith( "/" ) )
         {
-            pattern = pattern.substring( 0, patternLength - 1 );
+            return pattern.substring( 0, patternLength - 1 );
         }
+        return pattern;
+    }
+
+    @Override
+    protected void registerRule( String pattern, final Rule rule )
+    {
+        // to help users who accidentally add '/' to the end of their patterns
+        pattern = normalizePattern( pattern );
 
         List<Rule> list = cache.get( pattern );
         if ( list == null )
@@ -157,7 +272,9 @@ public class RulesBase
             if ( pattern.startsWith( "*/" ) )
             {
                 wildcardCache.add( pattern.substring( 1 ) );
+                wildcardIndex.addSuffix( pattern.substring( 2 ), pattern );
             }
+            patternIndex.addPrefix( pattern, pattern );
             cache.put( pattern, list );
         }
         list.add( rule );
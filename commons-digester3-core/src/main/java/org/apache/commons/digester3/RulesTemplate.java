@@ -0,0 +1,221 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A set of rule registrations, indexed once and shared by the {@link Rules} instances it creates.
+ * <p>
+ * The patterns are indexed when the first {@link Rules} instance is created, with the matching policy of
+ * {@link RulesBase}; each created instance only holds its own {@link Rule} instances, which are created the first time
+ * their pattern is matched, so that the cost of creating a {@link Digester} does not depend on the number of rules it
+ * may apply. No registration can be added once the template has been used.
+ * </p>
+ * <p>
+ * The registrations of the created {@link Rules} instances are those of the template, until a rule is added to one of
+ * them: that instance then creates all its rules, and indexes them on its own.
+ * </p>
+ *
+ * @since 3.3
+ */
+public final class RulesTemplate
+{
+
+    /**
+     * Stands for a registration of the template in its index.
+     */
+    private static final class Slot
+        extends Rule
+    {
+
+        private final int index;
+
+        private final String pattern;
+
+        Slot( final int index, final String pattern )
+        {
+            this.index = index;
+            this.pattern = pattern;
+        }
+
+    }
+
+    /**
+     * The registrations, indexed as {@link Slot}s.
+     */
+    private final RulesBase index = new RulesBase();
+
+    private final List<Supplier<? extends Rule>> suppliers = new ArrayList<>();
+
+    /**
+     * The position of each list of slots registered for a pattern, so that the rules matched for a pattern are listed
+     * once by each created instance.
+     */
+    private final Map<List<Rule>, Integer> matchIds = new IdentityHashMap<>();
+
+    private volatile boolean frozen;
+
+    /**
+     * Registers a new rule matching the specified pattern.
+     *
+     * @param pattern Nesting pattern to be matched for the rule
+     * @param namespaceURI Namespace URI that must match for the rule, or {@code null} for matching regardless of the
+     *            current namespace URI
+     * @param rule Creates the rule instance of each {@link Rules} instance created by this template, never returning
+     *            null
+     * @throws IllegalStateException if {@link Rules} instances have already been created by this template
+     */
+    public synchronized void add( final String pattern, final String namespaceURI,
+                                  final Supplier<? extends Rule> rule )
+    {
+        if ( pattern == null )
+        {
+            throw new IllegalArgumentException( "Pattern is null" );
+        }
+        if ( rule == null )
+        {
+            throw new IllegalArgumentException( "Rule supplier is null" );
+        }
+        if ( frozen )
+        {
+            throw new IllegalStateException( "Rules template already in use" );
+        }
+
+        final Slot slot = new Slot( suppliers.size(), pattern );
+        slot.setNamespaceURI( namespaceURI );
+        index.add( pattern, slot );
+        suppliers.add( rule );
+    }
+
+    /**
+     * Creates the rule instance of the given registration.
+     *
+     * @param slot the registration
+     * @return the new rule instance, not yet associated to a {@link Digester}
+     */
+    Rule createRule( final Rule slot )
+    {
+        final Rule rule = suppliers.get( ( (Slot) slot ).index ).get();
+        if ( slot.getNamespaceURI() != null )
+        {
+            rule.setNamespaceURI( slot.getNamespaceURI() );
+        }
+        return rule;
+    }
+
+    private synchronized void freeze()
+    {
+        if ( !frozen )
+        {
+            for ( final List<Rule> slots : index.cache.values() )
+            {
+                matchIds.put( slots, matchIds.size() );
+            }
+            frozen = true;
+        }
+    }
+
+    /**
+     * Gets the index of the registrations, which must not be modified.
+     *
+     * @return the index of the registrations, whose rules are the registrations
+     */
+    RulesBase getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Gets the position of a list of registrations returned by the index.
+     *
+     * @param slots a list of registrations
+     * @return the position of the list of the registrations of a pattern, or -1 if the given list has been created by
+     *         the match, such as a list filtered by namespace
+     */
+    int getMatchId( final List<Rule> slots )
+    {
+        final Integer id = matchIds.get( slots );
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Gets the number of lists of registrations of the index.
+     *
+     * @return the number of lists of registrations of the index
+     */
+    int getMatchCount()
+    {
+        return matchIds.size();
+    }
+
+    /**
+     * Gets the pattern of the given registration.
+     *
+     * @param slot the registration
+     * @return the pattern of the registration
+     */
+    String getPattern( final Rule slot )
+    {
+        return ( (Slot) slot ).pattern;
+    }
+
+    /**
+     * Gets the position of the given registration.
+     *
+     * @param slot the registration
+     * @return the position of the registration, in registration order
+     */
+    int getRuleIndex( final Rule slot )
+    {
+        return ( (Slot) slot ).index;
+    }
+
+    /**
+     * Gets the number of registrations.
+     *
+     * @return the number of registrations
+     */
+    int getRuleCount()
+    {
+        return suppliers.size();
+    }
+
+    /**
+     * Creates a new {@link Rules} instance holding the registrations of this template, after which no registration can
+     * be added to the template.
+     *
+     * @return a new {@link Rules} instance holding the registrations of this template
+     */
+    public Rules newRules()
+    {
+        if ( !frozen )
+        {
+            freeze();
+        }
+        return new TemplateRules( this );
+    }
+
+}
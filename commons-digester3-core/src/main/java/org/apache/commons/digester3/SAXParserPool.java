@@ -0,0 +1,189 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.SAXException;
+
+/**
+ * A pool of the {@link SAXParser}s created by a {@code SAXParserFactory}, so that the Digesters parsing short documents
+ * do not pay the creation of their parser at each document.
+ * <p>
+ * The returned parsers are {@link SAXParser#reset() reset}, which restores the configuration they had when created by
+ * the factory, including its validating, namespace aware, XInclude aware and schema settings, and kept for the next
+ * borrowers up to the maximum number of idle parsers of the pool; the parsers which cannot be reset are discarded. The
+ * factory is used under its lock, and must not be reconfigured while the pool is in use. The pool is thread safe.
+ * </p>
+ *
+ * @see Digester#setParserPool(SAXParserPool)
+ * @since 3.3
+ */
+public final class SAXParserPool
+{
+
+    private final SAXParserFactory factory;
+
+    private final int maxIdle;
+
+    private final Deque<SAXParser> idle = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final AtomicLong borrowedCount = new AtomicLong();
+
+    private final AtomicLong createdCount = new AtomicLong();
+
+    /**
+     * Creates a new pool of the parsers created by the given factory.
+     *
+     * @param factory the factory creating the parsers
+     * @param maxIdle the maximum number of idle parsers kept by the pool
+     */
+    public SAXParserPool( final SAXParserFactory factory, final int maxIdle )
+    {
+        if ( factory == null )
+        {
+            throw new IllegalArgumentException( "SAXParserFactory is null" );
+        }
+        if ( maxIdle < 0 )
+        {
+            throw new IllegalArgumentException( "Maximum number of idle parsers must not be negative" );
+        }
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Borrows a parser from this pool, creating it if no idle parser is available.
+     *
+     * @return a parser in the configuration of the factory
+     * @throws ParserConfigurationException if the factory cannot create a parser in its configuration
+     * @throws SAXException if the parser cannot be created
+     */
+    public SAXParser borrowParser()
+        throws ParserConfigurationException, SAXException
+    {
+        borrowedCount.incrementAndGet();
+        final SAXParser parser = idle.pollFirst();
+        if ( parser != null )
+        {
+            idleCount.decrementAndGet();
+            return parser;
+        }
+
+        createdCount.incrementAndGet();
+        synchronized ( factory )
+        {
+            return factory.newSAXParser();
+        }
+    }
+
+    /**
+     * Discards the idle parsers of this pool.
+     */
+    public void clear()
+    {
+        while ( idle.pollFirst() != null )
+        {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of times a parser has been borrowed from this pool.
+     *
+     * @return the number of times a parser has been borrowed from this pool
+     */
+    public long getBorrowedCount()
+    {
+        return borrowedCount.get();
+    }
+
+    /**
+     * Gets the number of parsers created by this pool.
+     *
+     * @return the number of parsers created by this pool
+     */
+    public long getCreatedCount()
+    {
+        return createdCount.get();
+    }
+
+    /**
+     * Gets the number of idle parsers currently kept by this pool.
+     *
+     * @return the number of idle parsers currently kept by this pool
+     */
+    public int getIdleCount()
+    {
+        return idleCount.get();
+    }
+
+    /**
+     * Gets the maximum number of idle parsers kept by this pool.
+     *
+     * @return the maximum number of idle parsers kept by this pool
+     */
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    /**
+     * Returns a parser borrowed from this pool. The parser is reset, and kept for the next borrowers unless the pool
+     * already has its maximum number of idle parsers.
+     *
+     * @param parser the parser borrowed from this pool
+     */
+    public void returnParser( final SAXParser parser )
+    {
+        if ( parser == null )
+        {
+            throw new IllegalArgumentException( "SAXParser is null" );
+        }
+
+        try
+        {
+            parser.reset();
+        }
+        catch ( final UnsupportedOperationException e )
+        {
+            // the parser cannot be restored to its initial configuration
+            return;
+        }
+
+        if ( idleCount.incrementAndGet() > maxIdle )
+        {
+            idleCount.decrementAndGet();
+            return;
+        }
+        idle.offerFirst( parser );
+    }
+
+}
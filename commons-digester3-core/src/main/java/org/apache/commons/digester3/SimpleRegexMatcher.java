@@ -19,6 +19,8 @@ package org.apache.commons.digester3;
  * under the License.
  */
 
+import java.util.function.Predicate;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -36,6 +38,10 @@ import org.apache.commons.logging.LogFactory;
  * <p>
  * Escaping these wildcards is not supported.
  * </p>
+ * <p>
+ * Patterns compiled through {@link #compile(String)} are translated once into an automaton that tests a path in a
+ * single pass, without recursion and without allocating; they are not traced in the log.
+ * </p>
  *
  * @since 1.5
  */
@@ -43,12 +49,133 @@ public class SimpleRegexMatcher
     extends RegexMatcher
 {
 
+    /**
+     * A regex pattern translated into a nondeterministic automaton, whose states are the positions in the pattern and
+     * are tracked as bits of a {@code long}. The automaton follows exactly the same rules as the recursive algorithm:
+     * a {@code *} followed by a character only stops before an occurrence of that very character, and a trailing
+     * {@code *} matches as soon as it is reached with characters left in the path.
+     */
+    private static final class CompiledPattern
+        implements Predicate<String>
+    {
+
+        /** The longest pattern whose states fit in a {@code long}, next to {@link #MATCH_ALL}. */
+        private static final int MAX_LENGTH = 62;
+
+        /** The state reached through a trailing {@code *}, which matches whatever follows. */
+        private static final long MATCH_ALL = 1L << 63;
+
+        private final String regexPattern;
+
+        private final int length;
+
+        CompiledPattern( final String regexPattern )
+        {
+            this.regexPattern = regexPattern;
+            this.length = regexPattern.length();
+        }
+
+        /**
+         * Returns the states reached from the given state, reading the given path character.
+         *
+         * @param state the current position in the pattern
+         * @param current the path character
+         * @return the states reached
+         */
+        private long next( int state, final char current )
+        {
+            long next = 0;
+            while ( state < length )
+            {
+                final char regexCurrent = regexPattern.charAt( state );
+                if ( regexCurrent != '*' )
+                {
+                    if ( regexCurrent == '?' || regexCurrent == current )
+                    {
+                        next |= 1L << state + 1;
+                    }
+                    return next;
+                }
+                if ( state + 1 == length )
+                {
+                    // a terminal '*' matches anything left
+                    return next | MATCH_ALL;
+                }
+                // the '*' either swallows the character, or stops before it if it is the next regex character
+                next |= 1L << state;
+                if ( regexPattern.charAt( state + 1 ) != current )
+                {
+                    return next;
+                }
+                state++;
+            }
+            // the pattern is over while the path is not
+            return next;
+        }
+
+        @Override
+        public boolean test( final String basePattern )
+        {
+            if ( basePattern == null )
+            {
+                return false;
+            }
+
+            long states = 1L;
+            for ( int baseAt = 0; baseAt < basePattern.length(); baseAt++ )
+            {
+                final char current = basePattern.charAt( baseAt );
+                long next = 0;
+                long remaining = states;
+                while ( remaining != 0 )
+                {
+                    next |= next( Long.numberOfTrailingZeros( remaining ), current );
+                    remaining &= remaining - 1;
+                }
+                if ( ( next & MATCH_ALL ) != 0 )
+                {
+                    return true;
+                }
+                if ( next == 0 )
+                {
+                    return false;
+                }
+                states = next;
+            }
+            return ( states & 1L << length ) != 0;
+        }
+
+    }
+
     /** Default log (class wide) */
     private static final Log BASE_LOG = LogFactory.getLog( SimpleRegexMatcher.class );
 
     /** Custom log (can be set per object) */
     private Log log = BASE_LOG;
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Patterns longer than 62 characters are not compiled, they are matched by {@link #match(String, String)}, as
+     * well as all the patterns of subclasses.
+     * </p>
+     *
+     * @since 3.3
+     */
+    @Override
+    public Predicate<String> compile( final String rulePattern )
+    {
+        if ( rulePattern == null )
+        {
+            return pathPattern -> false;
+        }
+        if ( rulePattern.length() > CompiledPattern.MAX_LENGTH || getClass() != SimpleRegexMatcher.class )
+        {
+            return super.compile( rulePattern );
+        }
+        return new CompiledPattern( rulePattern );
+    }
+
     /**
      * Gets the {@code Log} implementation.
      *
@@ -0,0 +1,443 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Iterator;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.EntityReference;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Feeds a SAX {@link ContentHandler}, usually a {@link Digester}, from a StAX cursor or event reader, reporting the
+ * same events a SAX parser would.
+ * <p>
+ * When the handler is not namespace aware, the elements and attributes are reported without namespace URI, by their
+ * qualified name, and the namespace declarations as attributes, as the SAX parser of the JDK does in that case.
+ * </p>
+ * <p>
+ * The dispatch starts from the current position of the reader and stops at the end of the document or, when the reader
+ * is positioned on a start element, at the end of that element; the reader is neither closed nor advanced further.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class StaxDispatcher
+    implements Locator
+{
+
+    private static final String CDATA = "CDATA";
+
+    private static final String XMLNS = "xmlns";
+
+    private final ContentHandler handler;
+
+    private final boolean namespaceAware;
+
+    private final AttributesImpl attributes = new AttributesImpl();
+
+    private XMLStreamReader streamReader;
+
+    private XMLEvent event;
+
+    private int eventType;
+
+    private boolean fragment;
+
+    private int depth;
+
+    /**
+     * Creates a new dispatcher for the given handler.
+     *
+     * @param handler the handler notified of the parse events
+     * @param namespaceAware whether the handler expects namespace aware events
+     */
+    StaxDispatcher( final ContentHandler handler, final boolean namespaceAware )
+    {
+        this.handler = handler;
+        this.namespaceAware = namespaceAware;
+    }
+
+    /**
+     * Dispatches the events of the given event reader.
+     *
+     * @param reader the event reader to dispatch
+     * @throws XMLStreamException if the reader fails
+     * @throws SAXException if the handler fails
+     */
+    void dispatch( final XMLEventReader reader )
+        throws XMLStreamException, SAXException
+    {
+        streamReader = null;
+        event = null;
+        handler.setDocumentLocator( this );
+        handler.startDocument();
+
+        fragment = reader.hasNext() && reader.peek().isStartElement();
+        depth = 0;
+        while ( reader.hasNext() )
+        {
+            event = reader.nextEvent();
+            switch ( event.getEventType() )
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    startElement( event.asStartElement() );
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    endElement( event.asEndElement() );
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    characters( event.asCharacters() );
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    final ProcessingInstruction processingInstruction = (ProcessingInstruction) event;
+                    handler.processingInstruction( processingInstruction.getTarget(), processingInstruction.getData() );
+                    break;
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    handler.skippedEntity( ( (EntityReference) event ).getName() );
+                    break;
+                default:
+                    // comments and DTD declarations are not reported to content handlers
+                    break;
+            }
+            if ( fragment && depth == 0 || event.isEndDocument() )
+            {
+                break;
+            }
+        }
+
+        handler.endDocument();
+    }
+
+    /**
+     * Dispatches the events of the given cursor.
+     *
+     * @param reader the cursor to dispatch
+     * @throws XMLStreamException if the reader fails
+     * @throws SAXException if the handler fails
+     */
+    void dispatch( final XMLStreamReader reader )
+        throws XMLStreamException, SAXException
+    {
+        start( reader );
+        while ( dispatchNext() )
+        {
+            // keep dispatching
+        }
+    }
+
+    /**
+     * Dispatches the current event of the cursor given to {@link #start(XMLStreamReader)}, then moves the cursor to
+     * the next event unless the dispatch is over.
+     *
+     * @return false if the dispatch is over, the end of the document having been dispatched to the handler
+     * @throws XMLStreamException if the reader fails
+     * @throws SAXException if the handler fails
+     */
+    boolean dispatchNext()
+        throws XMLStreamException, SAXException
+    {
+        final XMLStreamReader reader = streamReader;
+        switch ( eventType )
+        {
+            case XMLStreamConstants.START_ELEMENT:
+                depth++;
+                startElement( reader );
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                depth--;
+                endElement( reader );
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+                handler.characters( reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength() );
+                break;
+            case XMLStreamConstants.SPACE:
+                handler.ignorableWhitespace( reader.getTextCharacters(), reader.getTextStart(),
+                                             reader.getTextLength() );
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                handler.processingInstruction( reader.getPITarget(), reader.getPIData() );
+                break;
+            case XMLStreamConstants.ENTITY_REFERENCE:
+                handler.skippedEntity( reader.getLocalName() );
+                break;
+            default:
+                // comments and DTD declarations are not reported to content handlers
+                break;
+        }
+        if ( fragment && depth == 0 || eventType == XMLStreamConstants.END_DOCUMENT || !reader.hasNext() )
+        {
+            handler.endDocument();
+            return false;
+        }
+        eventType = reader.next();
+        return true;
+    }
+
+    /**
+     * Returns the type of the event that the next {@link #dispatchNext()} invocation dispatches.
+     *
+     * @return the type of the event that is dispatched next
+     */
+    int getEventType()
+    {
+        return eventType;
+    }
+
+    /**
+     * Starts the dispatch of the events of the given cursor, the events being then dispatched one at a time by
+     * {@link #dispatchNext()}.
+     *
+     * @param reader the cursor to dispatch
+     * @throws SAXException if the handler fails
+     */
+    void start( final XMLStreamReader reader )
+        throws SAXException
+    {
+        streamReader = reader;
+        event = null;
+        eventType = reader.getEventType();
+        fragment = eventType == XMLStreamConstants.START_ELEMENT;
+        depth = 0;
+        handler.setDocumentLocator( this );
+        handler.startDocument();
+    }
+
+    private void characters( final Characters characters )
+        throws SAXException
+    {
+        final char[] text = characters.getData().toCharArray();
+        if ( characters.isIgnorableWhiteSpace() )
+        {
+            handler.ignorableWhitespace( text, 0, text.length );
+        }
+        else
+        {
+            handler.characters( text, 0, text.length );
+        }
+    }
+
+    private void endElement( final EndElement element )
+        throws SAXException
+    {
+        final QName name = element.getName();
+        if ( namespaceAware )
+        {
+            handler.endElement( name.getNamespaceURI(), name.getLocalPart(), qualifiedName( name.getPrefix(),
+                                                                                              name.getLocalPart() ) );
+            for ( final Iterator<?> namespaces = element.getNamespaces(); namespaces.hasNext(); )
+            {
+                handler.endPrefixMapping( ( (Namespace) namespaces.next() ).getPrefix() );
+            }
+        }
+        else
+        {
+            handler.endElement( "", "", qualifiedName( name.getPrefix(), name.getLocalPart() ) );
+        }
+    }
+
+    private void endElement( final XMLStreamReader reader )
+        throws SAXException
+    {
+        if ( namespaceAware )
+        {
+            handler.endElement( nullToEmpty( reader.getNamespaceURI() ), reader.getLocalName(),
+                                qualifiedName( reader.getPrefix(), reader.getLocalName() ) );
+            for ( int i = 0; i < reader.getNamespaceCount(); i++ )
+            {
+                handler.endPrefixMapping( nullToEmpty( reader.getNamespacePrefix( i ) ) );
+            }
+        }
+        else
+        {
+            handler.endElement( "", "", qualifiedName( reader.getPrefix(), reader.getLocalName() ) );
+        }
+    }
+
+    @Override
+    public int getColumnNumber()
+    {
+        final Location location = getLocation();
+        return location != null ? location.getColumnNumber() : -1;
+    }
+
+    @Override
+    public int getLineNumber()
+    {
+        final Location location = getLocation();
+        return location != null ? location.getLineNumber() : -1;
+    }
+
+    private Location getLocation()
+    {
+        if ( streamReader != null )
+        {
+            return streamReader.getLocation();
+        }
+        return event != null ? event.getLocation() : null;
+    }
+
+    @Override
+    public String getPublicId()
+    {
+        final Location location = getLocation();
+        return location != null ? location.getPublicId() : null;
+    }
+
+    @Override
+    public String getSystemId()
+    {
+        final Location location = getLocation();
+        return location != null ? location.getSystemId() : null;
+    }
+
+    private static String nullToEmpty( final String value )
+    {
+        return value != null ? value : "";
+    }
+
+    private static String qualifiedName( final String prefix, final String localName )
+    {
+        if ( prefix == null || prefix.isEmpty() )
+        {
+            return localName;
+        }
+        return prefix + ':' + localName;
+    }
+
+    private void startElement( final StartElement element )
+        throws SAXException
+    {
+        attributes.clear();
+        final QName name = element.getName();
+        final String qName = qualifiedName( name.getPrefix(), name.getLocalPart() );
+        if ( namespaceAware )
+        {
+            for ( final Iterator<?> namespaces = element.getNamespaces(); namespaces.hasNext(); )
+            {
+                final Namespace namespace = (Namespace) namespaces.next();
+                handler.startPrefixMapping( namespace.getPrefix(), namespace.getNamespaceURI() );
+            }
+        }
+        else
+        {
+            for ( final Iterator<?> namespaces = element.getNamespaces(); namespaces.hasNext(); )
+            {
+                final Namespace namespace = (Namespace) namespaces.next();
+                final String prefix = nullToEmpty( namespace.getPrefix() );
+                final String attributeQName = prefix.isEmpty() ? XMLNS : qualifiedName( XMLNS, prefix );
+                attributes.addAttribute( "", attributeQName, attributeQName, CDATA, namespace.getNamespaceURI() );
+            }
+        }
+        for ( final Iterator<?> elementAttributes = element.getAttributes(); elementAttributes.hasNext(); )
+        {
+            final Attribute attribute = (Attribute) elementAttributes.next();
+            final QName attributeName = attribute.getName();
+            final String attributeQName = qualifiedName( attributeName.getPrefix(), attributeName.getLocalPart() );
+            if ( namespaceAware )
+            {
+                attributes.addAttribute( attributeName.getNamespaceURI(), attributeName.getLocalPart(), attributeQName,
+                                         attribute.getDTDType(), attribute.getValue() );
+            }
+            else
+            {
+                attributes.addAttribute( "", attributeQName, attributeQName, attribute.getDTDType(),
+                                         attribute.getValue() );
+            }
+        }
+
+        if ( namespaceAware )
+        {
+            handler.startElement( name.getNamespaceURI(), name.getLocalPart(), qName, attributes );
+        }
+        else
+        {
+            handler.startElement( "", "", qName, attributes );
+        }
+    }
+
+    private void startElement( final XMLStreamReader reader )
+        throws SAXException
+    {
+        attributes.clear();
+        final String localName = reader.getLocalName();
+        final String qName = qualifiedName( reader.getPrefix(), localName );
+        for ( int i = 0; i < reader.getNamespaceCount(); i++ )
+        {
+            final String prefix = nullToEmpty( reader.getNamespacePrefix( i ) );
+            final String uri = nullToEmpty( reader.getNamespaceURI( i ) );
+            if ( namespaceAware )
+            {
+                handler.startPrefixMapping( prefix, uri );
+            }
+            else
+            {
+                final String attributeQName = prefix.isEmpty() ? XMLNS : qualifiedName( XMLNS, prefix );
+                attributes.addAttribute( "", attributeQName, attributeQName, CDATA, uri );
+            }
+        }
+        for ( int i = 0; i < reader.getAttributeCount(); i++ )
+        {
+            final String attributeLocalName = reader.getAttributeLocalName( i );
+            final String attributeQName = qualifiedName( reader.getAttributePrefix( i ), attributeLocalName );
+            if ( namespaceAware )
+            {
+                attributes.addAttribute( nullToEmpty( reader.getAttributeNamespace( i ) ), attributeLocalName,
+                                         attributeQName, reader.getAttributeType( i ), reader.getAttributeValue( i ) );
+            }
+            else
+            {
+                attributes.addAttribute( "", attributeQName, attributeQName, reader.getAttributeType( i ),
+                                         reader.getAttributeValue( i ) );
+            }
+        }
+
+        if ( namespaceAware )
+        {
+            handler.startElement( nullToEmpty( reader.getNamespaceURI() ), localName, qName, attributes );
+        }
+        else
+        {
+            handler.startElement( "", "", qName, attributes );
+        }
+    }
+
+}
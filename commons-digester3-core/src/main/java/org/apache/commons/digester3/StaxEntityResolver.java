@@ -0,0 +1,106 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * A StAX {@code XMLResolver} resolving the external entities as the SAX parse of a {@link Digester} does, through its
+ * {@link Digester#getEntityResolver() entity resolver} if any, or through the Digester itself otherwise, so that the
+ * {@link Digester#register(String, URL) registered} entities are found locally.
+ *
+ * @since 3.3
+ */
+final class StaxEntityResolver
+    implements XMLResolver
+{
+
+    private final Digester digester;
+
+    StaxEntityResolver( final Digester digester )
+    {
+        this.digester = digester;
+    }
+
+    /**
+     * Makes the given system identifier absolute, as the SAX parsers do before resolving it.
+     *
+     * @param systemId the system identifier, may be null
+     * @param baseURI the URI of the document referring to it, may be null
+     * @return the absolute system identifier, or the given one if it cannot be made absolute
+     */
+    private static String absolute( final String systemId, final String baseURI )
+    {
+        if ( systemId == null || baseURI == null )
+        {
+            return systemId;
+        }
+        try
+        {
+            return new URL( new URL( baseURI ), systemId ).toString();
+        }
+        catch ( final MalformedURLException e )
+        {
+            return systemId;
+        }
+    }
+
+    @Override
+    public Object resolveEntity( final String publicId, final String systemId, final String baseURI,
+                                 final String namespace )
+        throws XMLStreamException
+    {
+        final EntityResolver resolver =
+            digester.getEntityResolver() != null ? digester.getEntityResolver() : digester;
+        try
+        {
+            final InputSource source = resolver.resolveEntity( publicId, absolute( systemId, baseURI ) );
+            if ( source == null )
+            {
+                // let the StAX parser resolve it, as a SAX parser would do
+                return null;
+            }
+            if ( source.getByteStream() != null )
+            {
+                return source.getByteStream();
+            }
+            if ( source.getCharacterStream() == null && source.getSystemId() != null )
+            {
+                return digester.createInputSourceFromURL( source.getSystemId() ).getByteStream();
+            }
+            throw new XMLStreamException( "The entity " + systemId
+                + " is resolved to a character stream, which StAX parsers cannot read" );
+        }
+        catch ( final IOException | SAXException e )
+        {
+            throw new XMLStreamException( "Cannot resolve the entity " + systemId + ": " + e.getMessage(), e );
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xml.sax.Attributes;
+
+/**
+ * The {@link Rules} instances created by a {@link RulesTemplate}, matching the patterns through the index of the
+ * template and creating their rules the first time they are matched.
+ *
+ * @since 3.3
+ */
+final class TemplateRules
+    extends AbstractRulesImpl
+{
+
+    private final RulesTemplate template;
+
+    /** The rules of this instance, by registration, created when first matched. */
+    private final Rule[] instances;
+
+    /** The rules matched for each pattern of the template, listed when first matched. */
+    private final List<Rule>[] matches;
+
+    /** The rules indexed on their own, once a rule has been added or the registrations have been cleared. */
+    private RulesBase thawed;
+
+    @SuppressWarnings( "unchecked" )
+    TemplateRules( final RulesTemplate template )
+    {
+        this.template = template;
+        this.instances = new Rule[template.getRuleCount()];
+        this.matches = (List<Rule>[]) new List<?>[template.getMatchCount()];
+    }
+
+    @Override
+    public void clear()
+    {
+        thawed = new RulesBase();
+        thawed.setDigester( getDigester() );
+    }
+
+    /**
+     * Gets the rules of this instance that have been created.
+     *
+     * @return the rules of this instance that have been created, in registration order
+     */
+    List<Rule> getCreatedRules()
+    {
+        if ( thawed != null )
+        {
+            return thawed.rules();
+        }
+        final List<Rule> rules = new ArrayList<>();
+        for ( final Rule rule : instances )
+        {
+            if ( rule != null )
+            {
+                rules.add( rule );
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * Gets the template which created this instance.
+     *
+     * @return the template which created this instance
+     */
+    RulesTemplate getTemplate()
+    {
+        return template;
+    }
+
+    private Rule getRule( final Rule slot )
+    {
+        final int index = template.getRuleIndex( slot );
+        Rule rule = instances[index];
+        if ( rule == null )
+        {
+            rule = template.createRule( slot );
+            rule.setDigester( getDigester() );
+            instances[index] = rule;
+        }
+        return rule;
+    }
+
+    /**
+     * Tells whether the registrations of this instance are still those of its template.
+     *
+     * @return true if no rule has been added to this instance, and its registrations have not been cleared
+     */
+    boolean isTemplate()
+    {
+        return thawed == null;
+    }
+
+    /**
+     * Lists the rules of this instance matching the given registrations.
+     *
+     * @param slots the registrations matched by the index of the template
+     * @return the rules of this instance matching the registrations
+     */
+    private List<Rule> listRules( final List<Rule> slots )
+    {
+        if ( slots.isEmpty() )
+        {
+            return slots;
+        }
+
+        final int id = template.getMatchId( slots );
+        if ( id >= 0 && matches[id] != null )
+        {
+            return matches[id];
+        }
+        final List<Rule> list = new ArrayList<>( slots.size() );
+        for ( final Rule slot : slots )
+        {
+            list.add( getRule( slot ) );
+        }
+        if ( id >= 0 )
+        {
+            matches[id] = list;
+        }
+        return list;
+    }
+
+    @Override
+    public List<Rule> matchPath( final String namespaceURI, final ElementPath path, final String name,
+                                 final Attributes attributes )
+    {
+        if ( thawed != null )
+        {
+            return thawed.matchPath( namespaceURI, path, name, attributes );
+        }
+        return listRules( template.getIndex().matchPath( namespaceURI, path, name, attributes ) );
+    }
+
+    @Override
+    public List<Rule> match( final String namespaceURI, final String pattern, final String name,
+                             final Attributes attributes )
+    {
+        if ( thawed != null )
+        {
+            return thawed.match( namespaceURI, pattern, name, attributes );
+        }
+        return listRules( template.getIndex().match( namespaceURI, pattern, name, attributes ) );
+    }
+
+    @Override
+    public boolean mayMatchDescendants( final ElementPath path )
+    {
+        if ( thawed != null )
+        {
+            return thawed.mayMatchDescendants( path );
+        }
+        return template.getIndex().mayMatchDescendants( path );
+    }
+
+    @Override
+    protected void registerRule( final String pattern, final Rule rule )
+    {
+        if ( thawed == null )
+        {
+            // the rules of the template are indexed along with the added ones
+            thawed = new RulesBase();
+            thawed.setDigester( getDigester() );
+            for ( final Rule slot : template.getIndex().rules() )
+            {
+                thawed.add( template.getPattern( slot ), getRule( slot ) );
+            }
+        }
+        thawed.registerRule( pattern, rule );
+    }
+
+    @Override
+    public List<Rule> rules()
+    {
+        if ( thawed != null )
+        {
+            return thawed.rules();
+        }
+        final List<Rule> rules = new ArrayList<>( instances.length );
+        for ( final Rule slot : template.getIndex().rules() )
+        {
+            rules.add( getRule( slot ) );
+        }
+        return rules;
+    }
+
+    @Override
+    public void setDigester( final Digester digester )
+    {
+        super.setDigester( digester );
+        for ( final Rule rule : instances )
+        {
+            if ( rule != null )
+            {
+                rule.setDigester( digester );
+            }
+        }
+        if ( thawed != null )
+        {
+            thawed.setDigester( digester );
+        }
+    }
+
+}
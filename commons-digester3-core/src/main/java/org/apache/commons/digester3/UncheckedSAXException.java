@@ -0,0 +1,57 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.xml.sax.SAXException;
+
+/**
+ * Wraps a {@link SAXException} raised while parsing where the API, such as {@link java.util.Iterator} or
+ * {@link java.util.stream.Stream}, does not allow checked exceptions to be thrown.
+ *
+ * @since 3.3
+ */
+public class UncheckedSAXException
+    extends RuntimeException
+{
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new exception wrapping the given SAX exception.
+     *
+     * @param cause the SAX exception raised while parsing
+     */
+    public UncheckedSAXException( final SAXException cause )
+    {
+        super( cause.getMessage(), cause );
+    }
+
+    /**
+     * Returns the wrapped SAX exception.
+     *
+     * @return the wrapped SAX exception
+     */
+    @Override
+    public synchronized SAXException getCause()
+    {
+        return (SAXException) super.getCause();
+    }
+
+}
@@ -144,7 +144,18 @@ public class WithDefaultsRulesWrapper
     @Override
     public List<Rule> match( final String namespaceURI, final String pattern, final String name, final Attributes attributes )
     {
-        final List<Rule> matches = wrappedRules.match( namespaceURI, pattern, name, attributes );
+        return withDefaults( wrappedRules.match( namespaceURI, pattern, name, attributes ) );
+    }
+
+    @Override
+    public List<Rule> matchPath( final String namespaceURI, final ElementPath path, final String name,
+                                 final Attributes attributes )
+    {
+        return withDefaults( wrappedRules.matchPath( namespaceURI, path, name, attributes ) );
+    }
+
+    private List<Rule> withDefaults( final List<Rule> matches )
+    {
         if ( matches == null || matches.isEmpty() )
         {
             // a little bit of defensive programming
@@ -154,6 +165,18 @@ public class WithDefaultsRulesWrapper
         return matches;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The default rules match any element, including the nested ones.
+     * </p>
+     */
+    @Override
+    public boolean mayMatchDescendants( final ElementPath path )
+    {
+        return !defaultRules.isEmpty() || wrappedRules.mayMatchDescendants( path );
+    }
+
     @Override
     public List<Rule> rules()
     {
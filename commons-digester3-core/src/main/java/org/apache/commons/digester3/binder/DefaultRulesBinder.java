@@ -24,8 +24,6 @@ import static java.lang.String.format;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.digester3.RuleSet;
-
 /**
  * The default Digester EDSL implementation.
  *
@@ -166,7 +164,7 @@ final class DefaultRulesBinder
      *
      * @return
      */
-    RuleSet getFromBinderRuleSet()
+    FromBinderRuleSet getFromBinderRuleSet()
     {
         return fromBinderRuleSet;
     }
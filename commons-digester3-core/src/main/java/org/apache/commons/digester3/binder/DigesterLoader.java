@@ -19,18 +19,32 @@ package org.apache.commons.digester3.binder;
  * under the License.
  */
 
+import static java.util.stream.Collectors.toList;
 import static org.apache.commons.digester3.binder.BinderClassLoader.createBinderClassLoader;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
@@ -38,13 +52,19 @@ import javax.xml.parsers.SAXParserFactory;
 import javax.xml.validation.Schema;
 
 import org.apache.commons.digester3.Digester;
+import org.apache.commons.digester3.EntityCache;
+import org.apache.commons.digester3.GrammarCache;
 import org.apache.commons.digester3.RuleSet;
 import org.apache.commons.digester3.Rules;
 import org.apache.commons.digester3.RulesBase;
+import org.apache.commons.digester3.RulesTemplate;
+import org.apache.commons.digester3.SAXParserPool;
 import org.apache.commons.digester3.StackAction;
 import org.apache.commons.digester3.Substitutor;
+import org.apache.commons.digester3.UncheckedSAXException;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
@@ -105,10 +125,36 @@ public final class DigesterLoader
     private final Map<String, URL> entityValidator = new HashMap<>();
 
     /**
-     * The SAXParserFactory to create new default {@link Digester} instances.
+     * The cache of the content of the registered entities, shared by the created {@link Digester} instances.
+     */
+    private EntityCache entityCache;
+
+    /**
+     * The cache of the grammars validating the parsed documents, shared by the created {@link Digester} instances.
+     */
+    private GrammarCache grammarCache;
+
+    /**
+     * The SAXParserFactory holding the parser configuration of this loader.
      */
     private final SAXParserFactory factory = SAXParserFactory.newInstance();
 
+    /**
+     * The features set on the factory, set as well on the factory shared by the created {@link Digester} instances.
+     */
+    private final Map<String, Boolean> features = new LinkedHashMap<>();
+
+    /**
+     * The factory, configured as the one of this loader, shared by the created {@link Digester} instances; replaced
+     * when that configuration changes, so that the Digesters already created keep theirs.
+     */
+    private volatile SAXParserFactory parserFactory;
+
+    /**
+     * The pool lending the parsers of the default {@link Digester} instances, if any.
+     */
+    private SAXParserPool parserPool;
+
     private final Iterable<RulesModule> rulesModules;
 
     /**
@@ -153,6 +199,16 @@ public final class DigesterLoader
      */
     private Locator locator;
 
+    /**
+     * Whether the Digesters created with the default {@link Rules} implementation share a {@link RulesTemplate}.
+     */
+    private boolean useRulesTemplate;
+
+    /**
+     * The rules template, created with the first Digester needing it.
+     */
+    private volatile RulesTemplate rulesTemplate;
+
     /**
      * Creates a new {@link DigesterLoader} instance given a collection of {@link RulesModule} instance.
      *
@@ -172,7 +228,58 @@ public final class DigesterLoader
     public void addRules( final Digester digester )
     {
         final RuleSet ruleSet = createRuleSet();
-        ruleSet.addRuleInstances( digester );
+        digester.addRuleSet( ruleSet );
+    }
+
+    /**
+     * Configures a new {@link Digester}, without adding the rules.
+     *
+     * @param digester The new Digester
+     * @param rules The {@link Rules} of the Digester
+     * @return the given Digester
+     */
+    private Digester configure( final Digester digester, final Rules rules )
+    {
+        // the ClassLoader adapter is no needed anymore
+        digester.setClassLoader( classLoader.getAdaptedClassLoader() );
+        digester.setRules( rules );
+        digester.setSubstitutor( substitutor );
+        digester.registerAll( entityValidator );
+        digester.setEntityCache( entityCache );
+        digester.setGrammarCache( grammarCache );
+        digester.setEntityResolver( entityResolver );
+        digester.setStackAction( stackAction );
+        digester.setNamespaceAware( isNamespaceAware() );
+        digester.setValidating( isValidating() );
+        digester.setXIncludeAware( isXIncludeAware() );
+        digester.setXMLSchema( factory.getSchema() );
+        // the Digester, and its forks, create their parsers with the factory of this loader rather than their own
+        digester.setFactory( getParserFactory() );
+        digester.setExecutorService( executorService );
+        digester.setErrorHandler( errorHandler );
+        digester.setDocumentLocator( locator );
+        return digester;
+    }
+
+    /**
+     * Creates a new {@link Digester} configured by this loader, without adding the rules.
+     *
+     * @param reader The {@code XMLReader} of the Digester
+     * @param rules The {@link Rules} of the Digester
+     * @return a new {@link Digester} instance
+     */
+    private Digester createDigester( final XMLReader reader, final Rules rules )
+    {
+        if ( reader == null )
+        {
+            throw new DigesterLoadingException( "XMLReader must be not null" );
+        }
+        if ( rules == null )
+        {
+            throw new DigesterLoadingException( "Impossible to create a new Digester with null Rules" );
+        }
+
+        return configure( new Digester( reader ), rules );
     }
 
     /**
@@ -181,6 +288,11 @@ public final class DigesterLoader
      * @return A new {@link RuleSet} instance based on the current configuration.
      */
     public RuleSet createRuleSet()
+    {
+        return createFromBinderRuleSet();
+    }
+
+    private FromBinderRuleSet createFromBinderRuleSet()
     {
         if ( rulesBinder.hasError() )
         {
@@ -217,6 +329,23 @@ public final class DigesterLoader
         return rulesBinder.getFromBinderRuleSet();
     }
 
+    private static XMLReader createXMLReader( final SAXParser parser )
+    {
+        if ( parser == null )
+        {
+            throw new DigesterLoadingException( "SAXParser must be not null" );
+        }
+
+        try
+        {
+            return parser.getXMLReader();
+        }
+        catch ( final SAXException e )
+        {
+            throw new DigesterLoadingException( "An error occurred while creating the XML Reader", e );
+        }
+    }
+
     /**
      * Gets the document locator associated with our parser.
      *
@@ -228,6 +357,17 @@ public final class DigesterLoader
         return locator;
     }
 
+    /**
+     * Gets the cache of the content of the registered entities, shared by the created {@link Digester} instances.
+     *
+     * @return the cache of the content of the registered entities, {@code null} if they are read at each resolution
+     * @since 3.3
+     */
+    public EntityCache getEntityCache()
+    {
+        return entityCache;
+    }
+
     /**
      * Gets the error handler for this Digester.
      *
@@ -250,6 +390,30 @@ public final class DigesterLoader
         return executorService;
     }
 
+    /**
+     * Gets the cache of the grammars validating the parsed documents, shared by the created {@link Digester}
+     * instances.
+     *
+     * @return the cache of the grammars validating the parsed documents, {@code null} if they are compiled at each
+     *         parse
+     * @since 3.3
+     */
+    public GrammarCache getGrammarCache()
+    {
+        return grammarCache;
+    }
+
+    /**
+     * Gets the maximum number of idle parsers kept for the default {@link Digester} instances.
+     *
+     * @return the maximum number of idle parsers kept, 0 if the parsers are not pooled
+     * @since 3.3
+     */
+    public int getParserPoolSize()
+    {
+        return parserPool != null ? parserPool.getMaxIdle() : 0;
+    }
+
     /**
      * Gets the set of DTD URL registrations, keyed by public identifier.
      *
@@ -260,6 +424,68 @@ public final class DigesterLoader
         return Collections.unmodifiableMap( this.entityValidator );
     }
 
+    /**
+     * Tells whether the Digesters created with the default {@link Rules} implementation get their rules from the rules
+     * template, which then must create new rule instances for each Digester.
+     *
+     * @return true if the Digesters get their rules from the rules template
+     */
+    private boolean isRulesTemplateUsed()
+    {
+        return useRulesTemplate && createFromBinderRuleSet().isReplayable();
+    }
+
+    /**
+     * Gets the rules template of the modules, creating it if needed.
+     *
+     * @return the rules template of the modules
+     */
+    private RulesTemplate getRulesTemplate()
+    {
+        RulesTemplate template = rulesTemplate;
+        if ( template == null )
+        {
+            // concurrent Digester creations may create equivalent templates, only one being kept
+            template = new RulesTemplate();
+            createFromBinderRuleSet().addRegistrations( template );
+            rulesTemplate = template;
+        }
+        return template;
+    }
+
+    /**
+     * Returns the factory shared by the created {@link Digester} instances, creating it if the configuration of the
+     * parsers has changed since the last one.
+     *
+     * @return the factory shared by the created {@link Digester} instances
+     */
+    private SAXParserFactory getParserFactory()
+    {
+        SAXParserFactory shared = parserFactory;
+        if ( shared == null )
+        {
+            // concurrent Digester creations may create equivalent factories, only one being kept
+            shared = SAXParserFactory.newInstance();
+            shared.setNamespaceAware( factory.isNamespaceAware() );
+            shared.setValidating( factory.isValidating() );
+            shared.setXIncludeAware( factory.isXIncludeAware() );
+            shared.setSchema( factory.getSchema() );
+            for ( final Map.Entry<String, Boolean> feature : features.entrySet() )
+            {
+                try
+                {
+                    shared.setFeature( feature.getKey(), feature.getValue() );
+                }
+                catch ( final ParserConfigurationException | SAXException e )
+                {
+                    throw new DigesterLoadingException( "Feature " + feature.getKey() + " not supported", e );
+                }
+            }
+            parserFactory = shared;
+        }
+        return shared;
+    }
+
     /**
      * Return the "namespace aware" flag for parsers we create.
      *
@@ -270,6 +496,17 @@ public final class DigesterLoader
         return factory.isNamespaceAware();
     }
 
+    /**
+     * Tells whether the Digesters created with the default {@link Rules} implementation share a {@link RulesTemplate}.
+     *
+     * @return true if the Digesters created with the default {@link Rules} implementation share a rules template
+     * @since 3.3
+     */
+    public boolean isUseRulesTemplate()
+    {
+        return useRulesTemplate;
+    }
+
     /**
      * Return the {@code DOCTYPE} validation parser flag.
      *
@@ -295,10 +532,11 @@ public final class DigesterLoader
      * Creates a new {@link Digester} instance that relies on the default {@link Rules} implementation.
      *
      * @return a new {@link Digester} instance
+     * @see #setUseRulesTemplate(boolean)
      */
     public Digester newDigester()
     {
-        return this.newDigester( new RulesBase() );
+        return newDefaultDigester( null );
     }
 
     /**
@@ -309,18 +547,11 @@ public final class DigesterLoader
      */
     public Digester newDigester( final Rules rules )
     {
-        try
-        {
-            return this.newDigester( this.factory.newSAXParser(), rules );
-        }
-        catch ( final ParserConfigurationException e )
-        {
-            throw new DigesterLoadingException( "SAX Parser misconfigured", e );
-        }
-        catch ( final SAXException e )
+        if ( rules == null )
         {
-            throw new DigesterLoadingException( "An error occurred while initializing the SAX Parser", e );
+            throw new DigesterLoadingException( "Impossible to create a new Digester with null Rules" );
         }
+        return newDefaultDigester( rules );
     }
 
     /**
@@ -329,10 +560,11 @@ public final class DigesterLoader
      *
      * @param parser the user-defined {@code SAXParser}
      * @return a new {@link Digester} instance
+     * @see #setUseRulesTemplate(boolean)
      */
     public Digester newDigester( final SAXParser parser )
     {
-        return newDigester( parser, new RulesBase() );
+        return newDigester( createXMLReader( parser ) );
     }
 
     /**
@@ -345,19 +577,7 @@ public final class DigesterLoader
      */
     public Digester newDigester( final SAXParser parser, final Rules rules )
     {
-        if ( parser == null )
-        {
-            throw new DigesterLoadingException( "SAXParser must be not null" );
-        }
-
-        try
-        {
-            return this.newDigester( parser.getXMLReader(), rules );
-        }
-        catch ( final SAXException e )
-        {
-            throw new DigesterLoadingException( "An error occurred while creating the XML Reader", e );
-        }
+        return this.newDigester( createXMLReader( parser ), rules );
     }
 
     /**
@@ -369,9 +589,15 @@ public final class DigesterLoader
      *
      * @param reader The user-defined {@code XMLReader}
      * @return a new {@link Digester} instance
+     * @see #setUseRulesTemplate(boolean)
      */
     public Digester newDigester( final XMLReader reader )
     {
+        if ( isRulesTemplateUsed() )
+        {
+            // the rules of the template are already those of the modules
+            return createDigester( reader, getRulesTemplate().newRules() );
+        }
         return this.newDigester( reader, new RulesBase() );
     }
 
@@ -387,32 +613,307 @@ public final class DigesterLoader
      * @return a new {@link Digester} instance
      */
     public Digester newDigester( final XMLReader reader, final Rules rules )
+    {
+        final Digester digester = createDigester( reader, rules );
+        addRules( digester );
+        return digester;
+    }
+
+    /**
+     * Creates a new pool of the {@link Digester}s created by this loader.
+     *
+     * @param maxIdle the maximum number of idle Digesters kept by the pool
+     * @return a new pool of the Digesters created by this loader
+     * @since 3.3
+     */
+    public DigesterPool newDigesterPool( final int maxIdle )
+    {
+        if ( maxIdle < 0 )
+        {
+            throw new IllegalArgumentException( "Maximum number of idle Digesters must not be negative" );
+        }
+        return new DigesterPool( this, maxIdle );
+    }
+
+    /**
+     * Creates a new {@link Digester} borrowing the parser of each parse from the parser pool, if any, or creating its
+     * parser with the factory shared by the Digesters of this loader, so that its forks are configured the same way.
+     *
+     * @param rules The custom user define {@link Rules} implementation, {@code null} for the default one
+     * @return a new {@link Digester} instance
+     */
+    private Digester newDefaultDigester( final Rules rules )
+    {
+        final Digester digester = new Digester();
+        digester.setParserPool( parserPool );
+        if ( rules == null && isRulesTemplateUsed() )
+        {
+            // the rules of the template are already those of the modules
+            configure( digester, getRulesTemplate().newRules() );
+        }
+        else
+        {
+            configure( digester, rules != null ? rules : new RulesBase() );
+            addRules( digester );
+        }
+        if ( parserPool == null && digester.getParser() == null )
+        {
+            throw new DigesterLoadingException( "SAX Parser misconfigured" );
+        }
+        return digester;
+    }
+
+    /**
+     * Parses a batch of documents using up to the given number of {@link Digester}s in parallel, on the
+     * {@link #setExecutorService(ExecutorService) executor service} of this loader.
+     * <p>
+     * The documents are spread across a {@link DigesterPool pool} of Digesters created by this loader, each Digester
+     * parsing one document at a time and being reused for the next ones; the inputs are read as the parses progress, at
+     * most {@code parallelism} documents being parsed or waiting to be at any time. The failure of a document does not
+     * abort the batch: it is reported by the result of the document.
+     * </p>
+     * <p>
+     * The executor service must not be the one running this method, if it has less threads than the requested
+     * parallelism.
+     * </p>
+     *
+     * @param <T> the type of the root objects of the documents
+     * @param inputs the documents to parse
+     * @param parallelism the maximum number of documents parsed at the same time
+     * @return the results of the documents, in the order of the inputs
+     * @throws InterruptedIOException if interrupted while waiting for the parses
+     * @since 3.3
+     */
+    public <T> List<ParseResult<T>> parseAll( final Iterable<InputSource> inputs, final int parallelism )
+        throws InterruptedIOException
+    {
+        if ( inputs == null )
+        {
+            throw new IllegalArgumentException( "InputSources to parse are null" );
+        }
+        if ( parallelism < 1 )
+        {
+            throw new IllegalArgumentException( "Parallelism must be positive" );
+        }
+        if ( executorService == null )
+        {
+            throw new IllegalStateException( "ExecutorService not set" );
+        }
+
+        final DigesterPool digesters = newDigesterPool( parallelism );
+        final Deque<Future<ParseResult<T>>> parses = new ArrayDeque<>();
+        final List<ParseResult<T>> results = new ArrayList<>();
+        try
+        {
+            for ( final InputSource input : inputs )
+            {
+                if ( parses.size() == parallelism )
+                {
+                    results.add( await( parses.removeFirst() ) );
+                }
+                parses.addLast( executorService.submit( () -> parseDocument( digesters, input ) ) );
+            }
+            while ( !parses.isEmpty() )
+            {
+                results.add( await( parses.removeFirst() ) );
+            }
+        }
+        finally
+        {
+            for ( final Future<ParseResult<T>> pending : parses )
+            {
+                pending.cancel( true );
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Parses a record oriented document, made of a root element with many children, the records, using up to the
+     * given number of {@link Digester}s in parallel, on the {@link #setExecutorService(ExecutorService) executor
+     * service} of this loader.
+     * <p>
+     * The document is split at record boundaries, as it is read, into chunks of records that are parsed by separate
+     * Digesters created by this loader; each chunk document is made of the prolog of the document, the start tag of its
+     * root element, its records and the end tag of its root element, so that the rules are applied to the records as
+     * they would be in the whole document. The objects that the rules push for the elements matching the given pattern,
+     * typically the records, are then handed to the combiner in document order, on the calling thread; the combiner
+     * plays the role of the {@code SetNext} rule adding the records to their parent, which is not shared by the
+     * chunks.
+     * </p>
+     * <p>
+     * The rules must not depend on the other records, and the locations of the parse errors are relative to the chunk
+     * documents. The executor service must not be the one running this method, if it has less threads than the
+     * requested parallelism.
+     * </p>
+     *
+     * @param <T> the type of the objects handed to the combiner
+     * @param reader the document to parse
+     * @param pattern the pattern of the elements whose objects are handed to the combiner
+     * @param type the type of the objects handed to the combiner
+     * @param parallelism the maximum number of chunks parsed at the same time
+     * @param combiner the consumer of the objects, in document order
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     * @since 3.3
+     */
+    public <T> void parseRecords( final Reader reader, final String pattern, final Class<T> type,
+                                  final int parallelism, final Consumer<? super T> combiner )
+        throws IOException, SAXException
     {
         if ( reader == null )
         {
-            throw new DigesterLoadingException( "XMLReader must be not null" );
+            throw new IllegalArgumentException( "Reader to parse is null" );
         }
-        if ( rules == null )
+        if ( pattern == null )
         {
-            throw new DigesterLoadingException( "Impossible to create a new Digester with null Rules" );
+            throw new IllegalArgumentException( "Pattern to parse is null" );
+        }
+        if ( type == null )
+        {
+            throw new IllegalArgumentException( "Type to parse is null" );
+        }
+        if ( parallelism < 1 )
+        {
+            throw new IllegalArgumentException( "Parallelism must be positive" );
+        }
+        if ( combiner == null )
+        {
+            throw new IllegalArgumentException( "Combiner is null" );
+        }
+        if ( executorService == null )
+        {
+            throw new IllegalStateException( "ExecutorService not set" );
         }
 
-        final Digester digester = new Digester( reader );
-        // the ClassLoader adapter is no needed anymore
-        digester.setClassLoader( classLoader.getAdaptedClassLoader() );
-        digester.setRules( rules );
-        digester.setSubstitutor( substitutor );
-        digester.registerAll( entityValidator );
-        digester.setEntityResolver( entityResolver );
-        digester.setStackAction( stackAction );
-        digester.setNamespaceAware( isNamespaceAware() );
-        digester.setExecutorService( executorService );
-        digester.setErrorHandler( errorHandler );
-        digester.setDocumentLocator( locator );
+        final RecordSplitter splitter = new RecordSplitter( reader, RecordSplitter.DEFAULT_CHUNK_LENGTH );
+        final DigesterPool digesters = newDigesterPool( parallelism );
+        final Deque<Future<List<T>>> chunks = new ArrayDeque<>();
+        try
+        {
+            String chunk;
+            while ( ( chunk = splitter.nextChunk() ) != null )
+            {
+                if ( chunks.size() == parallelism )
+                {
+                    combine( chunks.removeFirst(), combiner );
+                }
+                final String document = chunk;
+                chunks.addLast( executorService.submit( () -> parseChunk( digesters, document, pattern, type ) ) );
+            }
+            while ( !chunks.isEmpty() )
+            {
+                combine( chunks.removeFirst(), combiner );
+            }
+        }
+        finally
+        {
+            for ( final Future<List<T>> pending : chunks )
+            {
+                pending.cancel( true );
+            }
+        }
+    }
 
-        addRules( digester );
+    private static <T> ParseResult<T> await( final Future<ParseResult<T>> parse )
+        throws InterruptedIOException
+    {
+        try
+        {
+            return parse.get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for a document" );
+        }
+        catch ( final ExecutionException e )
+        {
+            // the parse failures are reported by the results, only the creation of the Digesters can fail here
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException( cause );
+        }
+    }
 
-        return digester;
+    private static <T> void combine( final Future<List<T>> chunk, final Consumer<? super T> combiner )
+        throws IOException, SAXException
+    {
+        final List<T> objects;
+        try
+        {
+            objects = chunk.get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while waiting for a chunk of records" );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof UncheckedSAXException )
+            {
+                throw ( (UncheckedSAXException) cause ).getCause();
+            }
+            if ( cause instanceof SAXException )
+            {
+                throw (SAXException) cause;
+            }
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new SAXException( (Exception) cause );
+        }
+        objects.forEach( combiner );
+    }
+
+    private static <T> List<T> parseChunk( final DigesterPool digesters, final String document,
+                                           final String pattern, final Class<T> type )
+        throws IOException, SAXException
+    {
+        final Digester digester = digesters.borrowDigester();
+        try ( Stream<T> stream = digester.stream( new InputSource( new StringReader( document ) ), pattern, type ) )
+        {
+            return stream.collect( toList() );
+        }
+        finally
+        {
+            digesters.returnDigester( digester );
+        }
+    }
+
+    private static <T> ParseResult<T> parseDocument( final DigesterPool digesters, final InputSource input )
+    {
+        final Digester digester = digesters.borrowDigester();
+        try
+        {
+            return new ParseResult<>( input, digester.<T>parse( input ), null );
+        }
+        catch ( final Exception e )
+        {
+            return new ParseResult<>( input, null, e );
+        }
+        finally
+        {
+            digesters.returnDigester( digester );
+        }
     }
 
     /**
@@ -463,6 +964,18 @@ public final class DigesterLoader
         return this;
     }
 
+    /**
+     * Replaces the shared factory and the parser pool, if any, once the configuration of the parsers has changed.
+     */
+    private void resetParserFactory()
+    {
+        parserFactory = null;
+        if ( parserPool != null )
+        {
+            parserPool = new SAXParserPool( getParserFactory(), parserPool.getMaxIdle() );
+        }
+    }
+
     /**
      * Sets the class loader to be used for instantiating application objects when required.
      *
@@ -483,6 +996,7 @@ public final class DigesterLoader
         {
             rulesModule.configure( rulesBinder );
         }
+        rulesTemplate = null;
 
         return this;
     }
@@ -500,6 +1014,23 @@ public final class DigesterLoader
         return this;
     }
 
+    /**
+     * Sets the cache of the content of the {@link #register(String, URL) registered} entities, shared by the created
+     * {@link Digester} instances, so that the registered DTDs and external entities are read once rather than at each
+     * parse.
+     *
+     * @param entityCache the cache of the content of the registered entities, {@code null} to read them at each
+     *            resolution
+     * @return This loader instance, useful to chain methods.
+     * @see Digester#setEntityCache(EntityCache)
+     * @since 3.3
+     */
+    public DigesterLoader setEntityCache( final EntityCache entityCache )
+    {
+        this.entityCache = entityCache;
+        return this;
+    }
+
     /**
      * Sets the {@code EntityResolver} used by SAX when resolving public id and system id. This must be called
      * before the first call to {@code parse()}.
@@ -556,6 +1087,25 @@ public final class DigesterLoader
         throws SAXNotRecognizedException, SAXNotSupportedException, ParserConfigurationException
     {
         factory.setFeature( feature, value );
+        features.put( feature, value );
+        resetParserFactory();
+        return this;
+    }
+
+    /**
+     * Sets the cache of the grammars, DTDs and XML Schemas, validating the parsed documents, shared by the created
+     * {@link Digester} instances, so that the grammars are compiled once rather than at each parse.
+     *
+     * @param grammarCache the cache of the grammars validating the parsed documents, {@code null} to compile them at
+     *            each parse
+     * @return This loader instance, useful to chain methods.
+     * @see Digester#setGrammarCache(GrammarCache)
+     * @see #setSchema(URL)
+     * @since 3.3
+     */
+    public DigesterLoader setGrammarCache( final GrammarCache grammarCache )
+    {
+        this.grammarCache = grammarCache;
         return this;
     }
 
@@ -568,6 +1118,31 @@ public final class DigesterLoader
     public DigesterLoader setNamespaceAware( final boolean namespaceAware )
     {
         factory.setNamespaceAware( namespaceAware );
+        resetParserFactory();
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of idle parsers kept for the default {@link Digester} instances, which then borrow the
+     * parser of each parse from a {@link SAXParserPool} shared by the Digesters created by this loader, rather than
+     * creating their own parser.
+     * <p>
+     * The parsers are reset between the parses, which restores the configuration of this loader; the pool is replaced
+     * when that configuration changes. The Digesters created with a given {@code SAXParser} or {@code XMLReader} keep
+     * using it.
+     * </p>
+     *
+     * @param parserPoolSize the maximum number of idle parsers kept, 0 to not pool the parsers
+     * @return This loader instance, useful to chain methods.
+     * @since 3.3
+     */
+    public DigesterLoader setParserPoolSize( final int parserPoolSize )
+    {
+        if ( parserPoolSize < 0 )
+        {
+            throw new IllegalArgumentException( "Parser pool size must not be negative" );
+        }
+        parserPool = parserPoolSize > 0 ? new SAXParserPool( getParserFactory(), parserPoolSize ) : null;
         return this;
     }
 
@@ -580,9 +1155,32 @@ public final class DigesterLoader
     public DigesterLoader setSchema( final Schema schema )
     {
         factory.setSchema( schema );
+        resetParserFactory();
         return this;
     }
 
+    /**
+     * Sets the W3C XML Schema at the given URL to be used when parsing, taken from the grammar cache of this loader,
+     * if any, so that the loaders sharing the cache compile it once.
+     *
+     * @param schema The URL of the W3C XML Schema to use.
+     * @return This loader instance, useful to chain methods.
+     * @see #setGrammarCache(GrammarCache)
+     * @since 3.3
+     */
+    public DigesterLoader setSchema( final URL schema )
+    {
+        final GrammarCache cache = grammarCache != null ? grammarCache : new GrammarCache();
+        try
+        {
+            return setSchema( cache.getSchema( schema ) );
+        }
+        catch ( final SAXException e )
+        {
+            throw new DigesterLoadingException( "Impossible to compile the XML Schema " + schema, e );
+        }
+    }
+
     /**
      * Sets the Object which will receive callbacks for every pop/push action on the default stack or named stacks.
      *
@@ -632,6 +1230,30 @@ public final class DigesterLoader
         return this;
     }
 
+    /**
+     * Determine whether the Digesters created with the default {@link Rules} implementation share a
+     * {@link RulesTemplate} of the rules of the modules.
+     * <p>
+     * The template indexes the patterns of the rules once, and the Digesters only create their rule instances the first
+     * time their pattern is matched, so that the cost of creating a Digester does not grow with the number of rules;
+     * a rule provider failing to create its rule then fails the parse rather than the creation of the Digester.
+     * </p>
+     * <p>
+     * The template is not used when some rules are given to the binder by {@link LinkedRuleBuilder#addRule}, or
+     * created by the user providers of {@link LinkedRuleBuilder#addRuleCreatedBy}, as they may be the same instances
+     * for each Digester.
+     * </p>
+     *
+     * @param useRulesTemplate determines whether the Digesters share a rules template
+     * @return This loader instance, useful to chain methods.
+     * @since 3.3
+     */
+    public DigesterLoader setUseRulesTemplate( final boolean useRulesTemplate )
+    {
+        this.useRulesTemplate = useRulesTemplate;
+        return this;
+    }
+
     /**
      * Sets the {@code DOCTYPE} validation parser flag and should not be used when using schemas.
      *
@@ -642,6 +1264,7 @@ public final class DigesterLoader
     public DigesterLoader setValidating( final boolean validating )
     {
         factory.setValidating( validating );
+        resetParserFactory();
         return this;
     }
 
@@ -656,6 +1279,7 @@ public final class DigesterLoader
     public DigesterLoader setXIncludeAware( final boolean xIncludeAware )
     {
         factory.setXIncludeAware( xIncludeAware );
+        resetParserFactory();
         return this;
     }
 
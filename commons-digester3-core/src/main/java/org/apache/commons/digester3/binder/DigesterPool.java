@@ -0,0 +1,252 @@
+package org.apache.commons.digester3.binder;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.digester3.Digester;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * A pool of {@link Digester}s created by a {@link DigesterLoader}, reused across parses.
+ * <p>
+ * The borrowed Digesters are {@link Digester#reset() reset} when returned, whether their parse succeeded or failed,
+ * and kept for the next borrowers, up to the maximum number of idle Digesters of the pool; the Digesters are created by
+ * the loader when no idle one is available. The pool is thread safe, each borrowed Digester being used by one thread
+ * at a time.
+ * </p>
+ *
+ * @since 3.3
+ */
+public final class DigesterPool
+{
+
+    private final DigesterLoader loader;
+
+    private final int maxIdle;
+
+    private final Deque<Digester> idle = new ConcurrentLinkedDeque<>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final Set<Digester> borrowed = Collections.newSetFromMap( new ConcurrentHashMap<>() );
+
+    private final AtomicLong borrowedCount = new AtomicLong();
+
+    private final AtomicLong returnedCount = new AtomicLong();
+
+    private final AtomicLong createdCount = new AtomicLong();
+
+    private final AtomicLong destroyedCount = new AtomicLong();
+
+    /**
+     * Creates a new pool of the Digesters created by the given loader.
+     *
+     * @param loader the loader creating the Digesters
+     * @param maxIdle the maximum number of idle Digesters kept by the pool
+     */
+    DigesterPool( final DigesterLoader loader, final int maxIdle )
+    {
+        this.loader = loader;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Borrows a Digester from this pool, creating it if no idle Digester is available. The Digester must be
+     * {@link #returnDigester(Digester) returned} once its parse is done, successful or not.
+     *
+     * @return a Digester ready to parse a document
+     */
+    public Digester borrowDigester()
+    {
+        Digester digester = idle.pollFirst();
+        if ( digester != null )
+        {
+            idleCount.decrementAndGet();
+        }
+        else
+        {
+            digester = loader.newDigester();
+            createdCount.incrementAndGet();
+        }
+        borrowed.add( digester );
+        borrowedCount.incrementAndGet();
+        return digester;
+    }
+
+    /**
+     * Discards the idle Digesters of this pool.
+     */
+    public void clear()
+    {
+        while ( idle.pollFirst() != null )
+        {
+            idleCount.decrementAndGet();
+            destroyedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the number of Digesters currently borrowed from this pool.
+     *
+     * @return the number of Digesters currently borrowed from this pool
+     */
+    public int getActiveCount()
+    {
+        return borrowed.size();
+    }
+
+    /**
+     * Gets the number of times a Digester has been borrowed from this pool.
+     *
+     * @return the number of times a Digester has been borrowed from this pool
+     */
+    public long getBorrowedCount()
+    {
+        return borrowedCount.get();
+    }
+
+    /**
+     * Gets the number of Digesters created by this pool.
+     *
+     * @return the number of Digesters created by this pool
+     */
+    public long getCreatedCount()
+    {
+        return createdCount.get();
+    }
+
+    /**
+     * Gets the number of Digesters discarded by this pool, because they could not be reset or were not needed as idle
+     * Digesters.
+     *
+     * @return the number of Digesters discarded by this pool
+     */
+    public long getDestroyedCount()
+    {
+        return destroyedCount.get();
+    }
+
+    /**
+     * Gets the number of idle Digesters currently kept by this pool.
+     *
+     * @return the number of idle Digesters currently kept by this pool
+     */
+    public int getIdleCount()
+    {
+        return idleCount.get();
+    }
+
+    /**
+     * Gets the maximum number of idle Digesters kept by this pool.
+     *
+     * @return the maximum number of idle Digesters kept by this pool
+     */
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    /**
+     * Gets the number of times a Digester has been returned to this pool.
+     *
+     * @return the number of times a Digester has been returned to this pool
+     */
+    public long getReturnedCount()
+    {
+        return returnedCount.get();
+    }
+
+    /**
+     * Parses the given document with a Digester borrowed from this pool, returned once the parse is done.
+     *
+     * @param <T> the type used to auto-cast the returned object to the assigned variable type
+     * @param input the document to parse
+     * @return the root element from the object stack (if any)
+     * @throws IOException if an input/output error occurs
+     * @throws SAXException if a parsing exception occurs
+     */
+    public <T> T parse( final InputSource input )
+        throws IOException, SAXException
+    {
+        final Digester digester = borrowDigester();
+        try
+        {
+            return digester.parse( input );
+        }
+        finally
+        {
+            returnDigester( digester );
+        }
+    }
+
+    /**
+     * Returns a Digester borrowed from this pool, after its parse, successful or not. The Digester is reset, and kept
+     * for the next borrowers unless the pool already has its maximum number of idle Digesters.
+     *
+     * @param digester the Digester borrowed from this pool
+     * @throws IllegalArgumentException if the Digester is not currently borrowed from this pool
+     */
+    public void returnDigester( final Digester digester )
+    {
+        if ( digester == null || !borrowed.remove( digester ) )
+        {
+            throw new IllegalArgumentException( "Digester not borrowed from this pool" );
+        }
+        returnedCount.incrementAndGet();
+
+        try
+        {
+            digester.reset();
+        }
+        catch ( final RuntimeException e )
+        {
+            destroyedCount.incrementAndGet();
+            digester.getLogger().warn( "Digester discarded, it could not be reset", e );
+            return;
+        }
+
+        if ( idleCount.incrementAndGet() > maxIdle )
+        {
+            idleCount.decrementAndGet();
+            destroyedCount.incrementAndGet();
+            return;
+        }
+        idle.offerFirst( digester );
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "DigesterPool[active=%s, idle=%s, borrowed=%s, returned=%s, created=%s, destroyed=%s]",
+                              getActiveCount(), getIdleCount(), borrowedCount, returnedCount, createdCount,
+                              destroyedCount );
+    }
+
+}
@@ -29,6 +29,7 @@ import java.util.Objects;
 import org.apache.commons.digester3.Digester;
 import org.apache.commons.digester3.Rule;
 import org.apache.commons.digester3.RuleSet;
+import org.apache.commons.digester3.RulesTemplate;
 
 /**
  * {@link RuleSet} implementation that allows register {@link RuleProvider} instances
@@ -124,6 +125,11 @@ final class FromBinderRuleSet
     private final Map<Key, Collection<AbstractBackToLinkedRuleBuilder<? extends Rule>>> providersIndex =
         new HashMap<>();
 
+    /**
+     * Whether all the providers create new Rule instances at each call.
+     */
+    private boolean replayable = true;
+
     @Override
     public void addRuleInstances( final Digester digester )
     {
@@ -133,6 +139,32 @@ final class FromBinderRuleSet
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The rules given to the binder, and those created by the user providers, may be the same instances at each
+     * call; the other providers create new Rule instances.
+     * </p>
+     */
+    @Override
+    public boolean isReplayable()
+    {
+        return replayable;
+    }
+
+    /**
+     * Registers the providers into the given template.
+     *
+     * @param template the template of the rules created by the providers
+     */
+    public void addRegistrations( final RulesTemplate template )
+    {
+        for ( final AbstractBackToLinkedRuleBuilder<? extends Rule> provider : providers )
+        {
+            template.add( provider.getPattern(), provider.getNamespaceURI(), provider::get );
+        }
+    }
+
     /**
      * Clean the provider index.
      */
@@ -140,6 +172,7 @@ final class FromBinderRuleSet
     {
         providers.clear();
         providersIndex.clear();
+        replayable = true;
     }
 
     @Override
@@ -197,6 +230,10 @@ final class FromBinderRuleSet
     public <R extends Rule, RB extends AbstractBackToLinkedRuleBuilder<R>> void registerProvider( final RB ruleBuilder )
     {
         this.providers.add( ruleBuilder );
+        if ( ruleBuilder instanceof ByRuleBuilder || ruleBuilder instanceof ByRuleProviderBuilder )
+        {
+            replayable = false;
+        }
 
         final Key key = new Key( ruleBuilder.getPattern(), ruleBuilder.getNamespaceURI() );
 
@@ -0,0 +1,106 @@
+package org.apache.commons.digester3.binder;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.lang.String.format;
+
+import org.xml.sax.InputSource;
+
+/**
+ * The outcome of the parse of one of the documents of a {@link DigesterLoader#parseAll(Iterable, int)} batch: either
+ * the root object of the document, or the failure of its parse.
+ *
+ * @param <T> the type of the root objects
+ * @since 3.3
+ */
+public final class ParseResult<T>
+{
+
+    private final InputSource input;
+
+    private final T root;
+
+    private final Exception failure;
+
+    /**
+     * Creates a new result.
+     *
+     * @param input the parsed document
+     * @param root the root object of the document, if parsed
+     * @param failure the failure of the parse, if any
+     */
+    ParseResult( final InputSource input, final T root, final Exception failure )
+    {
+        this.input = input;
+        this.root = root;
+        this.failure = failure;
+    }
+
+    /**
+     * Returns the failure of the parse, typically an {@code IOException} or a {@code SAXException}.
+     *
+     * @return the failure of the parse, {@code null} if the document has been parsed
+     */
+    public Exception getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * Returns the parsed document.
+     *
+     * @return the parsed document
+     */
+    public InputSource getInput()
+    {
+        return input;
+    }
+
+    /**
+     * Returns the root object of the document, as {@code Digester.parse()} does.
+     *
+     * @return the root object of the document, {@code null} if the parse failed
+     */
+    public T getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Tells whether the document has been parsed.
+     *
+     * @return true if the document has been parsed, false if the parse failed
+     */
+    public boolean isParsed()
+    {
+        return failure == null;
+    }
+
+    @Override
+    public String toString()
+    {
+        if ( failure != null )
+        {
+            return format( "ParseResult[systemId=%s, failure=%s]", input.getSystemId(), failure );
+        }
+        return format( "ParseResult[systemId=%s, root=%s]", input.getSystemId(), root );
+    }
+
+}
@@ -0,0 +1,328 @@
+package org.apache.commons.digester3.binder;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Splits a record oriented document, made of a root element with many children, into standalone documents holding a
+ * few of those children each.
+ * <p>
+ * Each chunk document is made of the prolog of the document, including its {@code DOCTYPE}, the start tag of its root
+ * element, with its namespace declarations, the children of the chunk and the end tag of the root element, so that
+ * the children are parsed as they would be in the whole document. The splitter only scans the markup, without parsing
+ * it: it recognizes the comments, processing instructions, {@code CDATA} sections and quoted attribute values, so
+ * that the boundaries of the children are found wherever they are, but the well-formedness of the document is left to
+ * the parsers of the chunks. The content following the root element is not read.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class RecordSplitter
+{
+
+    /** The length, in characters, from which the content of a chunk is closed at the next record boundary. */
+    static final int DEFAULT_CHUNK_LENGTH = 64 * 1024;
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Reader reader;
+
+    private final int chunkLength;
+
+    private final char[] buffer = new char[8192];
+
+    private int position;
+
+    private int limit;
+
+    /** The characters read are appended to this builder. */
+    private StringBuilder target;
+
+    /** The prolog and the start tag of the root element. */
+    private String header;
+
+    /** The end tag of the root element. */
+    private String footer;
+
+    private boolean finished;
+
+    /**
+     * Creates a new splitter of the given document.
+     *
+     * @param reader the document to split, read as the chunks are requested
+     * @param chunkLength the length, in characters, from which the content of a chunk is closed at the next record
+     *            boundary
+     */
+    RecordSplitter( final Reader reader, final int chunkLength )
+    {
+        this.reader = reader;
+        this.chunkLength = chunkLength;
+    }
+
+    /**
+     * Reads the next chunk of the document.
+     *
+     * @return the next chunk document, {@code null} once all the records have been read
+     * @throws IOException if the document cannot be read
+     * @throws SAXException if the structure of the document is not the expected one
+     */
+    String nextChunk()
+        throws IOException, SAXException
+    {
+        if ( header == null )
+        {
+            readHeader();
+        }
+        if ( finished )
+        {
+            return null;
+        }
+
+        target = new StringBuilder( header.length() + chunkLength + 1024 ).append( header );
+        final int contentStart = target.length();
+        boolean records = false;
+        int depth = 1;
+        while ( true )
+        {
+            if ( read() != '<' )
+            {
+                continue;
+            }
+            final int tagStart = target.length() - 1;
+            final int c = read();
+            if ( c == '!' )
+            {
+                skipDeclaration();
+            }
+            else if ( c == '?' )
+            {
+                skipUntil( "?>" );
+            }
+            else if ( c == '/' )
+            {
+                skipTag( c );
+                if ( --depth == 0 )
+                {
+                    // the end of the root element, which is replaced by the footer
+                    target.setLength( tagStart );
+                    finished = true;
+                    break;
+                }
+                if ( depth == 1 && target.length() - contentStart >= chunkLength )
+                {
+                    break;
+                }
+            }
+            else
+            {
+                records = true;
+                if ( !skipTag( c ) )
+                {
+                    depth++;
+                }
+                else if ( depth == 1 && target.length() - contentStart >= chunkLength )
+                {
+                    break;
+                }
+            }
+        }
+
+        if ( !records )
+        {
+            return null;
+        }
+        return target.append( footer ).toString();
+    }
+
+    private int read()
+        throws IOException, SAXException
+    {
+        if ( position == limit )
+        {
+            limit = reader.read( buffer, 0, buffer.length );
+            position = 0;
+            if ( limit <= 0 )
+            {
+                limit = 0;
+                throw new SAXException( "Unexpected end of document while splitting the records" );
+            }
+        }
+        final char c = buffer[position++];
+        target.append( c );
+        return c;
+    }
+
+    /**
+     * Reads the prolog and the start tag of the root element.
+     */
+    private void readHeader()
+        throws IOException, SAXException
+    {
+        target = new StringBuilder();
+        while ( true )
+        {
+            if ( read() != '<' )
+            {
+                continue;
+            }
+            int c = read();
+            if ( c == '!' )
+            {
+                skipDeclaration();
+            }
+            else if ( c == '?' )
+            {
+                skipUntil( "?>" );
+            }
+            else
+            {
+                final StringBuilder name = new StringBuilder();
+                while ( c != '>' && c != '/' && !Character.isWhitespace( c ) )
+                {
+                    name.append( (char) c );
+                    c = read();
+                }
+                finished = skipTag( c );
+                footer = "</" + name + ">";
+                break;
+            }
+        }
+        if ( target.length() > 0 && target.charAt( 0 ) == BYTE_ORDER_MARK )
+        {
+            target.deleteCharAt( 0 );
+        }
+        header = target.toString();
+    }
+
+    /**
+     * Skips a comment, a {@code CDATA} section or a declaration, such as the {@code DOCTYPE}, the {@code <!} having
+     * been read.
+     */
+    private void skipDeclaration()
+        throws IOException, SAXException
+    {
+        final int c = read();
+        if ( c == '-' )
+        {
+            skipUntil( "-->" );
+        }
+        else if ( c == '[' )
+        {
+            skipUntil( "]]>" );
+        }
+        else
+        {
+            // a declaration, with an optional internal subset between brackets
+            int brackets = 0;
+            int next = c;
+            while ( next != '>' || brackets > 0 )
+            {
+                if ( next == '"' || next == '\'' )
+                {
+                    skipQuoted( next );
+                }
+                else if ( next == '[' )
+                {
+                    brackets++;
+                }
+                else if ( next == ']' )
+                {
+                    brackets--;
+                }
+                else if ( next == '<' )
+                {
+                    final int markup = read();
+                    if ( markup == '!' && read() == '-' )
+                    {
+                        skipUntil( "-->" );
+                    }
+                    else if ( markup == '?' )
+                    {
+                        skipUntil( "?>" );
+                    }
+                    else
+                    {
+                        // a markup declaration of the internal subset, such as an ENTITY
+                        int declaration = read();
+                        while ( declaration != '>' )
+                        {
+                            if ( declaration == '"' || declaration == '\'' )
+                            {
+                                skipQuoted( declaration );
+                            }
+                            declaration = read();
+                        }
+                    }
+                }
+                next = read();
+            }
+        }
+    }
+
+    private void skipQuoted( final int quote )
+        throws IOException, SAXException
+    {
+        while ( read() != quote )
+        {
+            // skip the quoted value
+        }
+    }
+
+    /**
+     * Skips a tag up to its closing {@code >}, the given character having already been read.
+     *
+     * @return true if the tag is an empty element tag, closed by {@code />}
+     */
+    private boolean skipTag( final int first )
+        throws IOException, SAXException
+    {
+        int previous = -1;
+        int c = first;
+        while ( c != '>' )
+        {
+            if ( c == '"' || c == '\'' )
+            {
+                skipQuoted( c );
+            }
+            previous = c;
+            c = read();
+        }
+        return previous == '/';
+    }
+
+    private void skipUntil( final String end )
+        throws IOException, SAXException
+    {
+        final char last = end.charAt( end.length() - 1 );
+        while ( true )
+        {
+            if ( read() == last && target.length() >= end.length()
+                && target.indexOf( end, target.length() - end.length() ) >= 0 )
+            {
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.commons.digester3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for CachingRules, the RulesBase matching rules are tested through the decorator.
+ */
+public class CachingRulesTestCase
+    extends RulesBaseTestCase
+{
+
+    @Override
+    protected Rules createMatchingRulesForTest()
+    {
+        return new CachingRules( new RulesBase() );
+    }
+
+    @Test
+    void testMatchesAreCached()
+    {
+        final CachingRules rules = new CachingRules( new RulesBase() );
+        rules.add( "alpha", new TestRule( "Tom" ) );
+        rules.add( "*/beta", new TestRule( "Dick" ) );
+
+        final List<Rule> matches = rules.match( "", "alpha", null, null );
+        assertEquals( 1, matches.size(), "Wrong size (1)" );
+        assertSame( matches, rules.match( "", "alpha", null, null ), "Match not cached (1)" );
+        assertSame( rules.match( "", "alpha/beta", null, null ), rules.match( "", "alpha/beta", null, null ),
+                    "Match not cached (2)" );
+        assertNotSame( matches, rules.match( "other", "alpha", null, null ), "Namespaces share the same cache" );
+        assertEquals( 0, rules.match( "", "gamma", null, null ).size(), "Wrong size (2)" );
+        assertThrows( UnsupportedOperationException.class, () -> matches.add( new TestRule( "Harry" ) ),
+                      "Cached matches must not be modifiable" );
+
+        rules.add( "alpha", new TestRule( "Harry" ) );
+        assertEquals( 2, rules.match( "", "alpha", null, null ).size(), "Cache not discarded on add" );
+
+        rules.clear();
+        assertEquals( 0, rules.match( "", "alpha", null, null ).size(), "Cache not discarded on clear" );
+    }
+
+    @Test
+    void testMaxCachedPatterns()
+    {
+        final CachingRules rules = new CachingRules( new RulesBase(), 2 );
+        rules.add( "*/alpha", new TestRule( "Tom" ) );
+
+        final List<Rule> first = rules.match( "", "a/alpha", null, null );
+        rules.match( "", "b/alpha", null, null );
+        assertSame( first, rules.match( "", "a/alpha", null, null ), "Recently matched pattern evicted" );
+        rules.match( "", "c/alpha", null, null );
+        assertSame( first, rules.match( "", "a/alpha", null, null ), "Recently matched pattern evicted" );
+        rules.match( "", "b/alpha", null, null );
+        rules.match( "", "c/alpha", null, null );
+        assertNotSame( first, rules.match( "", "a/alpha", null, null ), "Least recently matched pattern not evicted" );
+
+        final List<Rule> noNamespace = rules.match( null, "a/alpha", null, null );
+        rules.match( "ns1", "a/alpha", null, null );
+        rules.match( "ns2", "a/alpha", null, null );
+        assertNotSame( noNamespace, rules.match( null, "a/alpha", null, null ),
+                       "Matches of the other namespaces not counted" );
+
+        assertThrows( IllegalArgumentException.class, () -> new CachingRules( new RulesBase(), -1 ) );
+        assertThrows( IllegalArgumentException.class, () -> new CachingRules( null ) );
+    }
+
+    @Test
+    void testDirectModificationOfWrappedRules()
+    {
+        final CachingRules rules = new CachingRules( new RulesBase() );
+        assertEquals( 0, rules.match( "", "alpha", null, null ).size(), "Wrong size (1)" );
+
+        rules.getWrappedRules().add( "alpha", new TestRule( "Tom" ) );
+        assertEquals( 0, rules.match( "", "alpha", null, null ).size(), "Wrong size (2)" );
+        rules.clearCache();
+        assertEquals( 1, rules.match( "", "alpha", null, null ).size(), "Wrong size (3)" );
+    }
+
+}
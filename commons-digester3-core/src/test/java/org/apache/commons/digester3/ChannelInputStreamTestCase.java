@@ -0,0 +1,159 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.Arrays.copyOfRange;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.digester3.XMLSchemaTestCase.TestErrorHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>
+ * Tests the parse of the files read through their channel.
+ * </p>
+ */
+public class ChannelInputStreamTestCase
+{
+
+    private Path file;
+
+    private static byte[] content( final int length )
+    {
+        final byte[] content = new byte[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            content[i] = (byte) ( i * 31 + ( i >> 8 ) );
+        }
+        return content;
+    }
+
+    private static byte[] readFully( final InputStream stream, final int chunkLength )
+        throws IOException
+    {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[chunkLength];
+        int read;
+        while ( ( read = stream.read( chunk, 0, chunk.length ) ) >= 0 )
+        {
+            content.write( chunk, 0, read );
+        }
+        return content.toByteArray();
+    }
+
+    @BeforeEach
+    public void setUp()
+        throws IOException
+    {
+        file = Files.createTempFile( "channel", ".xml" );
+    }
+
+    @AfterEach
+    public void tearDown()
+        throws IOException
+    {
+        Files.deleteIfExists( file );
+    }
+
+    @Test
+    void testMappedFile()
+        throws Exception
+    {
+        final byte[] content = content( (int) ChannelInputStream.MAPPING_THRESHOLD * 3 / 2 );
+        Files.write( file, content );
+
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+        {
+            channel.position( 10 );
+            final InputStream stream = new ChannelInputStream( channel, true );
+            assertEquals( content.length - 10, stream.available(), "Wrong available bytes" );
+            assertEquals( content[10] & 0xFF, stream.read(), "Wrong first byte" );
+            assertEquals( 1000, stream.skip( 1000 ), "Wrong skipped bytes" );
+            final byte[] read = readFully( stream, 8191 );
+            assertArrayEquals( copyOfRange( content, 1011, content.length ), read, "Wrong mapped content" );
+            assertEquals( -1, stream.read(), "Content read after the end of the file" );
+            stream.close();
+            assertFalse( channel.isOpen(), "Channel not closed with the stream" );
+        }
+    }
+
+    @Test
+    void testParseFileChannel()
+        throws Exception
+    {
+        Files.write( file, "<?xml version='1.0'?><root alpha='a'/>".getBytes( StandardCharsets.UTF_8 ) );
+        final Digester digester = new Digester();
+        digester.addObjectCreate( "root", SimpleTestBean.class );
+        digester.addSetProperties( "root" );
+
+        try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+        {
+            final SimpleTestBean bean = digester.parse( channel );
+            assertEquals( "a", bean.getAlpha(), "Wrong parsed property" );
+            assertTrue( channel.isOpen(), "Channel closed by the parse" );
+            assertEquals( 0, channel.position(), "Position of the channel changed by the parse" );
+        }
+    }
+
+    @Test
+    void testParsePath()
+        throws Exception
+    {
+        final Path directory = Paths.get( "src/test/resources/org/apache/commons/digester3" );
+        final Digester digester = new Digester();
+        digester.setValidating( true );
+        final TestErrorHandler errorHandler = new TestErrorHandler();
+        digester.setErrorHandler( errorHandler );
+        digester.parse( directory.resolve( "document-with-relative-dtd.xml" ) );
+        assertTrue( errorHandler.clean, "Relative DTD not resolved from the path" );
+
+        digester.parse( directory.resolve( "document-with-relative-dtd-error.xml" ) );
+        assertFalse( errorHandler.clean, "Invalid document accepted" );
+    }
+
+    @Test
+    void testSmallFile()
+        throws Exception
+    {
+        final byte[] content = content( ChannelInputStream.BUFFER_SIZE * 2 + 123 );
+        Files.write( file, content );
+
+        try ( InputStream stream = new ChannelInputStream( FileChannel.open( file, StandardOpenOption.READ ), true ) )
+        {
+            assertArrayEquals( content, readFully( stream, 1000 ), "Wrong read content" );
+        }
+    }
+
+}
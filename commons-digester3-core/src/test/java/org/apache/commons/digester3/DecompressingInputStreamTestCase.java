@@ -0,0 +1,209 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXParseException;
+
+/**
+ * <p>
+ * Tests the parse of the compressed documents, decompressed on a decompressor thread.
+ * </p>
+ */
+public class DecompressingInputStreamTestCase
+{
+
+    private static final int RECORDS = 20000;
+
+    private static final byte[] DOCUMENT = document();
+
+    private Digester digester;
+
+    private final List<String> ids = new ArrayList<>();
+
+    private static byte[] compress( final byte[] content, final boolean gzip )
+        throws IOException
+    {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try ( OutputStream stream = gzip ? new GZIPOutputStream( compressed ) : new DeflaterOutputStream( compressed ) )
+        {
+            stream.write( content );
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void copy( final InputStream input, final OutputStream output )
+        throws IOException
+    {
+        try ( InputStream stream = input )
+        {
+            final byte[] buffer = new byte[1000];
+            int read;
+            while ( ( read = stream.read( buffer ) ) >= 0 )
+            {
+                output.write( buffer, 0, read );
+            }
+        }
+    }
+
+    private static byte[] document()
+    {
+        final StringBuilder document = new StringBuilder( "<?xml version='1.0'?>\n<records>\n" );
+        for ( int i = 0; i < RECORDS; i++ )
+        {
+            document.append( "  <record id='" ).append( i ).append( "'><name>record " ).append( i )
+                .append( "</name></record>\n" );
+        }
+        return document.append( "</records>\n" ).toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+    private void assertParsed( final String message )
+    {
+        assertEquals( RECORDS, ids.size(), message );
+        assertEquals( "0", ids.get( 0 ), message );
+        assertEquals( String.valueOf( RECORDS - 1 ), ids.get( RECORDS - 1 ), message );
+    }
+
+    @BeforeEach
+    public void setUp()
+    {
+        digester = new Digester();
+        digester.addRule( "records/record", new Rule()
+        {
+
+            @Override
+            public void begin( final String namespace, final String name, final Attributes attributes )
+            {
+                ids.add( attributes.getValue( "id" ) );
+            }
+
+        } );
+    }
+
+    @Test
+    void testClosedEarly()
+        throws Exception
+    {
+        final byte[] compressed = compress( DOCUMENT, true );
+        final InputStream stream = DecompressingInputStream.open( new ByteArrayInputStream( compressed ), null );
+        assertInstanceOf( DecompressingInputStream.class, stream, "Gzip stream not decompressed" );
+        final byte[] start = new byte[5];
+        assertEquals( 5, stream.read( start ), "Wrong read length" );
+        assertArrayEquals( Arrays.copyOf( DOCUMENT, 5 ), start, "Wrong decompressed content" );
+        stream.close();
+        assertEquals( -1, stream.read(), "Content read after close" );
+    }
+
+    @Test
+    void testClosedWhileStalled()
+        throws Exception
+    {
+        final byte[] compressed = compress( DOCUMENT, true );
+        final StalledInputStream input = new StalledInputStream( Arrays.copyOf( compressed, compressed.length / 2 ) );
+        final InputStream stream = DecompressingInputStream.open( input, null );
+
+        final long start = System.nanoTime();
+        stream.close();
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+        assertTrue( input.isClosed(), "Stalled compressed stream not closed" );
+        assertTrue( elapsed < BackgroundTask.STOP_MILLIS, "Close waiting for the stalled decompressor" );
+    }
+
+    @Test
+    void testTruncatedGzip()
+        throws Exception
+    {
+        final byte[] compressed = compress( DOCUMENT, true );
+        final byte[] truncated = Arrays.copyOf( compressed, compressed.length / 2 );
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        assertThrows( EOFException.class, () -> copy( new GZIPInputStream( new ByteArrayInputStream( truncated ) ),
+                                                      expected ) );
+        assertThrows( EOFException.class,
+                      () -> copy( DecompressingInputStream.open( new ByteArrayInputStream( truncated ), null ),
+                                  actual ) );
+        assertArrayEquals( expected.toByteArray(), actual.toByteArray(), "Content preceding the failure not read" );
+
+        // the parser reports the end of the decompressed content as it does without the decompressor thread
+        assertThrows( SAXParseException.class,
+                      () -> digester.parseCompressed( new ByteArrayInputStream( truncated ) ) );
+        assertTrue( ids.size() < RECORDS, "Truncated document fully parsed" );
+    }
+
+    @Test
+    void testGzip()
+        throws Exception
+    {
+        digester.parseCompressed( new ByteArrayInputStream( compress( DOCUMENT, true ) ) );
+        assertParsed( "Wrong parse of the gzip document" );
+    }
+
+    @Test
+    void testShortStreams()
+        throws Exception
+    {
+        assertEquals( -1, DecompressingInputStream.open( new ByteArrayInputStream( new byte[0] ), null ).read(),
+                      "Empty stream not empty" );
+        final InputStream stream =
+            DecompressingInputStream.open( new ByteArrayInputStream( new byte[] { 0x1F } ), null );
+        assertEquals( 0x1F, stream.read(), "Wrong byte of a one byte stream" );
+        assertEquals( -1, stream.read(), "Wrong end of a one byte stream" );
+    }
+
+    @Test
+    void testUncompressed()
+        throws Exception
+    {
+        digester.parseCompressed( new ByteArrayInputStream( DOCUMENT ) );
+        assertParsed( "Wrong parse of the uncompressed document" );
+    }
+
+    @Test
+    void testZlib()
+        throws Exception
+    {
+        digester.parseCompressed( new ByteArrayInputStream( compress( DOCUMENT, false ) ) );
+        assertParsed( "Wrong parse of the zlib document" );
+    }
+
+}
@@ -0,0 +1,293 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static javax.xml.parsers.SAXParserFactory.newInstance;
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.digester3.binder.AbstractRulesModule;
+import org.apache.commons.digester3.binder.DigesterLoader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests the forks of a Digester, and the concurrent async parses of a Digester.
+ */
+public class DigesterForkTestCase
+{
+
+    /**
+     * Adds new rule instances at each call.
+     */
+    private static final class EmployeeRuleSet
+        extends RuleSetBase
+    {
+
+        @Override
+        public void addRuleInstances( final Digester digester )
+        {
+            digester.addObjectCreate( "employee", Employee.class );
+            digester.addSetProperties( "employee" );
+            digester.addSetNext( "employee", "add" );
+        }
+
+        @Override
+        public boolean isReplayable()
+        {
+            return true;
+        }
+
+    }
+
+    private final DigesterLoader digesterLoader = newLoader( new AbstractRulesModule()
+    {
+
+        @Override
+        protected void configure()
+        {
+            forPattern( "employee" ).createObject().ofType( Employee.class ).then().setProperties();
+            forPattern( "employee/address" ).createObject().ofType( Address.class ).then().setProperties()
+                .then().setNext( "addAddress" );
+        }
+
+    } );
+
+    private ExecutorService executorService;
+
+    private static String employee( final int index )
+    {
+        final StringBuilder xml = new StringBuilder( "<employee firstName='" ).append( index ).append( "'>" );
+        for ( int j = 0; j < 50; j++ )
+        {
+            xml.append( "<address type='" ).append( j ).append( "' city='" ).append( index ).append( "'/>" );
+        }
+        return xml.append( "</employee>" ).toString();
+    }
+
+    private static void verifyEmployees( final List<Future<Employee>> futures )
+        throws Exception
+    {
+        for ( int i = 0; i < futures.size(); i++ )
+        {
+            final Employee employee = futures.get( i ).get();
+            assertEquals( String.valueOf( i ), employee.getFirstName(), "Employee" );
+            for ( int j = 0; j < 50; j++ )
+            {
+                assertEquals( String.valueOf( i ), employee.getAddress( String.valueOf( j ) ).getCity(),
+                              "Address of employee " + i );
+            }
+        }
+    }
+
+    @BeforeEach
+    public void setUp()
+    {
+        executorService = newFixedThreadPool( 4 );
+        digesterLoader.setExecutorService( executorService );
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testAsyncParseWithPushedParent()
+        throws Exception
+    {
+        final Digester digester = new Digester();
+        digester.setExecutorService( executorService );
+        digester.addRuleSet( new EmployeeRuleSet() );
+        final List<Employee> employees = new ArrayList<>();
+        digester.push( employees );
+
+        final Future<List<Employee>> future =
+            digester.asyncParse( new StringReader( "<employee firstName='Pushed'/>" ) );
+        assertSame( employees, future.get(), "Root of the parse" );
+        assertEquals( 1, employees.size(), "Employees added to the pushed parent" );
+        assertEquals( "Pushed", employees.get( 0 ).getFirstName(), "Employee" );
+        assertSame( employees, digester.getRoot(), "Root of the Digester" );
+    }
+
+    @Test
+    void testAsyncParseWithSchema()
+        throws Exception
+    {
+        final List<SAXParseException> errors = new ArrayList<>();
+        final DigesterLoader loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "employee" ).createObject().ofType( Employee.class );
+                forPattern( "employee/firstName" ).setBeanProperty();
+            }
+
+        } ).setNamespaceAware( true ).setSchema( Digester.class.getResource( "Test13.xsd" ) )
+            .setFeature( "http://xml.org/sax/features/namespace-prefixes", true )
+            .setExecutorService( executorService ).setErrorHandler( new DefaultHandler()
+            {
+
+                @Override
+                public void error( final SAXParseException e )
+                {
+                    errors.add( e );
+                }
+
+            } );
+        final Digester digester = loader.newDigester();
+
+        final Digester fork = digester.fork();
+        assertNotNull( fork.getXMLSchema(), "XML Schema of the fork" );
+        assertTrue( fork.getFeature( "http://xml.org/sax/features/namespace-prefixes" ), "Feature of the fork" );
+
+        final String xml = "<employee xmlns='http://commons.apache.org/digester/tests'><firstName>Valid</firstName>"
+            + "<lastName>Employee</lastName></employee>";
+        final Future<Employee> valid = digester.asyncParse( new StringReader( xml ) );
+        assertEquals( "Valid", valid.get().getFirstName(), "Employee" );
+        assertTrue( errors.isEmpty(), "Valid document" );
+
+        final Future<Employee> invalid =
+            digester.asyncParse( new StringReader( xml.replace( "lastName", "nickName" ) ) );
+        assertNotNull( invalid.get(), "Employee" );
+        assertFalse( errors.isEmpty(), "Document validated by the fork" );
+    }
+
+    @Test
+    void testConcurrentParses()
+        throws Exception
+    {
+        final Digester digester = digesterLoader.newDigester();
+        final List<Future<Employee>> futures = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            futures.add( digester.asyncParse( new StringReader( employee( i ) ) ) );
+        }
+        verifyEmployees( futures );
+        assertNull( digester.getRoot(), "Root of the forked Digester" );
+    }
+
+    @Test
+    void testConcurrentParsesNotForked()
+        throws Exception
+    {
+        final Digester digester = new Digester();
+        digester.setExecutorService( executorService );
+        digester.addObjectCreate( "employee", Employee.class );
+        digester.addSetProperties( "employee" );
+        digester.addObjectCreate( "employee/address", Address.class );
+        digester.addSetProperties( "employee/address" );
+        digester.addSetNext( "employee/address", "addAddress" );
+        assertThrows( IllegalStateException.class, digester::fork, "Fork of the rules not added by a RuleSet" );
+
+        final List<Future<Employee>> futures = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            futures.add( digester.asyncParse( new StringReader( employee( i ) ) ) );
+        }
+        verifyEmployees( futures );
+    }
+
+    @Test
+    void testFork()
+        throws Exception
+    {
+        final Digester digester = digesterLoader.newDigester();
+        final Digester fork = digester.fork();
+        assertNotSame( digester.getRules(), fork.getRules(), "Rules" );
+        assertEquals( digester.getRules().rules().size(), fork.getRules().rules().size(), "Rules" );
+
+        final Employee employee = fork.parse( new StringReader( "<employee firstName='Fork'/>" ) );
+        assertEquals( "Fork", employee.getFirstName(), "Employee" );
+        assertNull( digester.getRoot(), "Root of the forked Digester" );
+
+        digester.addObjectCreate( "employee", Employee.class );
+        assertThrows( IllegalStateException.class, digester::fork, "Fork of the rules not added by a RuleSet" );
+
+        assertThrows( IllegalStateException.class, new Digester( newInstance().newSAXParser() )::fork,
+                      "Fork of a given parser" );
+        final Digester subclass = new Digester()
+        {
+        };
+        assertThrows( IllegalStateException.class, subclass::fork, "Fork of a subclass" );
+    }
+
+    @Test
+    void testForkWithRuleGivenToBinder()
+    {
+        final Rule given = new ObjectCreateRule( Employee.class );
+        final DigesterLoader loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "employee" ).addRule( given );
+            }
+
+        } ).setUseRulesTemplate( true );
+        final Digester digester = loader.newDigester();
+
+        assertThrows( IllegalStateException.class, digester::fork, "Fork of a rule given to the binder" );
+        assertSame( digester, given.getDigester(), "Rule bound to its Digester" );
+    }
+
+    @Test
+    void testForkWithRuleSetNotReplayable()
+    {
+        final Rule shared = new ObjectCreateRule( Employee.class );
+        final Digester digester = new Digester();
+        digester.addRuleSet( new RuleSetBase()
+        {
+
+            @Override
+            public void addRuleInstances( final Digester digester )
+            {
+                digester.addRule( "employee", shared );
+            }
+
+        } );
+
+        assertThrows( IllegalStateException.class, digester::fork, "Fork of a RuleSet not replayable" );
+        assertSame( digester, shared.getDigester(), "Rule bound to its Digester" );
+    }
+
+}
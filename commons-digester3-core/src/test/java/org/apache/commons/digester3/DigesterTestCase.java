@@ -36,8 +36,14 @@ import java.math.BigDecimal;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.EmptyStackException;
+import java.util.List;
 import java.util.Map;
 
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -101,6 +107,46 @@ public class DigesterTestCase
      */
     protected Digester digester;
 
+    /**
+     * Replaces the digester by one recording the begin, body and end events of all the elements.
+     */
+    private List<String> recordEvents( final boolean namespaceAware )
+    {
+        final List<String> events = new ArrayList<>();
+        digester = new Digester();
+        digester.setNamespaceAware( namespaceAware );
+        digester.setRules( new ExtendedBaseRules() );
+        digester.addRule( "*", new Rule()
+        {
+            @Override
+            public void begin( final String namespace, final String name, final Attributes attributes )
+            {
+                final StringBuilder event = new StringBuilder( "begin:" ).append( namespace ).append( ':' )
+                    .append( name ).append( ":{" );
+                for ( int i = 0; i < attributes.getLength(); i++ )
+                {
+                    event.append( attributes.getURI( i ) ).append( '|' ).append( attributes.getLocalName( i ) )
+                        .append( '|' ).append( attributes.getQName( i ) ).append( '=' ).append( attributes.getValue( i ) )
+                        .append( ';' );
+                }
+                events.add( event.append( '}' ).toString() );
+            }
+
+            @Override
+            public void body( final String namespace, final String name, final String text )
+            {
+                events.add( "body:" + name + ":" + text );
+            }
+
+            @Override
+            public void end( final String namespace, final String name )
+            {
+                events.add( "end:" + name );
+            }
+        } );
+        return events;
+    }
+
     /**
      * Sets up instance variables required by this test case.
      */
@@ -309,6 +355,18 @@ public class DigesterTestCase
         assertThrows( IllegalArgumentException.class, () -> digester.parse( ( URL ) null ) );
     }
 
+    @Test
+    void testNullXMLEventReaderParse()
+    {
+        assertThrows( IllegalArgumentException.class, () -> digester.parse( ( XMLEventReader ) null ) );
+    }
+
+    @Test
+    void testNullXMLStreamReaderParse()
+    {
+        assertThrows( IllegalArgumentException.class, () -> digester.parse( ( XMLStreamReader ) null ) );
+    }
+
     @Test
     void testOnceAndOnceOnly()
         throws Exception
@@ -338,6 +396,217 @@ public class DigesterTestCase
         assertEquals( 1, digester.called, "Initialize should be called once and only once" );
     }
 
+    /** Tests that the body text is only passed to the rules that need it */
+    @Test
+    void testBodyRequired()
+        throws Exception
+    {
+        assertFalse( new Rule()
+        {
+        }.isBodyRequired(), "Rule not overriding body()" );
+        assertTrue( new BeanPropertySetterRule().isBodyRequired(), "Rule overriding body()" );
+        assertTrue( new CallMethodRule( "setValue" ).isBodyRequired(), "Call method with the body text" );
+        assertFalse( new CallMethodRule( "setValue", 1 ).isBodyRequired(), "Call method with parameters" );
+        assertTrue( new CallParamRule( 0 ).isBodyRequired(), "Parameter from the body text" );
+        assertFalse( new CallParamRule( 0, "attr" ).isBodyRequired(), "Parameter from an attribute" );
+
+        final ArrayList<String> bodies = new ArrayList<>();
+        digester.addRule( "a", new Rule()
+        {
+            @Override
+            public void body( final String namespace, final String name, final String text )
+            {
+                bodies.add( "a:" + text );
+            }
+
+            @Override
+            public boolean isBodyRequired()
+            {
+                return false;
+            }
+        } );
+        digester.addRule( "a/b", new Rule()
+        {
+            @Override
+            public void body( final String namespace, final String name, final String text )
+            {
+                bodies.add( "b:" + text );
+            }
+        } );
+        digester.parse( new StringReader( "<a>one<b>two</b>three<c>four</c></a>" ) );
+
+        assertEquals( 1, bodies.size(), "Body events" );
+        assertEquals( "b:two", bodies.get( 0 ), "Body text" );
+    }
+
+    /** Tests that the subclasses of the rules skipping the body text can still read it */
+    @Test
+    void testBodyRequiredBySubclass()
+        throws Exception
+    {
+        final ArrayList<String> bodies = new ArrayList<>();
+        digester.addRule( "a", new CallMethodRule( "add", 1, new Class<?>[] { Object.class } )
+        {
+            @Override
+            public void body( final String namespace, final String name, final String text )
+                throws Exception
+            {
+                bodies.add( "a:" + text );
+                super.body( namespace, name, text );
+            }
+        } );
+        digester.addRule( "a/b", new CallParamRule( 0, "attr" )
+        {
+            @Override
+            public void body( final String namespace, final String name, final String text )
+                throws Exception
+            {
+                bodies.add( "b:" + text );
+                super.body( namespace, name, text );
+            }
+        } );
+        final ArrayList<Object> parent = new ArrayList<>();
+        digester.push( parent );
+        digester.parse( new StringReader( "<a>one<b attr='x'>two</b></a>" ) );
+
+        assertEquals( 2, bodies.size(), "Body events" );
+        assertEquals( "b:two", bodies.get( 0 ), "Body text of the parameter" );
+        assertEquals( "a:one", bodies.get( 1 ), "Body text of the method" );
+        assertEquals( 1, parent.size(), "Method called" );
+        assertEquals( "x", parent.get( 0 ), "Parameter from the attribute" );
+    }
+
+    /** Tests that the reused body text buffers do not leak text across elements */
+    @Test
+    void testBodyTextBufferReuse()
+        throws Exception
+    {
+        assertEquals( 8192, digester.getMaxRetainedBodyTextCapacity(), "Default retained capacity" );
+        assertThrows( IllegalArgumentException.class, () -> digester.setMaxRetainedBodyTextCapacity( -1 ) );
+        digester.setMaxRetainedBodyTextCapacity( 64 );
+
+        final ArrayList<String> bodies = new ArrayList<>();
+        digester.addRule( "*/b", new Rule()
+        {
+            @Override
+            public void body( final String namespace, final String name, final String text )
+            {
+                bodies.add( text );
+            }
+        } );
+        final StringBuilder large = new StringBuilder();
+        for ( int i = 0; i < 100; i++ )
+        {
+            large.append( "0123456789" );
+        }
+        digester.parse( new StringReader( "<a><b>one</b><b>" + large + "</b><b>two<b>three</b></b><b/></a>" ) );
+
+        assertEquals( 5, bodies.size(), "Body events" );
+        assertEquals( "one", bodies.get( 0 ), "First body" );
+        assertEquals( large.toString(), bodies.get( 1 ), "Large body" );
+        assertEquals( "three", bodies.get( 2 ), "Nested body" );
+        assertEquals( "two", bodies.get( 3 ), "Surrounding body" );
+        assertEquals( "", bodies.get( 4 ), "Empty body" );
+    }
+
+    /** Tests that the elements that no rule can match are skipped */
+    @Test
+    void testUnreachableElementsSkipped()
+        throws Exception
+    {
+        final ArrayList<String> matched = new ArrayList<>();
+        final Rule rule = new Rule()
+        {
+            @Override
+            public void body( final String namespace, final String name, final String text )
+            {
+                matched.add( getDigester().getMatch() + ":" + text );
+            }
+        };
+        final String xml = "<a><x><b>one</b><y><b>two</b></y></x><b>three</b></a>";
+
+        digester.addRule( "a/b", rule );
+        digester.parse( new StringReader( xml ) );
+        assertEquals( 1, matched.size(), "Exact matches" );
+        assertEquals( "a/b:three", matched.get( 0 ), "Exact match" );
+
+        matched.clear();
+        digester.addRule( "*/y/b", rule );
+        digester.parse( new StringReader( xml ) );
+        assertEquals( 2, matched.size(), "Tail matches" );
+        assertEquals( "a/x/y/b:two", matched.get( 0 ), "Tail match" );
+
+        matched.clear();
+        final WithDefaultsRulesWrapper rules = new WithDefaultsRulesWrapper( new RulesBase() );
+        rules.add( "a/b", rule );
+        rules.addDefault( rule );
+        digester.setRules( rules );
+        digester.parse( new StringReader( xml ) );
+        assertEquals( 6, matched.size(), "Default matches" );
+    }
+
+    /** Tests that the rules matched by the current element are available while parsing */
+    @Test
+    void testPeekMatches()
+        throws Exception
+    {
+        final ArrayList<Object> peeked = new ArrayList<>();
+        final Rule rule = new Rule()
+        {
+            @Override
+            public void begin( final String namespace, final String name, final Attributes attributes )
+            {
+                peeked.add( getDigester().peekMatches() );
+                assertSame( getDigester().peekMatches(), getDigester().getMatches().peek(), "Live matches" );
+            }
+        };
+        digester.addRule( "a/b", rule );
+
+        assertNull( digester.peekMatches(), "No matches outside an element" );
+        digester.parse( new StringReader( "<a><b/></a>" ) );
+
+        assertEquals( 1, peeked.size(), "Rule fired once" );
+        assertEquals( 1, ( ( List<?> ) peeked.get( 0 ) ).size(), "Matches of the current element" );
+        assertSame( rule, ( ( List<?> ) peeked.get( 0 ) ).get( 0 ), "Current element rule" );
+        assertNull( digester.peekMatches(), "No matches after the parse" );
+    }
+
+    /** Tests that the StAX readers deliver the same events to the rules as the SAX parser */
+    @Test
+    void testStaxParse()
+        throws Exception
+    {
+        final String xml = "<?xml version='1.0'?><!-- comment --><p:a xmlns:p='urn:p' xmlns='urn:d' x='1' p:y='2'>"
+            + "one<b z='3'>two &amp; <![CDATA[<three>]]></b><?pi data?><p:c xmlns:q='urn:q' q:w='4'/>five</p:a>";
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        for ( final boolean namespaceAware : new boolean[] { false, true } )
+        {
+            final List<String> saxEvents = recordEvents( namespaceAware );
+            digester.parse( new StringReader( xml ) );
+
+            final List<String> streamEvents = recordEvents( namespaceAware );
+            final XMLStreamReader streamReader = factory.createXMLStreamReader( new StringReader( xml ) );
+            digester.parse( streamReader );
+            assertEquals( saxEvents, streamEvents, "Stream reader events, namespace aware " + namespaceAware );
+            assertEquals( XMLStreamConstants.END_DOCUMENT, streamReader.getEventType(), "Stream reader consumed" );
+
+            final List<String> eventReaderEvents = recordEvents( namespaceAware );
+            digester.parse( factory.createXMLEventReader( new StringReader( xml ) ) );
+            assertEquals( saxEvents, eventReaderEvents, "Event reader events, namespace aware " + namespaceAware );
+        }
+
+        // a fragment, from the element the reader is positioned on to its end
+        final List<String> events = recordEvents( true );
+        final XMLStreamReader streamReader =
+            factory.createXMLStreamReader( new StringReader( "<list><a>1</a><a>2</a></list>" ) );
+        streamReader.nextTag();
+        streamReader.nextTag();
+        digester.parse( streamReader );
+        assertEquals( "[begin::a:{}, body:a:1, end:a]", events.toString(), "Fragment events" );
+        assertEquals( XMLStreamConstants.END_ELEMENT, streamReader.getEventType(), "Reader left on the fragment end" );
+        assertEquals( "a", streamReader.getLocalName(), "Reader left on the fragment end" );
+    }
+
     /** Tests popping named stack not yet pushed */
     @Test
     void testPopNamedStackNotPushed()
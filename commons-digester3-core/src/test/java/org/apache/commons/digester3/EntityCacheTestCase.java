@@ -0,0 +1,160 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+
+/**
+ * <p>
+ * Tests the in-memory cache of the registered entities.
+ * </p>
+ */
+public class EntityCacheTestCase
+{
+
+    private static final String PUBLIC_ID = "-//Apache Commons//DTD Entity Cache Test//EN";
+
+    private static final String DOCUMENT =
+        "<?xml version='1.0'?>\n<!DOCTYPE root PUBLIC '" + PUBLIC_ID + "' 'unknown.dtd'>\n<root>&greeting;</root>";
+
+    private File dtd;
+
+    private final List<String> texts = new ArrayList<>();
+
+    private Digester newDigester( final EntityCache cache )
+        throws Exception
+    {
+        final Digester digester = new Digester();
+        digester.register( PUBLIC_ID, dtd.toURI().toURL() );
+        digester.setEntityCache( cache );
+        digester.addRule( "root", new Rule()
+        {
+
+            @Override
+            public void body( final String namespace, final String name, final String text )
+            {
+                texts.add( text );
+            }
+
+        } );
+        return digester;
+    }
+
+    private void parse( final Digester digester )
+        throws Exception
+    {
+        digester.parse( new InputSource( new StringReader( DOCUMENT ) ) );
+    }
+
+    @BeforeEach
+    public void setUp()
+        throws IOException
+    {
+        dtd = File.createTempFile( "entity-cache", ".dtd" );
+        writeGreeting( "hello" );
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        dtd.delete();
+    }
+
+    @Test
+    void testCachedEntity()
+        throws Exception
+    {
+        final EntityCache cache = new EntityCache( 1024, false );
+        final long size = dtd.length();
+        final Digester digester = newDigester( cache );
+        parse( digester );
+        parse( newDigester( cache ) );
+
+        // the cached content is served even though the file changed
+        writeGreeting( "goodbye" );
+        parse( digester );
+
+        assertEquals( "[hello, hello, hello]", texts.toString(), "Wrong parsed texts" );
+        assertEquals( 1, cache.getLoadCount(), "Wrong load count" );
+        assertEquals( 2, cache.getHitCount(), "Wrong hit count" );
+        assertEquals( size, cache.getSize(), "Wrong size" );
+
+        cache.clear();
+        parse( digester );
+        assertEquals( "goodbye", texts.get( 3 ), "Cleared entity not read again" );
+        assertEquals( 2, cache.getLoadCount(), "Wrong load count after clear" );
+    }
+
+    @Test
+    void testMaxSize()
+        throws Exception
+    {
+        final EntityCache cache = new EntityCache( 0, false );
+        final Digester digester = newDigester( cache );
+        parse( digester );
+        writeGreeting( "goodbye" );
+        parse( digester );
+
+        assertEquals( "[hello, goodbye]", texts.toString(), "Entity larger than the cache was cached" );
+        assertEquals( 0, cache.getLoadCount(), "Wrong load count" );
+        assertEquals( 0, cache.getSize(), "Wrong size" );
+    }
+
+    @Test
+    void testReloadModified()
+        throws Exception
+    {
+        final EntityCache cache = new EntityCache( 1024, true );
+        final Digester digester = newDigester( cache );
+        parse( digester );
+        parse( digester );
+
+        writeGreeting( "goodbye" );
+        dtd.setLastModified( dtd.lastModified() + 10000 );
+        parse( digester );
+        parse( digester );
+
+        assertEquals( "[hello, hello, goodbye, goodbye]", texts.toString(), "Modified entity not reloaded" );
+        assertEquals( 2, cache.getLoadCount(), "Wrong load count" );
+        assertEquals( 2, cache.getHitCount(), "Wrong hit count" );
+        assertEquals( dtd.length(), cache.getSize(), "Wrong size" );
+    }
+
+    private void writeGreeting( final String greeting )
+        throws IOException
+    {
+        final String content = "<!ELEMENT root (#PCDATA)>\n<!ENTITY greeting '" + greeting + "'>\n";
+        Files.write( dtd.toPath(), content.getBytes( StandardCharsets.US_ASCII ) );
+    }
+
+}
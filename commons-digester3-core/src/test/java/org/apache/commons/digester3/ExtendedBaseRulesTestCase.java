@@ -19,7 +19,10 @@
 package org.apache.commons.digester3;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -33,6 +36,25 @@ public class ExtendedBaseRulesTestCase
     extends RulesBaseTestCase
 {
 
+    /**
+     * Registers each tail match pattern under an alias as well, writing to the fields directly.
+     */
+    private static final class AliasRules
+        extends ExtendedBaseRules
+    {
+
+        @Override
+        protected void registerRule( final String pattern, final Rule rule )
+        {
+            super.registerRule( pattern, rule );
+            if ( pattern.startsWith( "*/" ) )
+            {
+                cache.computeIfAbsent( pattern + "-alias", key -> new ArrayList<>() ).add( rule );
+            }
+        }
+
+    }
+
     /**
      * <p>
      * This should be overridden by subclasses.
@@ -282,6 +304,88 @@ public class ExtendedBaseRulesTestCase
         assertEquals( 0, list.size(), "Long match (4)" );
     }
 
+    /**
+     * Tests that rules matched through different kinds of patterns are returned in entry order, and that ties between
+     * patterns of the same length are resolved in favor of the first registered one.
+     */
+    @Test
+    void testMixedPatternsOrder()
+    {
+        digester.getRules().clear();
+
+        digester.addRule( "!a/*", new TestRule( "universal_ancestor" ) );
+        digester.addRule( "*/ab", new TestRule( "tail" ) );
+        digester.addRule( "*/b/?", new TestRule( "tail_parent" ) );
+        digester.addRule( "!*/b/ab", new TestRule( "universal_tail" ) );
+        digester.addRule( "a/b/*/ab", new TestRule( "middle_wildcard" ) );
+        digester.addRule( "!*", new TestRule( "universal_wildcard" ) );
+
+        final List<Rule> list = digester.getRules().match( null, "a/b/c/b/ab", null, null );
+        assertEquals( 5, list.size(), "Mixed patterns match" );
+
+        final Iterator<Rule> it = list.iterator();
+        assertEquals( "universal_ancestor", ( ( TestRule ) it.next() ).getIdentifier(), "Mixed patterns order (A)" );
+        assertEquals( "tail", ( ( TestRule ) it.next() ).getIdentifier(), "Mixed patterns order (B)" );
+        assertEquals( "universal_tail", ( ( TestRule ) it.next() ).getIdentifier(), "Mixed patterns order (C)" );
+        assertEquals( "middle_wildcard", ( ( TestRule ) it.next() ).getIdentifier(), "Mixed patterns order (D)" );
+        assertEquals( "universal_wildcard", ( ( TestRule ) it.next() ).getIdentifier(), "Mixed patterns order (E)" );
+
+        digester.getRules().clear();
+
+        assertEquals( 0, digester.getRules().match( null, "a/b/c/b/ab", null, null ).size(), "No match after clear" );
+    }
+
+    /**
+     * Tests the detection of the elements whose nested elements cannot be matched by the extended patterns.
+     */
+    @Test
+    void testMayMatchExtendedDescendants()
+    {
+        // clear any existing rules
+        digester.getRules().clear();
+
+        digester.addRule( "a/b/?", new TestRule( "a/b/?" ) );
+        digester.addRule( "!c/d/*", new TestRule( "!c/d/*" ) );
+        digester.addRule( "e/f/*/g", new TestRule( "e/f/*/g" ) );
+
+        assertTrue( digester.getRules().mayMatchDescendants( path( "a/b" ) ), "Parent match" );
+        assertFalse( digester.getRules().mayMatchDescendants( path( "a/b/x" ) ), "Below parent match" );
+        assertTrue( digester.getRules().mayMatchDescendants( path( "c" ) ), "Above ancestor match" );
+        assertTrue( digester.getRules().mayMatchDescendants( path( "c/d/x/y" ) ), "Ancestor match" );
+        assertTrue( digester.getRules().mayMatchDescendants( path( "e/f/x" ) ), "Middle wildcard match" );
+        assertFalse( digester.getRules().mayMatchDescendants( path( "x" ) ), "Unrelated element" );
+
+        digester.addRule( "!*/?", new TestRule( "!*/?" ) );
+        assertTrue( digester.getRules().mayMatchDescendants( path( "x" ) ), "Wildcard parent match" );
+
+        // clean up
+        digester.getRules().clear();
+    }
+
+    @Test
+    void testMatchResultCopied()
+    {
+        digester.getRules().clear();
+        digester.addRule( "a/b", new TestRule( "a-b" ) );
+
+        digester.getRules().match( null, "a/b", null, null ).clear();
+        assertEquals( 1, digester.getRules().match( null, "a/b", null, null ).size(), "Registered rules altered" );
+    }
+
+    @Test
+    void testFieldsFilledBySubclass()
+    {
+        final Rules rules = new AliasRules();
+        rules.add( "!*", new TestRule( "universal" ) );
+        rules.add( "*/b/c", new TestRule( "b-c" ) );
+
+        final List<Rule> list = rules.match( null, "a/b/c-alias", null, null );
+        assertEquals( 2, list.size(), "Tail match of an alias" );
+        assertEquals( "universal", ( (TestRule) list.get( 0 ) ).getIdentifier(), "Universal match" );
+        assertEquals( "b-c", ( (TestRule) list.get( 1 ) ).getIdentifier(), "Tail match" );
+        assertTrue( rules.mayMatchDescendants( new ElementPath() ), "Descendants of a subclass" );
+    }
+
     @Test
     void testMiddleInstructors()
     {
@@ -0,0 +1,128 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+
+import javax.xml.validation.Schema;
+
+import org.apache.commons.digester3.XMLSchemaTestCase.TestErrorHandler;
+import org.apache.commons.digester3.binder.AbstractRulesModule;
+import org.apache.commons.digester3.binder.DigesterLoader;
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>
+ * Tests the cache of the grammars validating the parsed documents.
+ * </p>
+ */
+public class GrammarCacheTestCase
+{
+
+    private static final String TEST_DIRECTORY = "src/test/resources/org/apache/commons/digester3/";
+
+    private static DigesterLoader newEmployeeLoader()
+    {
+        return newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "employee" ).createObject().ofType( Employee.class );
+                forPattern( "employee/address" ).createObject().ofType( Address.class )
+                    .then().setNext( "addAddress" );
+                forPattern( "employee/address/type" ).setBeanProperty();
+                forPattern( "employee/address/city" ).setBeanProperty();
+            }
+
+        } ).setNamespaceAware( true );
+    }
+
+    @Test
+    void testDTDValidation()
+        throws Exception
+    {
+        final GrammarCache cache = new GrammarCache();
+        final DigesterLoader loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                // do nothing
+            }
+
+        } ).setValidating( true ).setGrammarCache( cache );
+
+        for ( int i = 0; i < 2; i++ )
+        {
+            final Digester digester = loader.newDigester();
+            assertSame( cache, digester.getGrammarCache(), "Grammar cache not set on the Digester" );
+
+            final TestErrorHandler valid = new TestErrorHandler();
+            digester.setErrorHandler( valid );
+            digester.parse( new File( TEST_DIRECTORY + "document-with-relative-dtd.xml" ) );
+            assertTrue( valid.clean, "Valid document rejected, parse " + i );
+
+            final TestErrorHandler invalid = new TestErrorHandler();
+            digester.setErrorHandler( invalid );
+            digester.parse( new File( TEST_DIRECTORY + "document-with-relative-dtd-error.xml" ) );
+            assertFalse( invalid.clean, "Invalid document accepted, parse " + i );
+        }
+    }
+
+    @Test
+    void testSchema()
+        throws Exception
+    {
+        final GrammarCache cache = new GrammarCache();
+        final URL url = getClass().getResource( "Test13.xsd" );
+        final DigesterLoader loader = newEmployeeLoader().setGrammarCache( cache ).setSchema( url );
+        final Schema schema = cache.getSchema( url );
+        assertSame( schema, cache.getSchema( url ), "Schema compiled again" );
+
+        final Digester digester = loader.newDigester();
+        final TestErrorHandler valid = new TestErrorHandler();
+        digester.setErrorHandler( valid );
+        final Employee employee = digester.parse( new File( TEST_DIRECTORY + "Test13-01.xml" ) );
+        assertTrue( valid.clean, "Valid document rejected" );
+        assertNotNull( employee, "Employee not parsed" );
+        assertEquals( "Home City", employee.getAddress( "home" ).getCity(), "Wrong city" );
+
+        final TestErrorHandler invalid = new TestErrorHandler();
+        digester.setErrorHandler( invalid );
+        digester.parse( new File( TEST_DIRECTORY + "Test13-02.xml" ) );
+        assertFalse( invalid.clean, "Invalid document accepted" );
+
+        cache.clear();
+        assertNotSame( schema, cache.getSchema( url ), "Schema kept after clear" );
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>
+ * Tests the parse of the documents held in memory, by byte arrays, byte buffers and character sequences.
+ * </p>
+ */
+public class InMemoryParseTestCase
+{
+
+    private static final String DOCUMENT = "<?xml version='1.0' encoding='UTF-8'?><root alpha='caf\u00e9' beta='b'/>";
+
+    private Digester digester;
+
+    private void assertParsed( final SimpleTestBean bean, final String message )
+    {
+        assertEquals( "caf\u00e9", bean.getAlpha(), message );
+        assertEquals( "b", bean.getBeta(), message );
+    }
+
+    @BeforeEach
+    public void setUp()
+    {
+        digester = new Digester();
+        digester.addObjectCreate( "root", SimpleTestBean.class );
+        digester.addSetProperties( "root" );
+    }
+
+    @Test
+    void testByteArray()
+        throws Exception
+    {
+        final byte[] document = DOCUMENT.getBytes( StandardCharsets.UTF_8 );
+        final byte[] message = new byte[document.length + 7];
+        System.arraycopy( document, 0, message, 3, document.length );
+        assertParsed( digester.parse( message, 3, document.length ), "Wrong parse of the array range" );
+
+        final byte[] latin = DOCUMENT.replace( "UTF-8", "ISO-8859-1" ).getBytes( StandardCharsets.ISO_8859_1 );
+        assertParsed( digester.parse( latin, 0, latin.length ), "Declared encoding not used" );
+
+        assertThrows( IllegalArgumentException.class, () -> digester.parse( (byte[]) null, 0, 0 ) );
+        assertThrows( IllegalArgumentException.class, () -> digester.parse( message, 8, message.length - 7 ) );
+        assertThrows( IllegalArgumentException.class, () -> digester.parse( message, -1, 2 ) );
+    }
+
+    @Test
+    void testByteBuffer()
+        throws Exception
+    {
+        final byte[] document = DOCUMENT.getBytes( StandardCharsets.UTF_8 );
+        final ByteBuffer heap = ByteBuffer.allocate( document.length + 10 );
+        heap.position( 4 );
+        final ByteBuffer slice = heap.slice();
+        slice.put( document ).flip();
+        slice.position( 0 );
+        assertParsed( digester.parse( slice ), "Wrong parse of the heap buffer" );
+        assertEquals( 0, slice.position(), "Position of the heap buffer changed" );
+        assertParsed( digester.parse( slice.asReadOnlyBuffer() ), "Wrong parse of the read only buffer" );
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect( document.length + 2 );
+        direct.put( (byte) ' ' ).put( document ).flip();
+        direct.position( 1 );
+        assertParsed( digester.parse( direct ), "Wrong parse of the direct buffer" );
+        assertEquals( 1, direct.position(), "Position of the direct buffer changed" );
+
+        assertThrows( IllegalArgumentException.class, () -> digester.parse( (ByteBuffer) null ) );
+    }
+
+    @Test
+    void testCharSequence()
+        throws Exception
+    {
+        assertParsed( digester.parseContent( DOCUMENT ), "Wrong parse of the string" );
+        assertParsed( digester.parseContent( new StringBuilder( DOCUMENT ) ), "Wrong parse of the string builder" );
+
+        final CharBuffer buffer = CharBuffer.wrap( "--" + DOCUMENT );
+        buffer.position( 2 );
+        assertParsed( digester.parseContent( buffer ), "Wrong parse of the char buffer" );
+        assertEquals( 2, buffer.position(), "Position of the char buffer changed" );
+
+        final CharSequence sequence = new CharSequence()
+        {
+
+            @Override
+            public char charAt( final int index )
+            {
+                return DOCUMENT.charAt( index );
+            }
+
+            @Override
+            public int length()
+            {
+                return DOCUMENT.length();
+            }
+
+            @Override
+            public CharSequence subSequence( final int start, final int end )
+            {
+                return DOCUMENT.subSequence( start, end );
+            }
+
+        };
+        assertParsed( digester.parseContent( sequence ), "Wrong parse of the char sequence" );
+
+        assertThrows( IllegalArgumentException.class, () -> digester.parseContent( null ) );
+    }
+
+}
@@ -0,0 +1,214 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Tests the publication of the objects completed at a pattern.
+ */
+public class ObjectPublisherTestCase
+{
+
+    private static final class RecordingSubscriber
+        implements ObjectPublisher.Subscriber<SimpleTestBean>
+    {
+
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        final CountDownLatch terminated = new CountDownLatch( 1 );
+
+        volatile ObjectPublisher.Subscription subscription;
+
+        volatile Throwable error;
+
+        @Override
+        public void onComplete()
+        {
+            events.add( "complete" );
+            terminated.countDown();
+        }
+
+        @Override
+        public void onError( final Throwable throwable )
+        {
+            error = throwable;
+            events.add( "error" );
+            terminated.countDown();
+        }
+
+        @Override
+        public void onNext( final SimpleTestBean item )
+        {
+            events.add( item.getAlpha() );
+        }
+
+        @Override
+        public void onSubscribe( final ObjectPublisher.Subscription subscription )
+        {
+            this.subscription = subscription;
+        }
+
+    }
+
+    private static final String FEED =
+        "<feed><entry alpha='a1'/><entry alpha='a2'/><entry alpha='a3'/><entry alpha='a4'/></feed>";
+
+    private final AtomicInteger begun = new AtomicInteger();
+
+    private ExecutorService executor;
+
+    private Digester digester;
+
+    @BeforeEach
+    public void setUp()
+    {
+        executor = newSingleThreadExecutor();
+        digester = new Digester();
+        digester.setExecutorService( executor );
+        digester.addObjectCreate( "feed/entry", SimpleTestBean.class );
+        digester.addSetProperties( "feed/entry" );
+        digester.addRule( "feed/entry", new Rule()
+        {
+            @Override
+            public void begin( final String namespace, final String name, final Attributes attributes )
+            {
+                begun.incrementAndGet();
+            }
+        } );
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    /** Runs the tasks submitted so far to the executor. */
+    private void awaitExecutor()
+        throws Exception
+    {
+        executor.submit( () -> null ).get( 10, TimeUnit.SECONDS );
+    }
+
+    private ObjectPublisher<SimpleTestBean> publish( final String xml )
+    {
+        return digester.publish( new InputSource( new StringReader( xml ) ), "feed/entry", SimpleTestBean.class );
+    }
+
+    @Test
+    void testBackpressure()
+        throws Exception
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publish( FEED ).subscribe( subscriber );
+        awaitExecutor();
+        assertEquals( 0, begun.get(), "Nothing parsed without demand" );
+
+        subscriber.subscription.request( 1 );
+        awaitExecutor();
+        assertEquals( "[a1]", subscriber.events.toString(), "First requested object" );
+        assertEquals( 1, begun.get(), "Parse paused without demand" );
+
+        subscriber.subscription.request( 2 );
+        awaitExecutor();
+        assertEquals( "[a1, a2, a3]", subscriber.events.toString(), "Next requested objects" );
+        assertEquals( 3, begun.get(), "Parse paused without demand" );
+
+        subscriber.subscription.request( Long.MAX_VALUE );
+        assertTrue( subscriber.terminated.await( 10, TimeUnit.SECONDS ), "Completion" );
+        assertEquals( "[a1, a2, a3, a4, complete]", subscriber.events.toString(), "All the objects" );
+    }
+
+    @Test
+    void testCancel()
+        throws Exception
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publish( FEED ).subscribe( subscriber );
+        subscriber.subscription.request( 1 );
+        subscriber.subscription.cancel();
+        subscriber.subscription.request( 1 );
+        awaitExecutor();
+        assertTrue( subscriber.events.size() <= 1, "No object after the cancellation" );
+        assertEquals( 0, digester.getCount(), "Parse stopped" );
+    }
+
+    @Test
+    void testInvalidRequest()
+        throws Exception
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publish( FEED ).subscribe( subscriber );
+        subscriber.subscription.request( 0 );
+        assertTrue( subscriber.terminated.await( 10, TimeUnit.SECONDS ), "Termination" );
+        assertInstanceOf( IllegalArgumentException.class, subscriber.error, "Non-positive request" );
+    }
+
+    @Test
+    void testParseError()
+        throws Exception
+    {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publish( "<feed><entry alpha='a1'/><entry></feed>" ).subscribe( subscriber );
+        subscriber.subscription.request( Long.MAX_VALUE );
+        assertTrue( subscriber.terminated.await( 10, TimeUnit.SECONDS ), "Termination" );
+        assertEquals( "[a1, error]", subscriber.events.toString(), "Objects before the error" );
+        assertInstanceOf( SAXParseException.class, subscriber.error, "Parse error" );
+    }
+
+    @Test
+    void testSingleSubscriber()
+        throws Exception
+    {
+        final ObjectPublisher<SimpleTestBean> publisher = publish( FEED );
+        publisher.subscribe( new RecordingSubscriber() );
+        final RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe( second );
+        assertInstanceOf( IllegalStateException.class, second.error, "Second subscriber" );
+    }
+
+    @Test
+    void testNoExecutorService()
+    {
+        digester.setExecutorService( null );
+        assertThrows( IllegalStateException.class, () -> publish( FEED ) );
+    }
+
+}
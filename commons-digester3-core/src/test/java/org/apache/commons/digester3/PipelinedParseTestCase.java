@@ -0,0 +1,266 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Tests that a pipelined parse gives the results and the exceptions of the parse that is not pipelined.
+ */
+public class PipelinedParseTestCase
+{
+
+    private static String document( final int entries )
+    {
+        final StringBuilder xml = new StringBuilder( "<?xml version='1.0'?>\n<feed xmlns:p='urn:p'>\n" );
+        for ( int i = 0; i < entries; i++ )
+        {
+            xml.append( "  <p:entry alpha='a" ).append( i ).append( "'><gamma>g" ).append( i )
+                .append( " &amp; <![CDATA[<cdata>]]></gamma><?pi " ).append( i ).append( "?></p:entry>\n" );
+        }
+        return xml.append( "</feed>" ).toString();
+    }
+
+    private static Digester newDigester( final int pipelineCapacity )
+    {
+        final Digester digester = new Digester();
+        digester.setNamespaceAware( true );
+        digester.setPipelineCapacity( pipelineCapacity );
+        digester.addObjectCreate( "feed", ArrayList.class );
+        digester.addObjectCreate( "feed/entry", SimpleTestBean.class );
+        digester.addSetProperties( "feed/entry" );
+        digester.addBeanPropertySetter( "feed/entry/gamma" );
+        digester.addSetNext( "feed/entry", "add" );
+        return digester;
+    }
+
+    private static String parseError( final Digester digester, final String xml )
+    {
+        final SAXException e = assertThrows( SAXException.class, () -> digester.parse( new StringReader( xml ) ) );
+        final StringBuilder error = new StringBuilder( e.getClass().getName() ).append( ": " ).append( e.getMessage() );
+        if ( e instanceof SAXParseException )
+        {
+            error.append( " at " ).append( ( (SAXParseException) e ).getLineNumber() ).append( ':' )
+                .append( ( (SAXParseException) e ).getColumnNumber() );
+        }
+        return error.toString();
+    }
+
+    @Test
+    void testAbortWithStalledInput()
+    {
+        final Digester digester = newDigester( 4 );
+        digester.addRule( "feed/entry", new Rule()
+        {
+            @Override
+            public void begin( final String namespace, final String name, final Attributes attributes )
+            {
+                throw new IllegalStateException( "failing rule" );
+            }
+        } );
+        final byte[] head = "<feed><entry alpha='a1'/><entry alpha='a2'/>".getBytes( StandardCharsets.US_ASCII );
+        final StalledInputStream input = new StalledInputStream( head );
+
+        final long start = System.nanoTime();
+        assertThrows( SAXException.class, () -> digester.parse( input ) );
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+        assertTrue( input.isClosed(), "Stalled input not closed" );
+        assertTrue( elapsed < BackgroundTask.STOP_MILLIS, "Parse aborted without waiting for the tokenizer" );
+    }
+
+    @Test
+    void testExecutorService()
+        throws Exception
+    {
+        final String xml = document( 100 );
+        final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool( 1 );
+        try
+        {
+            final Digester digester = newDigester( 4 );
+            digester.setExecutorService( executor );
+            assertEquals( 100, digester.<List<?>>parse( new StringReader( xml ) ).size(), "Parse on the executor" );
+
+            // the single thread of the executor is busy, the tokenizer is run on a thread of its own
+            final CountDownLatch busy = new CountDownLatch( 1 );
+            executor.execute( () -> {
+                try
+                {
+                    busy.await();
+                }
+                catch ( final InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                }
+            } );
+            assertEquals( 100, digester.<List<?>>parse( new StringReader( xml ) ).size(),
+                          "Parse with a busy executor" );
+            busy.countDown();
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+        assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS ), "Executor terminated" );
+        assertEquals( 3, executor.getCompletedTaskCount(), "Tokenizer tasks submitted to the executor" );
+    }
+
+    @Test
+    void testErrorHandlerThread()
+        throws Exception
+    {
+        final List<Thread> threads = new ArrayList<>();
+        final Digester digester = newDigester( 4 );
+        digester.setValidating( true );
+        digester.setErrorHandler( new ErrorHandler()
+        {
+            @Override
+            public void error( final SAXParseException exception )
+            {
+                threads.add( Thread.currentThread() );
+            }
+
+            @Override
+            public void fatalError( final SAXParseException exception )
+                throws SAXException
+            {
+                throw exception;
+            }
+
+            @Override
+            public void warning( final SAXParseException exception )
+            {
+                threads.add( Thread.currentThread() );
+            }
+        } );
+        final List<SimpleTestBean> beans = digester.parse( new StringReader( document( 3 ) ) );
+
+        assertEquals( 3, beans.size(), "Parse going on after the validation errors" );
+        assertFalse( threads.isEmpty(), "Validation errors reported" );
+        for ( final Thread thread : threads )
+        {
+            assertSame( Thread.currentThread(), thread, "Error handler invoked by the parsing thread" );
+        }
+    }
+
+    @Test
+    void testEntityResolverThread()
+        throws Exception
+    {
+        final String publicId = "-//Apache Commons//DTD Digester Stream Test//EN";
+        final String xml = "<!DOCTYPE feed PUBLIC '" + publicId + "' 'http://commons.invalid/stream-entities.dtd'>"
+            + "<feed><entry alpha='a1'><gamma>&gamma;</gamma></entry></feed>";
+
+        final List<String> publicIds = new ArrayList<>();
+        final Digester digester = newDigester( 4 );
+        digester.register( publicId, getClass().getResource( "stream-entities.dtd" ) );
+        digester.addRule( "feed", new Rule()
+        {
+            @Override
+            public void begin( final String namespace, final String name, final Attributes attributes )
+            {
+                publicIds.add( getDigester().getPublicId() );
+            }
+        } );
+        final List<SimpleTestBean> beans = digester.parse( new StringReader( xml ) );
+        assertEquals( "g1", beans.get( 0 ).getGamma(), "Entity of the registered DTD" );
+        assertEquals( publicId, publicIds.get( 0 ), "Public identifier of the resolved DTD seen by the rules" );
+
+        final List<Thread> threads = new ArrayList<>();
+        final Digester resolving = newDigester( 4 );
+        resolving.setEntityResolver( ( entityPublicId, systemId ) ->
+        {
+            threads.add( Thread.currentThread() );
+            return new InputSource(
+                new ByteArrayInputStream( "<!ENTITY gamma 'g2'>".getBytes( StandardCharsets.US_ASCII ) ) );
+        } );
+        final List<SimpleTestBean> resolved = resolving.parse( new StringReader( xml ) );
+        assertEquals( "g2", resolved.get( 0 ).getGamma(), "Entity of the resolved DTD" );
+        assertEquals( 1, threads.size(), "DTD resolved" );
+        assertSame( Thread.currentThread(), threads.get( 0 ), "Entity resolver invoked by the parsing thread" );
+    }
+
+    @Test
+    void testParseErrors()
+    {
+        final String malformed = document( 50 ).replace( "<gamma>g42", "<gamma>g42<unclosed>" );
+        assertEquals( parseError( newDigester( 0 ), malformed ), parseError( newDigester( 4 ), malformed ),
+                      "Parser error" );
+
+        final Rule failing = new Rule()
+        {
+            @Override
+            public void begin( final String namespace, final String name, final Attributes attributes )
+                throws Exception
+            {
+                if ( "a42".equals( attributes.getValue( "alpha" ) ) )
+                {
+                    throw new IllegalStateException( "failing rule" );
+                }
+            }
+        };
+        final Digester digester = newDigester( 0 );
+        digester.addRule( "feed/entry", failing );
+        final Digester pipelined = newDigester( 4 );
+        pipelined.addRule( "feed/entry", failing );
+        assertEquals( parseError( digester, document( 100 ) ), parseError( pipelined, document( 100 ) ),
+                      "Rule error" );
+    }
+
+    @Test
+    void testPipelinedParse()
+        throws Exception
+    {
+        for ( final int capacity : new int[] { 1, 4, 1024 } )
+        {
+            final String xml = document( 500 );
+            final List<SimpleTestBean> expected = newDigester( 0 ).parse( new StringReader( xml ) );
+            final List<SimpleTestBean> actual = newDigester( capacity ).parse( new StringReader( xml ) );
+
+            assertEquals( expected.size(), actual.size(), "Parsed objects" );
+            for ( int i = 0; i < expected.size(); i++ )
+            {
+                assertEquals( expected.get( i ).toString(), actual.get( i ).toString(), "Parsed object " + i );
+            }
+        }
+        assertThrows( IllegalArgumentException.class, () -> new Digester().setPipelineCapacity( -1 ) );
+    }
+
+}
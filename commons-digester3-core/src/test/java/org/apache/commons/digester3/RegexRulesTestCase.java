@@ -20,9 +20,11 @@ package org.apache.commons.digester3;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.List;
+import java.util.function.Predicate;
 
 import org.junit.jupiter.api.Test;
 
@@ -104,6 +106,55 @@ public class RegexRulesTestCase
         assertEquals( "gamma", ( ( TestRule ) matches.get( 2 ) ).getIdentifier(), "Rule Out Of Order (6)" );
     }
 
+    /** Test that matching rules are memoized per path, and that each distinct pattern is tested once per path */
+    @Test
+    void testMatchCache()
+    {
+        final int[] tests = new int[1];
+        final RegexRules rules = new RegexRules( new RegexMatcher()
+        {
+            @Override
+            public boolean match( final String pathPattern, final String rulePattern )
+            {
+                tests[0]++;
+                return pathPattern.endsWith( rulePattern );
+            }
+        } );
+        rules.setMatchCacheSize( 2 );
+        assertEquals( 2, rules.getMatchCacheSize() );
+
+        rules.add( "b", new TestRule( "alpha" ) );
+        rules.add( "c", new TestRule( "beta" ) );
+        rules.add( "b", new TestRule( "gamma" ) );
+
+        List<Rule> matches = rules.match( "", "a/b", null, null );
+        assertEquals( 2, matches.size(), "Wrong number of rules returned (1)" );
+        assertEquals( "alpha", ( ( TestRule ) matches.get( 0 ) ).getIdentifier(), "Rule Out Of Order (1)" );
+        assertEquals( "gamma", ( ( TestRule ) matches.get( 1 ) ).getIdentifier(), "Rule Out Of Order (2)" );
+        assertEquals( 2, tests[0], "Each distinct pattern is tested once" );
+
+        // memoized
+        assertSame( matches, rules.match( "", "a/b", null, null ) );
+        assertEquals( 2, tests[0], "Memoized path is not tested again" );
+
+        // the least recently matched path is discarded
+        rules.match( "", "a/c", null, null );
+        rules.match( "", "a/d", null, null );
+        assertEquals( 6, tests[0] );
+        rules.match( "", "a/b", null, null );
+        assertEquals( 8, tests[0], "Discarded path is tested again" );
+
+        // adding a rule discards the memoized paths
+        rules.add( "a/c", new TestRule( "delta" ) );
+        matches = rules.match( "", "a/c", null, null );
+        assertEquals( 2, matches.size(), "Wrong number of rules returned (2)" );
+        assertEquals( "beta", ( ( TestRule ) matches.get( 0 ) ).getIdentifier(), "Rule Out Of Order (3)" );
+        assertEquals( "delta", ( ( TestRule ) matches.get( 1 ) ).getIdentifier(), "Rule Out Of Order (4)" );
+
+        rules.clear();
+        assertEquals( 0, rules.match( "", "a/c", null, null ).size(), "Wrong number of rules returned (3)" );
+    }
+
     /** Test a mixed regex - in other words, one that sometimes returns true and sometimes false */
     @Test
     void testMatchMixed()
@@ -187,4 +238,27 @@ public class RegexRulesTestCase
         assertFalse( matcher.match( "/alpha/beta/gamma", "*/beta/gamma/?p*no" ), "Simple Regex Match '/alpha/beta/gamma/beta/epsilon/beta/gamma/epsilon' to "
                 + " '*/beta/gamma/?p*no' " );
     }
+
+    /** Test that compiled simple regex patterns match exactly as the recursive algorithm does */
+    @Test
+    void testCompiledSimpleRegexMatch()
+    {
+        final SimpleRegexMatcher matcher = new SimpleRegexMatcher();
+
+        final String[] paths = { "", "a", "/alpha/beta/gamma", "/alpha/beta/gamma/beta/epsilon/beta/gamma/epsilon",
+            "alpha/*/beta", "alpha/?", "*", "**" };
+        final String[] patterns = { "", "*", "?", "**", "*?", "a*", "/alpha/beta/gamma", "/alpha/*", "/alpha/*/gamma",
+            "/alpha/*me", "*/beta/gamma", "*/bet/gamma", "/?lpha/beta/gamma", "/alpha/?eta/*e", "*/?et?/?amma",
+            "*/beta/gamma/?p*n", "*/beta/gamma/?p*no", "alpha/**", "alpha/*?", "alpha/**/beta" };
+        for ( final String pattern : patterns )
+        {
+            final Predicate<String> compiled = matcher.compile( pattern );
+            for ( final String path : paths )
+            {
+                assertEquals( matcher.match( path, pattern ), compiled.test( path ), "Compiled Simple Regex Match '" + path + "' to '" + pattern + "' " );
+            }
+        }
+        assertTrue( matcher.compile( "*/beta/gamma/?p*n" ).test( "/alpha/beta/gamma/beta/epsilon/beta/gamma/epsilon" ) );
+        assertFalse( matcher.compile( "/alpha/*me" ).test( "/alpha/beta/gamma" ) );
+    }
 }
@@ -0,0 +1,219 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+
+/**
+ * <p>
+ * Tests the matching of the {@link RulesBase} subclasses which fill the registration fields themselves.
+ * </p>
+ */
+public class RulesBaseSubclassTestCase
+{
+
+    /**
+     * Registers its rules as the {@code RulesBase} of the previous releases did, without calling the overridden
+     * method.
+     */
+    private static final class FieldRules
+        extends RulesBase
+    {
+
+        @Override
+        protected void registerRule( final String pattern, final Rule rule )
+        {
+            List<Rule> list = cache.get( pattern );
+            if ( list == null )
+            {
+                list = new ArrayList<>();
+                if ( pattern.startsWith( "*/" ) )
+                {
+                    wildcardCache.add( pattern.substring( 1 ) );
+                }
+                cache.put( pattern, list );
+            }
+            list.add( rule );
+            rules.add( rule );
+        }
+
+    }
+
+    /**
+     * Registers each tail match pattern under an alias as well, writing to the fields directly.
+     */
+    private static final class AliasRules
+        extends RulesBase
+    {
+
+        @Override
+        protected void registerRule( final String pattern, final Rule rule )
+        {
+            super.registerRule( pattern, rule );
+            if ( pattern.startsWith( "*/" ) )
+            {
+                final String alias = pattern + "-alias";
+                cache.computeIfAbsent( alias, key -> new ArrayList<>() ).add( rule );
+                wildcardCache.add( alias.substring( 1 ) );
+            }
+        }
+
+    }
+
+    /**
+     * Registers its rules through the overridden method, and opts in to the pattern indexes.
+     */
+    private static final class IndexedRules
+        extends RulesBase
+    {
+
+        private int registered;
+
+        @Override
+        protected boolean isPatternIndexed()
+        {
+            return true;
+        }
+
+        @Override
+        protected void registerRule( final String pattern, final Rule rule )
+        {
+            registered++;
+            super.registerRule( pattern, rule );
+        }
+
+    }
+
+    /**
+     * Matches the elements nested in a {@code legacy} element as if they were nested in its parent.
+     */
+    private static final class AliasingExtendedRules
+        extends ExtendedBaseRules
+    {
+
+        @Override
+        public List<Rule> match( final String namespaceURI, final String pattern, final String name,
+                                 final Attributes attributes )
+        {
+            return super.match( namespaceURI, pattern.replace( "/legacy", "" ), name, attributes );
+        }
+
+    }
+
+    private static int countBegins( final Rules rules, final String pattern, final String xml )
+        throws Exception
+    {
+        final AtomicInteger begins = new AtomicInteger();
+        final Digester digester = new Digester();
+        digester.setRules( rules );
+        digester.addRule( pattern, new Rule()
+        {
+
+            @Override
+            public void begin( final String namespace, final String name, final Attributes attributes )
+            {
+                begins.incrementAndGet();
+            }
+
+        } );
+        digester.parse( new StringReader( xml ) );
+        return begins.get();
+    }
+
+    private static String matchedIdentifier( final Rules rules, final String pattern )
+    {
+        final List<Rule> matches = rules.match( null, pattern, null, null );
+        return matches.isEmpty() ? null : ( (TestRule) matches.get( 0 ) ).getIdentifier();
+    }
+
+    private static void register( final Rules rules )
+    {
+        for ( final String pattern : new String[] { "a/b", "*/c", "*/b/c" } )
+        {
+            rules.add( pattern, new TestRule( pattern ) );
+        }
+    }
+
+    @Test
+    void testFieldsFilledDirectly()
+    {
+        final Rules rules = new AliasRules();
+        register( rules );
+
+        assertEquals( "a/b", matchedIdentifier( rules, "a/b" ), "Exact match" );
+        assertEquals( "*/b/c", matchedIdentifier( rules, "a/b/c" ), "Longest tail match" );
+        assertEquals( "*/c", matchedIdentifier( rules, "a/c-alias" ), "Tail match of an alias" );
+        assertEquals( "*/b/c", matchedIdentifier( rules, "x/b/c-alias" ), "Longest tail match of an alias" );
+    }
+
+    @Test
+    void testParseWithOverriddenMatch()
+        throws Exception
+    {
+        assertEquals( 2, countBegins( new AliasingExtendedRules(), "root/item",
+                                      "<root><item/><legacy><item/></legacy></root>" ),
+                      "Nested elements skipped" );
+    }
+
+    @Test
+    void testParseWithRegisterRuleNotCallingSuper()
+        throws Exception
+    {
+        assertEquals( 2, countBegins( new FieldRules(), "root/item", "<root><item/><item/></root>" ),
+                      "Exact match" );
+        assertEquals( 1, countBegins( new FieldRules(), "*/item", "<root><x><item/></x></root>" ),
+                      "Tail match" );
+    }
+
+    @Test
+    void testOptedInSubclass()
+    {
+        final IndexedRules rules = new IndexedRules();
+        register( rules );
+
+        assertEquals( 3, rules.registered, "Rules not registered through the subclass" );
+        assertEquals( "*/b/c", matchedIdentifier( rules, "a/b/c" ), "Longest tail match" );
+        assertEquals( "*/c", matchedIdentifier( rules, "x/c" ), "Tail match" );
+        assertNull( matchedIdentifier( rules, "x/cc" ), "No match" );
+    }
+
+    @Test
+    void testRegisterRuleNotCallingSuper()
+    {
+        final Rules rules = new FieldRules();
+        register( rules );
+
+        assertEquals( "a/b", matchedIdentifier( rules, "a/b" ), "Exact match" );
+        assertEquals( "*/b/c", matchedIdentifier( rules, "a/b/c" ), "Longest tail match" );
+        assertEquals( "*/c", matchedIdentifier( rules, "a/x/c" ), "Tail match" );
+        assertEquals( "*/c", matchedIdentifier( rules, "c" ), "Tail match at the top level" );
+        assertNull( matchedIdentifier( rules, "a/x" ), "No match" );
+    }
+
+}
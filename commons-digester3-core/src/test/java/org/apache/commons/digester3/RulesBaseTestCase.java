@@ -19,6 +19,8 @@
 package org.apache.commons.digester3;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Iterator;
 import java.util.List;
@@ -233,6 +235,116 @@ public class RulesBaseTestCase
 
     }
 
+    /**
+     * Tests that the longest tail match is selected among many registered wildcard patterns, and that tail matches
+     * only happen on whole elements.
+     */
+    @Test
+    void testLongestTailMatchAmongManyPatterns()
+    {
+        // clear any existing rules
+        digester.getRules().clear();
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            digester.addRule( "*/x" + i + "/y", new TestRule( "*/x" + i + "/y" ) );
+        }
+        digester.addRule( "*/y", new TestRule( "*/y" ) );
+        digester.addRule( "*/w/x42/y", new TestRule( "*/w/x42/y" ) );
+
+        assertEquals( "*/x7/y", ( ( TestRule ) digester.getRules().match( null, "a/x7/y", null, null ).get( 0 ) ).getIdentifier(), "Tail match" );
+        assertEquals( "*/x7/y", ( ( TestRule ) digester.getRules().match( null, "x7/y", null, null ).get( 0 ) ).getIdentifier(), "Tail match at the top level" );
+        assertEquals( "*/w/x42/y", ( ( TestRule ) digester.getRules().match( null, "a/w/x42/y", null, null ).get( 0 ) ).getIdentifier(), "Longest tail match" );
+        assertEquals( "*/x42/y", ( ( TestRule ) digester.getRules().match( null, "a/aw/x42/y", null, null ).get( 0 ) ).getIdentifier(), "Tail match on whole elements" );
+        assertEquals( "*/y", ( ( TestRule ) digester.getRules().match( null, "a/ax7/y", null, null ).get( 0 ) ).getIdentifier(), "Shorter tail match" );
+        assertEquals( 0, digester.getRules().match( null, "a/x7/yy", null, null ).size(), "No tail match" );
+
+        // clean up
+        digester.getRules().clear();
+
+        assertEquals( 0, digester.getRules().match( null, "a/x7/y", null, null ).size(), "No tail match after clear" );
+    }
+
+    /**
+     * Tests that matching the element path gives the same results as matching the materialized pattern.
+     */
+    @Test
+    void testElementPathMatching()
+    {
+        // clear any existing rules
+        digester.getRules().clear();
+
+        digester.addRule( "a", new TestRule( "a" ) );
+        digester.addRule( "a/b/c", new TestRule( "a/b/c" ) );
+        digester.addRule( "*/c", new TestRule( "*/c" ) );
+        digester.addRule( "*/b/c", new TestRule( "*/b/c" ) );
+        digester.addRule( "x/b", new TestRule( "x/b" ) );
+
+        final ElementPath path = new ElementPath();
+        assertEquals( "", path.toString(), "Empty path" );
+        for ( final String pattern : new String[] { "a", "a/b", "a/b/c", "a/b/c/d", "x", "x/b", "x/b/c", "x/bb/c" } )
+        {
+            path.clear();
+            for ( final String name : pattern.split( "/" ) )
+            {
+                path.push( name );
+            }
+            assertEquals( pattern, path.toString(), "Materialized path" );
+            assertEquals( pattern.length(), path.length(), "Path length" );
+            assertEquals( pattern.substring( pattern.lastIndexOf( '/' ) + 1 ), path.getLastName(), "Last name" );
+            assertEquals( digester.getRules().match( null, pattern, null, null ),
+                          digester.getRules().matchPath( null, path, null, null ), "Path match of " + pattern );
+        }
+
+        path.pop();
+        assertEquals( "x/bb", path.toString(), "Path after pop" );
+        path.push( "b" );
+        assertEquals( "x/bb/b", path.toString(), "Path after push" );
+
+        // clean up
+        digester.getRules().clear();
+    }
+
+    /**
+     * Tests the detection of the elements whose nested elements cannot be matched.
+     */
+    @Test
+    void testMayMatchDescendants()
+    {
+        // clear any existing rules
+        digester.getRules().clear();
+
+        digester.addRule( "a/b/c", new TestRule( "a/b/c" ) );
+
+        assertTrue( digester.getRules().mayMatchDescendants( path( "a" ) ), "Parent of a pattern" );
+        assertTrue( digester.getRules().mayMatchDescendants( path( "a/b" ) ), "Direct parent of a pattern" );
+        assertFalse( digester.getRules().mayMatchDescendants( path( "a/b/c" ) ), "Matched element" );
+        assertFalse( digester.getRules().mayMatchDescendants( path( "a/x" ) ), "Unrelated element" );
+        assertFalse( digester.getRules().mayMatchDescendants( path( "x" ) ), "Unrelated root element" );
+
+        digester.addRule( "*/d", new TestRule( "*/d" ) );
+        assertTrue( digester.getRules().mayMatchDescendants( path( "x" ) ), "Tail match pattern" );
+
+        // clean up
+        digester.getRules().clear();
+    }
+
+    /**
+     * Creates the element path of the given pattern.
+     *
+     * @param pattern the '/' separated pattern
+     * @return the element path of the given pattern
+     */
+    protected static ElementPath path( final String pattern )
+    {
+        final ElementPath path = new ElementPath();
+        for ( final String name : pattern.split( "/" ) )
+        {
+            path.push( name );
+        }
+        return path;
+    }
+
     /** Tests the behavior when a rule is added with a trailing slash */
     @Test
     void testTrailingSlash()
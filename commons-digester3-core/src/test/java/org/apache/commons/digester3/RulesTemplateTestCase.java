@@ -0,0 +1,177 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * <p>
+ * Runs standard tests for RulesBase on the rules created by a template, as well as tests of the template
+ * registrations.
+ * </p>
+ */
+public class RulesTemplateTestCase
+    extends RulesBaseTestCase
+{
+
+    private final List<String> created = new ArrayList<>();
+
+    private void add( final RulesTemplate template, final String pattern, final String namespaceURI,
+                      final String identifier )
+    {
+        template.add( pattern, namespaceURI, () ->
+        {
+            created.add( identifier );
+            return new TestRule( identifier );
+        } );
+    }
+
+    @Override
+    protected Rules createMatchingRulesForTest()
+    {
+        return new RulesTemplate().newRules();
+    }
+
+    private static List<String> identifiers( final List<Rule> rules )
+    {
+        final List<String> identifiers = new ArrayList<>();
+        for ( final Rule rule : rules )
+        {
+            identifiers.add( ( (TestRule) rule ).getIdentifier() );
+        }
+        return identifiers;
+    }
+
+    @Test
+    void testAddToTemplateRules()
+    {
+        final RulesTemplate template = new RulesTemplate();
+        add( template, "a", null, "a-1" );
+        add( template, "a/b", null, "a-b" );
+
+        digester.setRules( template.newRules() );
+        digester.addRule( "a", new TestRule( "a-2" ) );
+
+        assertEquals( "[a-1, a-2]", identifiers( digester.getRules().match( null, "a", null, null ) ).toString(),
+                      "Template and added rules" );
+        assertEquals( "[a-1, a-b, a-2]", identifiers( digester.getRules().rules() ).toString(), "All rules" );
+        for ( final Rule rule : digester.getRules().rules() )
+        {
+            assertSame( digester, rule.getDigester(), "Digester of the rules" );
+        }
+    }
+
+    @Test
+    void testFrozenTemplate()
+    {
+        final RulesTemplate template = new RulesTemplate();
+        add( template, "a", null, "a" );
+        template.newRules();
+
+        assertThrows( IllegalStateException.class, () -> add( template, "b", null, "b" ) );
+    }
+
+    @Test
+    void testLazyRules()
+    {
+        final RulesTemplate template = new RulesTemplate();
+        add( template, "a", null, "a" );
+        add( template, "a/b", null, "a-b" );
+        add( template, "*/c", null, "c" );
+
+        final Rules first = template.newRules();
+        final Rules second = template.newRules();
+        assertTrue( created.isEmpty(), "Rules created with the Rules instances" );
+
+        final List<Rule> match = first.match( null, "a", null, null );
+        assertEquals( "[a]", created.toString(), "Rules created by the first match" );
+        assertSame( match, first.match( null, "a", null, null ), "Rules matched again" );
+        assertEquals( "[a]", created.toString(), "Rules created by the second match" );
+
+        final List<Rule> other = second.match( null, "a", null, null );
+        assertNotSame( match.get( 0 ), other.get( 0 ), "Rules of another instance" );
+        assertEquals( "[a, a]", created.toString(), "Rules created by another instance" );
+    }
+
+    @Test
+    void testTemplateDigester()
+        throws Exception
+    {
+        final RulesTemplate template = new RulesTemplate();
+        template.add( "employee", null, () -> new ObjectCreateRule( Employee.class ) );
+        template.add( "employee", null, SetPropertiesRule::new );
+        template.add( "employee/address", null, () -> new ObjectCreateRule( Address.class ) );
+        template.add( "employee/address", null, SetPropertiesRule::new );
+        template.add( "employee/address", null, () -> new SetNextRule( "addAddress" ) );
+        digester.setRules( template.newRules() );
+
+        final String xml = "<employee firstName='First'><address type='home' city='Home'/>"
+            + "<address type='office' city='Office'/></employee>";
+        final Employee employee = digester.parse( new StringReader( xml ) );
+        assertEquals( "First", employee.getFirstName(), "Employee" );
+        assertEquals( "Office", employee.getAddress( "office" ).getCity(), "Address" );
+
+        final Employee forked = digester.fork().parse( new StringReader( xml ) );
+        assertNotSame( employee, forked, "Forked parse" );
+        assertEquals( "Home", forked.getAddress( "home" ).getCity(), "Forked address" );
+    }
+
+    @Test
+    void testTemplateMatch()
+    {
+        final RulesTemplate template = new RulesTemplate();
+        final RulesBase expected = new RulesBase();
+        final String[][] registrations = {
+            { "a", null }, { "a/b", null }, { "a/b", "urn:x" }, { "*/b", null }, { "*/a/b/c", null },
+            { "*/c", "urn:y" }, { "x/", null }
+        };
+        for ( int i = 0; i < registrations.length; i++ )
+        {
+            final String identifier = registrations[i][0] + "#" + i;
+            add( template, registrations[i][0], registrations[i][1], identifier );
+            expected.add( registrations[i][0], new TestRule( identifier, registrations[i][1] ) );
+        }
+
+        final Rules rules = template.newRules();
+        final String[] patterns = { "a", "a/b", "x/b", "a/b/c", "z/a/b/c", "c", "x", "y" };
+        for ( final String namespaceURI : new String[] { null, "urn:x", "urn:y" } )
+        {
+            for ( final String pattern : patterns )
+            {
+                assertEquals( identifiers( expected.match( namespaceURI, pattern, null, null ) ),
+                              identifiers( rules.match( namespaceURI, pattern, null, null ) ),
+                              "Match of " + pattern + " in " + namespaceURI );
+            }
+        }
+        assertEquals( identifiers( expected.rules() ), identifiers( rules.rules() ), "All rules" );
+    }
+
+}
@@ -0,0 +1,82 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * An input stream delivering the given bytes, then blocking until it is closed, as a stalled network stream does.
+ */
+final class StalledInputStream
+    extends InputStream
+{
+
+    private final InputStream head;
+
+    private final CountDownLatch closed = new CountDownLatch( 1 );
+
+    StalledInputStream( final byte[] head )
+    {
+        this.head = new ByteArrayInputStream( head );
+    }
+
+    @Override
+    public void close()
+    {
+        closed.countDown();
+    }
+
+    boolean isClosed()
+    {
+        return closed.getCount() == 0;
+    }
+
+    @Override
+    public int read()
+        throws IOException
+    {
+        final byte[] single = new byte[1];
+        return read( single, 0, 1 ) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read( final byte[] bytes, final int offset, final int length )
+        throws IOException
+    {
+        final int read = head.read( bytes, offset, length );
+        if ( read > 0 )
+        {
+            return read;
+        }
+        try
+        {
+            closed.await();
+        }
+        catch ( final InterruptedException e )
+        {
+            throw new IOException( "Interrupted while stalled", e );
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,179 @@
+package org.apache.commons.digester3;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+
+/**
+ * Tests the streaming of the objects completed at a pattern.
+ */
+public class StreamTestCase
+{
+
+    private static final String FEED = "<feed><title>t</title>"
+        + "<entry alpha='a1'><gamma>g1</gamma></entry>"
+        + "<group><entry alpha='a2'><gamma>g2</gamma></entry></group>"
+        + "<entry alpha='a3'><gamma>g3</gamma></entry></feed>";
+
+    private Digester digester;
+
+    private int begun;
+
+    @BeforeEach
+    public void setUp()
+    {
+        digester = new Digester();
+        digester.addObjectCreate( "*/entry", SimpleTestBean.class );
+        digester.addSetProperties( "*/entry" );
+        digester.addBeanPropertySetter( "*/entry/gamma" );
+        digester.addRule( "*/entry", new Rule()
+        {
+            @Override
+            public void begin( final String namespace, final String name, final Attributes attributes )
+            {
+                begun++;
+            }
+        } );
+    }
+
+    @Test
+    void testStream()
+        throws Exception
+    {
+        try ( Stream<SimpleTestBean> beans =
+            digester.stream( new InputSource( new StringReader( FEED ) ), "feed/entry", SimpleTestBean.class ) )
+        {
+            final List<String> values = beans.map( bean -> bean.getAlpha() + bean.getGamma() ).collect( toList() );
+            assertEquals( "[a1g1, a3g3]", values.toString(), "Objects at the pattern" );
+        }
+        assertEquals( 0, digester.getCount(), "Objects detached from the stack" );
+
+        try ( Stream<SimpleTestBean> beans =
+            digester.stream( new InputSource( new StringReader( FEED ) ), "*/entry", SimpleTestBean.class ) )
+        {
+            assertEquals( 3, beans.count(), "Objects at the wildcard pattern" );
+        }
+    }
+
+    @Test
+    void testStreamIsLazy()
+        throws Exception
+    {
+        try ( Stream<SimpleTestBean> beans =
+            digester.stream( new InputSource( new StringReader( FEED ) ), "*/entry", SimpleTestBean.class ) )
+        {
+            final Iterator<SimpleTestBean> iterator = beans.iterator();
+            assertEquals( 0, begun, "Nothing parsed before the first pull" );
+            assertEquals( "g1", iterator.next().getGamma(), "First object" );
+            assertEquals( 1, begun, "Parsed up to the first object" );
+            assertEquals( "g2", iterator.next().getGamma(), "Second object" );
+            assertEquals( 2, begun, "Parsed up to the second object" );
+        }
+        assertEquals( 0, digester.getCount(), "Stack cleared by an early close" );
+
+        // the digester can be used again once the stream is closed
+        final SimpleTestBean bean = digester.parse( new StringReader( "<entry alpha='a'/>" ) );
+        assertEquals( "a", bean.getAlpha(), "Parse after the stream" );
+    }
+
+    @Test
+    void testStreamParseError()
+        throws Exception
+    {
+        try ( Stream<SimpleTestBean> beans =
+            digester.stream( new InputSource( new StringReader( "<feed><entry alpha='a1'/><entry></feed>" ) ),
+                             "feed/entry", SimpleTestBean.class ) )
+        {
+            final Iterator<SimpleTestBean> iterator = beans.iterator();
+            assertTrue( iterator.hasNext(), "Object before the error" );
+            assertEquals( "a1", iterator.next().getAlpha(), "Object before the error" );
+            final UncheckedSAXException e = assertThrows( UncheckedSAXException.class, iterator::hasNext );
+            assertInstanceOf( SAXParseException.class, e.getCause(), "Error location" );
+            assertFalse( iterator.hasNext(), "No object after the error" );
+        }
+        assertEquals( 0, digester.getCount(), "Stack cleared after the error" );
+    }
+
+    @Test
+    void testStreamResolvesEntities()
+        throws Exception
+    {
+        final String publicId = "-//Apache Commons//DTD Digester Stream Test//EN";
+        final String feed = "<!DOCTYPE feed PUBLIC '" + publicId + "' 'http://commons.invalid/stream-entities.dtd'>"
+            + "<feed><entry alpha='a1'><gamma>&gamma;</gamma></entry></feed>";
+
+        digester.register( publicId, getClass().getResource( "stream-entities.dtd" ) );
+        try ( Stream<SimpleTestBean> beans =
+            digester.stream( new InputSource( new StringReader( feed ) ), "feed/entry", SimpleTestBean.class ) )
+        {
+            assertEquals( "g1", beans.findFirst().get().getGamma(), "Entity of the registered DTD" );
+        }
+
+        digester.setEntityResolver( ( entityPublicId, systemId ) -> new InputSource(
+            new ByteArrayInputStream( "<!ENTITY gamma 'g2'>".getBytes( StandardCharsets.US_ASCII ) ) ) );
+        try ( Stream<SimpleTestBean> beans =
+            digester.stream( new InputSource( new StringReader( feed ) ), "feed/entry", SimpleTestBean.class ) )
+        {
+            assertEquals( "g2", beans.findFirst().get().getGamma(), "Entity of the resolved DTD" );
+        }
+    }
+
+    @Test
+    void testStreamRejectsValidation()
+    {
+        final InputSource input = new InputSource( new StringReader( FEED ) );
+        digester.setValidating( true );
+        assertThrows( IllegalStateException.class, () -> digester.stream( input, "feed/entry", SimpleTestBean.class ),
+                      "Validating Digester" );
+        digester.setValidating( false );
+        digester.setXIncludeAware( true );
+        assertThrows( IllegalStateException.class, () -> digester.stream( input, "feed/entry", SimpleTestBean.class ),
+                      "XInclude aware Digester" );
+    }
+
+    @Test
+    void testStreamNullArguments()
+    {
+        final InputSource input = new InputSource( new StringReader( FEED ) );
+        assertThrows( IllegalArgumentException.class,
+                      () -> digester.stream( ( InputSource ) null, "feed/entry", SimpleTestBean.class ) );
+        assertThrows( IllegalArgumentException.class, () -> digester.stream( input, null, SimpleTestBean.class ) );
+        assertThrows( IllegalArgumentException.class, () -> digester.stream( input, "feed/entry", null ) );
+    }
+
+}
@@ -19,10 +19,22 @@ package org.apache.commons.digester3.binder;
  * under the License.
  */
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
 
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.digester3.Digester;
+import org.apache.commons.digester3.SAXParserPool;
+import org.apache.commons.digester3.SimpleTestBean;
 import org.junit.jupiter.api.Test;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.Locator;
@@ -148,4 +160,133 @@ public final class DigesterLoaderTestCase
         assertSame( expected, actual );
     }
 
+    @Test
+    void testParserFactoryShared()
+        throws Exception
+    {
+        final String feature = "http://xml.org/sax/features/namespace-prefixes";
+        final DigesterLoader loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "bean" ).createObject().ofType( SimpleTestBean.class ).then().setProperties();
+            }
+
+        } ).setNamespaceAware( true ).setFeature( feature, true );
+
+        final Digester digester = loader.newDigester();
+        assertSame( digester.getFactory(), loader.newDigester().getFactory(), "Factory shared by the Digesters" );
+        assertTrue( digester.getFactory().isNamespaceAware(), "Namespace aware factory" );
+        assertTrue( digester.getFeature( feature ), "Feature of the loader" );
+        final SimpleTestBean bean = digester.parse( new StringReader( "<x:bean xmlns:x='urn:x' alpha='a'/>" ) );
+        assertEquals( "a", bean.getAlpha(), "Alpha" );
+
+        loader.setNamespaceAware( false );
+        final Digester other = loader.newDigester();
+        assertNotSame( digester.getFactory(), other.getFactory(), "Factory of another configuration" );
+        assertFalse( other.getFactory().isNamespaceAware(), "Namespace aware factory" );
+        assertTrue( other.getFeature( feature ), "Feature of the loader" );
+        assertTrue( digester.getFactory().isNamespaceAware(), "Configuration kept by the Digesters already created" );
+    }
+
+    @Test
+    void testParserPool()
+        throws Exception
+    {
+        final DigesterLoader loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "bean" ).createObject().ofType( SimpleTestBean.class ).then().setProperties();
+            }
+
+        } ).setNamespaceAware( true ).setParserPoolSize( 2 );
+        assertEquals( 2, loader.getParserPoolSize(), "Parser pool size" );
+
+        final SAXParserPool pool = loader.newDigester().getParserPool();
+        for ( int i = 0; i < 5; i++ )
+        {
+            final Digester digester = loader.newDigester();
+            assertSame( pool, digester.getParserPool(), "Parser pool" );
+            final SimpleTestBean bean = digester.parse( new StringReader( "<x:bean xmlns:x='urn:x' alpha='a" + i
+                + "'/>" ) );
+            assertEquals( "a" + i, bean.getAlpha(), "Alpha" );
+        }
+        assertEquals( 5, pool.getBorrowedCount(), "Borrowed parsers" );
+        assertEquals( 1, pool.getCreatedCount(), "Created parsers" );
+        assertEquals( 1, pool.getIdleCount(), "Idle parsers" );
+
+        loader.setNamespaceAware( false );
+        final Digester digester = loader.newDigester();
+        assertNotSame( pool, digester.getParserPool(), "Parser pool of another configuration" );
+        assertFalse( digester.getParser().isNamespaceAware(), "Namespace aware parser" );
+
+        loader.setParserPoolSize( 0 );
+        assertNull( loader.newDigester().getParserPool(), "Parser pool" );
+    }
+
+    @Test
+    void testParserConfiguration()
+    {
+        final DigesterLoader loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                // do nothing
+            }
+
+        } ).setNamespaceAware( true ).setXIncludeAware( true ).setValidating( true )
+            .setSchema( Digester.class.getResource( "Test13.xsd" ) );
+
+        for ( final Digester digester : new Digester[] { loader.newDigester(),
+            loader.setParserPoolSize( 1 ).newDigester() } )
+        {
+            assertTrue( digester.getNamespaceAware(), "Namespace aware" );
+            assertTrue( digester.getXIncludeAware(), "XInclude aware" );
+            assertTrue( digester.getValidating(), "Validating" );
+            assertNotNull( digester.getXMLSchema(), "XML Schema" );
+            assertSame( loader.newDigester().getXMLSchema(), digester.getXMLSchema(), "Shared XML Schema" );
+        }
+    }
+
+    @Test
+    void testRulesTemplate()
+        throws Exception
+    {
+        final DigesterLoader loader = newLoader( new AbstractRulesModule()
+        {
+
+            @Override
+            protected void configure()
+            {
+                forPattern( "root/bean" ).createObject().ofType( SimpleTestBean.class )
+                    .then().setProperties()
+                    .then().setNext( "add" );
+                forPattern( "root/bean/beta" ).setBeanProperty();
+            }
+
+        } ).setUseRulesTemplate( true );
+
+        final String xml = "<root><bean alpha='a1'><beta>b1</beta></bean><bean alpha='a2'/></root>";
+        for ( int i = 0; i < 2; i++ )
+        {
+            final Digester digester = loader.newDigester();
+            final List<SimpleTestBean> beans = new ArrayList<>();
+            digester.push( beans );
+            digester.parse( new StringReader( xml ) );
+
+            assertEquals( 2, beans.size(), "Beans" );
+            assertEquals( "a1", beans.get( 0 ).getAlpha(), "Alpha" );
+            assertEquals( "b1", beans.get( 0 ).getBeta(), "Beta" );
+            assertEquals( "a2", beans.get( 1 ).getAlpha(), "Alpha" );
+            assertEquals( 4, digester.getRules().rules().size(), "Rules" );
+        }
+    }
+
 }
@@ -0,0 +1,125 @@
+package org.apache.commons.digester3.binder;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.apache.commons.digester3.Digester;
+import org.apache.commons.digester3.SimpleTestBean;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+public final class DigesterPoolTestCase
+{
+
+    private final DigesterLoader loader = newLoader( new AbstractRulesModule()
+    {
+
+        @Override
+        protected void configure()
+        {
+            forPattern( "root" ).createObject().ofType( "java.util.ArrayList" );
+            forPattern( "root/bean" ).createObject().ofType( SimpleTestBean.class )
+                .then().setProperties()
+                .then().setNext( "add" );
+            forPattern( "root/bean/beta" ).callMethod( "setBeta" ).withParamCount( 1 )
+                .then().callParam().ofIndex( 0 );
+        }
+
+    } );
+
+    private static InputSource input( final String xml )
+    {
+        return new InputSource( new StringReader( xml ) );
+    }
+
+    @Test
+    void testMaxIdle()
+    {
+        final DigesterPool pool = loader.newDigesterPool( 1 );
+        final Digester first = pool.borrowDigester();
+        final Digester second = pool.borrowDigester();
+        assertNotSame( first, second, "Borrowed Digesters" );
+        assertEquals( 2, pool.getActiveCount(), "Active Digesters" );
+
+        pool.returnDigester( first );
+        pool.returnDigester( second );
+        assertEquals( 0, pool.getActiveCount(), "Active Digesters" );
+        assertEquals( 1, pool.getIdleCount(), "Idle Digesters" );
+        assertEquals( 1, pool.getDestroyedCount(), "Destroyed Digesters" );
+        assertSame( first, pool.borrowDigester(), "Idle Digester" );
+
+        pool.clear();
+        assertEquals( 0, pool.getIdleCount(), "Idle Digesters" );
+        assertThrows( IllegalArgumentException.class, () -> loader.newDigesterPool( -1 ) );
+    }
+
+    @Test
+    void testReturnNotBorrowed()
+    {
+        final DigesterPool pool = loader.newDigesterPool( 1 );
+        assertThrows( IllegalArgumentException.class, () -> pool.returnDigester( loader.newDigester() ) );
+        assertThrows( IllegalArgumentException.class, () -> pool.returnDigester( null ) );
+
+        final Digester digester = pool.borrowDigester();
+        pool.returnDigester( digester );
+        assertThrows( IllegalArgumentException.class, () -> pool.returnDigester( digester ) );
+        assertEquals( 1, pool.getReturnedCount(), "Returned Digesters" );
+    }
+
+    @Test
+    void testReuseAfterFailure()
+        throws Exception
+    {
+        final DigesterPool pool = loader.newDigesterPool( 1 );
+        final Digester digester = pool.borrowDigester();
+        assertThrows( SAXException.class,
+                      () -> digester.parse( input( "<root><bean alpha='a0'><beta>b0</beta><beta>b1" ) ) );
+        assertEquals( 2, digester.getCount(), "Objects left by the failed parse" );
+        pool.returnDigester( digester );
+        assertEquals( 0, digester.getCount(), "Objects after the reset" );
+        assertNull( digester.getRoot(), "Root after the reset" );
+
+        final List<SimpleTestBean> beans =
+            pool.parse( input( "<root><bean alpha='a1'><beta>b1</beta></bean><bean alpha='a2'/></root>" ) );
+        assertEquals( 2, beans.size(), "Beans" );
+        assertEquals( "a1", beans.get( 0 ).getAlpha(), "Alpha" );
+        assertEquals( "b1", beans.get( 0 ).getBeta(), "Beta" );
+        assertNull( beans.get( 1 ).getBeta(), "Beta" );
+
+        assertThrows( SAXException.class, () -> pool.parse( input( "<root><bean>" ) ) );
+        assertEquals( 3, pool.getBorrowedCount(), "Borrowed Digesters" );
+        assertEquals( 3, pool.getReturnedCount(), "Returned Digesters" );
+        assertEquals( 1, pool.getCreatedCount(), "Created Digesters" );
+        assertEquals( 0, pool.getActiveCount(), "Active Digesters" );
+        assertEquals( 1, pool.getIdleCount(), "Idle Digesters" );
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.apache.commons.digester3.binder;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.digester3.SimpleTestBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+public final class ParseAllTestCase
+{
+
+    private final ExecutorService executorService = newFixedThreadPool( 3 );
+
+    private final DigesterLoader loader = newLoader( new AbstractRulesModule()
+    {
+
+        @Override
+        protected void configure()
+        {
+            forPattern( "row" ).createObject().ofType( SimpleTestBean.class ).then().setProperties();
+        }
+
+    } ).setExecutorService( executorService );
+
+    @AfterEach
+    public void tearDown()
+    {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testParseAll()
+        throws Exception
+    {
+        final List<InputSource> inputs = new ArrayList<>();
+        for ( int i = 0; i < 200; i++ )
+        {
+            final String xml = i % 7 == 3 ? "<row alpha='a" + i + "'>" : "<row alpha='a" + i + "'/>";
+            final InputSource input = new InputSource( new StringReader( xml ) );
+            input.setSystemId( "doc" + i );
+            inputs.add( input );
+        }
+
+        final List<ParseResult<SimpleTestBean>> results = loader.parseAll( inputs, 4 );
+
+        assertEquals( inputs.size(), results.size(), "Results" );
+        for ( int i = 0; i < inputs.size(); i++ )
+        {
+            final ParseResult<SimpleTestBean> result = results.get( i );
+            assertSame( inputs.get( i ), result.getInput(), "Results in input order" );
+            if ( i % 7 == 3 )
+            {
+                assertFalse( result.isParsed(), "Malformed document " + i );
+                assertInstanceOf( SAXException.class, result.getFailure(), "Malformed document " + i );
+                assertNull( result.getRoot(), "Malformed document " + i );
+            }
+            else
+            {
+                assertTrue( result.isParsed(), "Document " + i );
+                assertEquals( "a" + i, result.getRoot().getAlpha(), "Document " + i );
+            }
+        }
+    }
+
+    @Test
+    void testParseAllArguments()
+    {
+        final List<InputSource> inputs = new ArrayList<>();
+        assertThrows( IllegalArgumentException.class, () -> loader.parseAll( null, 1 ) );
+        assertThrows( IllegalArgumentException.class, () -> loader.parseAll( inputs, 0 ) );
+        loader.setExecutorService( null );
+        assertThrows( IllegalStateException.class, () -> loader.parseAll( inputs, 1 ) );
+    }
+
+}
@@ -0,0 +1,124 @@
+package org.apache.commons.digester3.binder;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.apache.commons.digester3.binder.DigesterLoader.newLoader;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.digester3.SimpleTestBean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+public final class ParseRecordsTestCase
+{
+
+    private final ExecutorService executorService = newFixedThreadPool( 4 );
+
+    private final DigesterLoader loader = newLoader( new AbstractRulesModule()
+    {
+
+        @Override
+        protected void configure()
+        {
+            forPattern( "rows/row" ).createObject().ofType( SimpleTestBean.class ).then().setProperties();
+            forPattern( "rows/row/gamma" ).setBeanProperty();
+        }
+
+    } ).setExecutorService( executorService );
+
+    private static String document( final int rows )
+    {
+        final StringBuilder xml = new StringBuilder( "<?xml version='1.0'?>\n<!-- <rows> -->\n" )
+            .append( "<!DOCTYPE rows [ <!ENTITY beta \"b&#62;\"> <!-- ] > --> ]>\n<rows xmlns:p='urn:p'>\n" );
+        for ( int i = 0; i < rows; i++ )
+        {
+            xml.append( "  <row alpha='a" ).append( i ).append( "' beta='&beta;' p:x=\"/>\">" )
+                .append( "<gamma>g" ).append( i ).append( "<![CDATA[</row>]]></gamma><!-- </rows> --><?pi </row>?>" )
+                .append( "<empty/></row>\n" );
+        }
+        return xml.append( "</rows>\n<!-- trailing -->" ).toString();
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testParseRecords()
+        throws Exception
+    {
+        final String xml = document( 10000 );
+        final List<String> expected = new ArrayList<>();
+        loader.newDigester().stream( new InputSource( new StringReader( xml ) ), "rows/row",
+                                     SimpleTestBean.class ).forEach( bean -> expected.add( bean.toString() ) );
+
+        final List<String> actual = new ArrayList<>();
+        // with a byte order mark, as decoded from a file
+        loader.parseRecords( new StringReader( "\uFEFF" + xml ), "rows/row", SimpleTestBean.class, 3,
+                             bean -> actual.add( bean.toString() ) );
+
+        assertEquals( 10000, expected.size(), "Records" );
+        assertEquals( expected, actual, "Records in document order" );
+        assertTrue( actual.get( 0 ).contains( "b>" ), "Entity of the internal subset" );
+    }
+
+    @Test
+    void testParseRecordsEdgeCases()
+        throws Exception
+    {
+        final List<SimpleTestBean> beans = new ArrayList<>();
+        loader.parseRecords( new StringReader( "<rows/>" ), "rows/row", SimpleTestBean.class, 2, beans::add );
+        loader.parseRecords( new StringReader( "<rows>\n</rows>" ), "rows/row", SimpleTestBean.class, 2, beans::add );
+        assertTrue( beans.isEmpty(), "No records" );
+
+        loader.parseRecords( new StringReader( "<rows><row alpha='a'/></rows>" ), "rows/row", SimpleTestBean.class, 2,
+                             beans::add );
+        assertEquals( 1, beans.size(), "Single record" );
+        assertEquals( "a", beans.get( 0 ).getAlpha(), "Single record" );
+        assertNull( beans.get( 0 ).getGamma(), "Single record" );
+    }
+
+    @Test
+    void testParseRecordsErrors()
+    {
+        final String malformed = document( 5000 ).replace( "<gamma>g4000", "<gamma>g4000<unclosed>" );
+        assertThrows( SAXException.class, () -> loader.parseRecords( new StringReader( malformed ), "rows/row",
+                                                                     SimpleTestBean.class, 2, bean -> { } ) );
+        assertThrows( SAXException.class, () -> loader.parseRecords( new StringReader( "<rows><row>" ), "rows/row",
+                                                                     SimpleTestBean.class, 2, bean -> { } ) );
+        assertThrows( IllegalArgumentException.class, () -> loader.parseRecords( new StringReader( "<rows/>" ),
+                                                                                 "rows/row", SimpleTestBean.class, 0,
+                                                                                 bean -> { } ) );
+    }
+
+}
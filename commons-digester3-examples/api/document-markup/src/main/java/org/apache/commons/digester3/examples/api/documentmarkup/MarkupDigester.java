@@ -112,7 +112,7 @@ public class MarkupDigester
         if ( currTextSegment.length() > 0 )
         {
             final String segment = currTextSegment.toString();
-            final List<Rule> parentMatches = getMatches().peek();
+            final List<Rule> parentMatches = peekMatches();
             for ( Rule r : parentMatches )
             {
                 if ( r instanceof TextSegmentHandler )